@@ -0,0 +1,62 @@
+package com.klsmartq.benchmarks;
+
+import com.klsmartq.dto.AdminCreateUserRequest;
+import com.klsmartq.dto.UserDTO;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.AdminUserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation and DTO mapping of {@link AdminUserService} against a stub repository. Password hashing is
+ * replaced by a no-op encoder and auditing is switched off; see {@link BCryptBenchmark} for the hashing cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdminUserServiceBenchmark {
+
+    @Param({"10", "1000"})
+    public int userCount;
+
+    private AdminUserService service;
+    private User actor;
+    private AdminCreateUserRequest createRequest;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            users.add(Stubs.user("user-" + i));
+        }
+        service = new AdminUserService(Stubs.userRepository(users), NoOpPasswordEncoder.getInstance(),
+            Stubs.auditLog());
+        actor = Stubs.user("admin");
+        actor.setRole("ADMIN");
+
+        createRequest = new AdminCreateUserRequest();
+        createRequest.setName("New Staff Member");
+        createRequest.setEmail("new.staff@kluniversity.in");
+        createRequest.setPassword("Str0ng!Passw0rd");
+        createRequest.setRole("staff");
+        createRequest.setAssignedOfficeIds(List.of("office-1", " office-2", "office-1", ""));
+    }
+
+    @Benchmark
+    public List<UserDTO> listUsers() {
+        return service.getAllUsers();
+    }
+
+    @Benchmark
+    public UserDTO createUser() {
+        return service.createUser(actor, createRequest);
+    }
+}
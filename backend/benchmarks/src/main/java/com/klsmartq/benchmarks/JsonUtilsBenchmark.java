@@ -0,0 +1,34 @@
+package com.klsmartq.benchmarks;
+
+import com.klsmartq.util.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    private final List<String> offices = List.of("office-1", " office-2 ", "office-3");
+    private final String json = "[\"office-1\",\"office-2\",\"office-3\"]";
+
+    @Benchmark
+    public String writeStringList() {
+        return JsonUtils.writeStringList(offices);
+    }
+
+    @Benchmark
+    public List<String> readStringList() {
+        return JsonUtils.readStringList(json);
+    }
+
+    @Benchmark
+    public List<String> readEmpty() {
+        return JsonUtils.readStringList(null);
+    }
+}
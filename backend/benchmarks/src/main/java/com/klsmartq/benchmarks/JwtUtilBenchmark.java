@@ -0,0 +1,42 @@
+package com.klsmartq.benchmarks;
+
+import com.klsmartq.service.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "dev-secret-kl-smartq");
+        token = jwtUtil.generateToken("3f1c1d8e-8a53-4d0f-9a43-0a4e9d3c2b11", "student@kluniversity.in", 3600);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken("3f1c1d8e-8a53-4d0f-9a43-0a4e9d3c2b11", "student@kluniversity.in", 3600);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return jwtUtil.validateToken(token);
+    }
+
+    /** What the filter does per request: validate, then parse again for the subject. */
+    @Benchmark
+    public String validateAndGetUserId() {
+        return jwtUtil.validateToken(token) ? jwtUtil.getUserIdFromToken(token) : null;
+    }
+}
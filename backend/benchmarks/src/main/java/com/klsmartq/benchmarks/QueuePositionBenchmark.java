@@ -0,0 +1,62 @@
+package com.klsmartq.benchmarks;
+
+import com.klsmartq.queue.OfficeQueue;
+import com.klsmartq.queue.QueueEvent;
+import com.klsmartq.queue.QueueState;
+import com.klsmartq.queue.QueuedToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "My position in the queue" for one waiting token: the arrival index lookup against a scan of the office's
+ * waiting tokens, which is what a per-request count costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueuePositionBenchmark {
+
+    private static final String[] PRIORITIES = {"NORMAL", "NORMAL", "NORMAL", "MEDICAL", "URGENT"};
+
+    @Param({"100", "1000", "10000"})
+    private int waiting;
+
+    private OfficeQueue office;
+    private final List<QueuedToken> tokens = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        QueueState state = new QueueState(ZoneId.of("UTC"));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < waiting; i++) {
+            tokens.add(state.apply(i + 1, QueueEvent.book("t" + i, "office-1", "student-" + i, "A-" + i, null,
+                PRIORITIES[i % PRIORITIES.length], now)));
+        }
+        office = state.office("office-1");
+    }
+
+    @Benchmark
+    public int aheadOfIndexed() {
+        return office.aheadOf(tokens.get(ThreadLocalRandom.current().nextInt(tokens.size())));
+    }
+
+    @Benchmark
+    public int aheadOfScan() {
+        QueuedToken mine = tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+        int ahead = 0;
+        for (QueuedToken other : tokens) {
+            if (QueuedToken.SERVICE_ORDER.compare(other, mine) < 0) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+}
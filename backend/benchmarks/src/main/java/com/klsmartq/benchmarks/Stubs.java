@@ -0,0 +1,79 @@
+package com.klsmartq.benchmarks;
+
+import com.klsmartq.entity.User;
+import com.klsmartq.repository.RevokedAccessTokenRepository;
+import com.klsmartq.repository.UserRepository;
+import com.klsmartq.service.AccessTokenRevocations;
+import com.klsmartq.service.AuditLog;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory stand-ins for Spring-managed collaborators, so benchmarks measure backend code rather than a database.
+ */
+final class Stubs {
+
+    private Stubs() {
+    }
+
+    static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("Benchmark User " + id);
+        user.setEmail("user" + id + "@kluniversity.in");
+        user.setRole("STAFF");
+        user.setEmailVerified(true);
+        user.setPasswordHash("");
+        user.setPoints(42);
+        user.setAssignedOfficeIds("[\"office-1\",\"office-2\"]");
+        return user;
+    }
+
+    /**
+     * A {@link UserRepository} answering lookups from a fixed user list; {@code save} returns its argument and
+     * every other method is unsupported.
+     */
+    static UserRepository userRepository(List<User> users) {
+        return (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(),
+            new Class<?>[]{UserRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findById" -> users.stream().filter(u -> u.getId().equals(args[0])).findFirst();
+                case "findByEmailIgnoreCase" -> users.stream().filter(u -> u.getEmail().equalsIgnoreCase((String) args[0])).findFirst();
+                case "findAll" -> users;
+                case "save" -> args[0];
+                case "existsById" -> users.stream().anyMatch(u -> u.getId().equals(args[0]));
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "StubUserRepository";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /** Revocations backed by a repository with nothing revoked, so every check answers from the empty filter. */
+    static AccessTokenRevocations revocations() {
+        RevokedAccessTokenRepository repository = (RevokedAccessTokenRepository) Proxy.newProxyInstance(
+            RevokedAccessTokenRepository.class.getClassLoader(),
+            new Class<?>[]{RevokedAccessTokenRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findActive" -> List.of();
+                case "deleteExpired", "insert" -> 0;
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "StubRevokedAccessTokenRepository";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        return new AccessTokenRevocations(repository, 10_000, 0.01);
+    }
+
+    /** An audit log that is switched off: recording returns at once and nothing touches a database. */
+    static AuditLog auditLog() {
+        return new AuditLog(null, false, 2, "drop");
+    }
+
+    static Optional<User> none() {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.klsmartq.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator. Requests are issued on a fixed schedule regardless of how fast earlier ones
+ * complete, and latency is measured from the scheduled start, so a stalled server shows up in the percentiles
+ * instead of silently lowering the offered rate (no coordinated omission).
+ */
+final class LoadDriver {
+
+    static final class Stats {
+        final Histogram latencyMicros = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(2), 3);
+        final AtomicLong errors = new AtomicLong();
+        final Map<Integer, AtomicLong> statusCounts = new java.util.concurrent.ConcurrentHashMap<>();
+    }
+
+    private final HttpClient client;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final Operation.RequestFactory requests;
+
+    LoadDriver(HttpClient client, Map<Operation, Integer> mix, Operation.RequestFactory requests) {
+        this.client = client;
+        this.mix = new LinkedHashMap<>(mix);
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.requests = requests;
+    }
+
+    Map<Operation, Stats> run(double rps, long durationSeconds) throws InterruptedException {
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        mix.keySet().forEach(op -> stats.put(op, new Stats()));
+        ConcurrentLinkedQueue<CompletableFuture<?>> inFlight = new ConcurrentLinkedQueue<>();
+
+        long intervalNanos = (long) (1_000_000_000L / rps);
+        long total = (long) (rps * durationSeconds);
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation op = pick();
+            HttpRequest request = requests.next(op);
+            Stats opStats = stats.get(op);
+            CompletableFuture<?> future = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    opStats.latencyMicros.recordValue(Math.max(0, (System.nanoTime() - intended) / 1000));
+                    int status = response == null ? -1 : response.statusCode();
+                    opStats.statusCounts.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+                    if (error != null || status >= 400) {
+                        opStats.errors.incrementAndGet();
+                    }
+                });
+            inFlight.add(future);
+            if (inFlight.size() > 10_000) {
+                inFlight.removeIf(CompletableFuture::isDone);
+            }
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+        } catch (Exception ex) {
+            // Failed requests are already counted
+        }
+        return stats;
+    }
+
+    private Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty workload mix");
+    }
+}
@@ -0,0 +1,384 @@
+package com.klsmartq.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klsmartq.KlSmartqApplication;
+import com.klsmartq.entity.Office;
+import com.klsmartq.entity.User;
+import com.klsmartq.repository.OfficeRepository;
+import com.klsmartq.repository.UserRepository;
+import com.klsmartq.service.JwtUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Self-contained load test of the login, registration, admin and booking paths.
+ * <p>
+ * Starts embedded Postgres (or uses {@code --db-url}), stub Supabase and SendGrid servers with configurable
+ * latency and error rates, boots the backend in-process against them, seeds users and offices, then offers a
+ * mixed workload at a fixed rate and prints throughput and latency percentiles per operation. With
+ * {@code spike-rps} a second phase replays a booking rush at that rate and reports it separately.
+ * <p>
+ * Options ({@code --name=value}): {@code rps} (50), {@code duration} seconds (60), {@code warmup} seconds (10),
+ * {@code mix} (login:60,register:20,admin-list:15,admin-create:5), {@code students} (200), {@code offices} (10),
+ * {@code spike-rps} (off), {@code spike-duration} seconds (20), {@code spike-mix} (book:90,waiting-room-status:10),
+ * {@code auth-provider} (local, or supabase for the stub Supabase server),
+ * {@code supabase-latency-ms} (40), {@code supabase-jitter-ms} (20), {@code supabase-error-rate} (0),
+ * {@code sendgrid-latency-ms} (80), {@code sendgrid-error-rate} (0), {@code db-url}, {@code db-user},
+ * {@code db-password}, {@code report} (JSON output path), and any {@code --spring.*} / backend property, which
+ * is passed through to the application.
+ */
+public final class LoadTest {
+
+    private static final String PASSWORD = "LoadTest#2024";
+    private static final String ADMIN_EMAIL = "loadtest.admin@kluniversity.in";
+
+    private final Map<String, String> options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<String> studentEmails = new ArrayList<>();
+    private final List<String> studentIds = new ArrayList<>();
+    private final List<String> studentTokens = new ArrayList<>();
+    private final List<String> officeIds = new ArrayList<>();
+    private final List<String> tickets = new ArrayList<>();
+    private final Map<String, Object> reportJson = new LinkedHashMap<>();
+    private String baseUrl;
+    private String adminToken;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        EmbeddedPostgres embedded = null;
+        String dbUrl = options.get("db-url");
+        String dbUser = options.getOrDefault("db-user", "postgres");
+        String dbPassword = options.getOrDefault("db-password", "postgres");
+        if (dbUrl == null) {
+            embedded = EmbeddedPostgres.builder().start();
+            dbUrl = embedded.getJdbcUrl("postgres", "postgres");
+            log("Embedded Postgres on " + dbUrl);
+        }
+
+        StubBehavior supabaseBehavior = new StubBehavior(
+            longOption("supabase-latency-ms", 40), longOption("supabase-jitter-ms", 20), doubleOption("supabase-error-rate", 0));
+        StubBehavior sendgridBehavior = new StubBehavior(
+            longOption("sendgrid-latency-ms", 80), longOption("sendgrid-jitter-ms", 20), doubleOption("sendgrid-error-rate", 0));
+
+        String authProvider = options.getOrDefault("auth-provider", "local");
+        Path journalDir = Files.createTempDirectory("kl-smartq-loadtest");
+        try (StubSupabaseServer supabase = new StubSupabaseServer(supabaseBehavior);
+             StubSendGridServer sendgrid = new StubSendGridServer(sendgridBehavior)) {
+            log("Stub Supabase at " + supabase.baseUrl() + " (" + supabaseBehavior + ")");
+            log("Stub SendGrid at " + sendgrid.host() + " (" + sendgridBehavior + ")");
+
+            List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + dbUrl,
+                "--spring.datasource.username=" + dbUser,
+                "--spring.datasource.password=" + dbPassword,
+                "--supabase.url=" + supabase.baseUrl(),
+                "--sendgrid.api-key=stub-key",
+                "--sendgrid.host=" + sendgrid.host(),
+                "--sendgrid.plain-http=true",
+                "--queue.journal.dir=" + journalDir,
+                "--logging.level.root=WARN",
+                "--auth.provider=" + authProvider
+            ));
+            if ("local".equals(authProvider) && !options.containsKey("auth.bcrypt-strength")) {
+                // Seeded and registered accounts hash at the lowest cost, so logins measure the server path
+                appArgs.add("--auth.bcrypt-strength=4");
+            }
+            options.forEach((name, value) -> {
+                if (name.contains(".")) {
+                    appArgs.add("--" + name + "=" + value);
+                }
+            });
+
+            long bootStart = System.nanoTime();
+            try (ConfigurableApplicationContext context = SpringApplication.run(KlSmartqApplication.class, appArgs.toArray(new String[0]))) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                baseUrl = "http://127.0.0.1:" + port;
+                log("Backend started on " + baseUrl + " in " + (System.nanoTime() - bootStart) / 1_000_000 + " ms");
+
+                String passwordHash = "local".equals(authProvider) ? context.getBean(PasswordEncoder.class).encode(PASSWORD) : "";
+                seed(context.getBean(UserRepository.class), supabase, intOption("students", 200), passwordHash);
+                seedOffices(context.getBean(OfficeRepository.class), context.getBean(JwtUtil.class), intOption("offices", 10));
+
+                HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(Executors.newFixedThreadPool(32))
+                    .build();
+                adminToken = login(client, ADMIN_EMAIL);
+                joinWaitingRooms(client);
+
+                LoadDriver driver = new LoadDriver(client, parseMix(options.getOrDefault("mix",
+                    "login:60,register:20,admin-list:15,admin-create:5")), this::request);
+                double rps = doubleOption("rps", 50);
+                long warmup = longOption("warmup", 10);
+                if (warmup > 0) {
+                    log("Warming up for " + warmup + " s at " + rps + " rps");
+                    driver.run(rps, warmup);
+                }
+                long duration = longOption("duration", 60);
+                log("Measuring for " + duration + " s at " + rps + " rps");
+                long started = System.nanoTime();
+                Map<Operation, LoadDriver.Stats> stats = driver.run(rps, duration);
+                double elapsed = (System.nanoTime() - started) / 1e9;
+                report("steady", stats, elapsed, rps);
+
+                double spikeRps = doubleOption("spike-rps", 0);
+                if (spikeRps > 0) {
+                    LoadDriver spike = new LoadDriver(client, parseMix(options.getOrDefault("spike-mix",
+                        "book:90,waiting-room-status:10")), this::request);
+                    long spikeDuration = longOption("spike-duration", 20);
+                    log("Booking spike for " + spikeDuration + " s at " + spikeRps + " rps");
+                    started = System.nanoTime();
+                    Map<Operation, LoadDriver.Stats> spikeStats = spike.run(spikeRps, spikeDuration);
+                    report("spike", spikeStats, (System.nanoTime() - started) / 1e9, spikeRps);
+                }
+                writeReport();
+                log("SendGrid stub accepted " + sendgrid.acceptedCount() + " mails");
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    /**
+     * Seeds students and one admin directly into the stub and the users table, bypassing the API. With the local
+     * provider every account gets the same password hash.
+     */
+    private void seed(UserRepository users, StubSupabaseServer supabase, int students, String passwordHash) {
+        List<User> profiles = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            String email = "seed.student" + i + "@kluniversity.in";
+            User student = profile(supabase.addUser(email, PASSWORD, "Seed Student " + i), "STUDENT", passwordHash);
+            profiles.add(student);
+            studentEmails.add(email);
+            studentIds.add(student.getId());
+        }
+        profiles.add(profile(supabase.addUser(ADMIN_EMAIL, PASSWORD, "Load Test Admin"), "ADMIN", passwordHash));
+        users.saveAll(profiles);
+        log("Seeded " + students + " students and 1 admin");
+    }
+
+    /**
+     * Seeds offices without a daily limit, so the booking spike measures the booking path rather than the limit
+     * check, and signs a session for every student directly instead of logging each one in.
+     */
+    private void seedOffices(OfficeRepository offices, JwtUtil jwtUtil, int count) {
+        List<Office> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Office office = new Office();
+            office.setId("load-office-" + i);
+            office.setName("Load Test Office " + i);
+            office.setPrefix("L" + i);
+            office.setTokenLimit(0);
+            rows.add(office);
+            officeIds.add(office.getId());
+        }
+        offices.saveAll(rows);
+        for (int i = 0; i < studentIds.size(); i++) {
+            studentTokens.add(jwtUtil.generateToken(studentIds.get(i), studentEmails.get(i), 24 * 3600));
+        }
+        log("Seeded " + count + " offices");
+    }
+
+    /** Collects tickets for the status-poll workload; a few students join each office's waiting room. */
+    private void joinWaitingRooms(HttpClient client) throws IOException, InterruptedException {
+        for (int i = 0; i < Math.min(50, studentTokens.size()); i++) {
+            HttpResponse<String> response = client.send(post("/api/waiting-room/" + officeIds.get(i % officeIds.size()),
+                Map.of(), studentTokens.get(i)), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Joining the waiting room failed: " + response.body());
+            }
+            tickets.add((String) mapper.readValue(response.body(), Map.class).get("ticket"));
+        }
+    }
+
+    private static User profile(StubSupabaseServer.StubUser stubUser, String role, String passwordHash) {
+        User user = new User();
+        user.setId(stubUser.id);
+        user.setName(stubUser.name);
+        user.setEmail(stubUser.email);
+        user.setRole(role);
+        user.setEmailVerified(true);
+        user.setPasswordHash(passwordHash);
+        return user;
+    }
+
+    private String login(HttpClient client, String email) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(post("/api/auth/login", Map.of("email", email, "password", PASSWORD), null),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Admin login failed: " + response.body());
+        }
+        return (String) mapper.readValue(response.body(), Map.class).get("token");
+    }
+
+    private HttpRequest request(Operation op) {
+        long n = sequence.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (op) {
+            case LOGIN -> post("/api/auth/login", Map.of(
+                "email", studentEmails.get(ThreadLocalRandom.current().nextInt(studentEmails.size())),
+                "password", PASSWORD), null);
+            case REGISTER -> post("/api/auth/register", Map.of(
+                "name", "Load Student " + n,
+                "email", "load.student" + n + "." + System.nanoTime() + "@kluniversity.in",
+                "password", PASSWORD,
+                "confirmPassword", PASSWORD), null);
+            case ADMIN_LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/admin/users"))
+                .header("Authorization", "Bearer " + adminToken)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+            case ADMIN_CREATE -> post("/api/admin/users", Map.of(
+                "name", "Load Staff " + n,
+                "email", "load.staff" + n + "." + System.nanoTime() + "@kluniversity.in",
+                "password", PASSWORD,
+                "role", "STAFF",
+                "assignedOfficeIds", List.of("office-1")), adminToken);
+            case BOOK -> post("/api/tokens", Map.of(
+                "officeId", officeIds.get(random.nextInt(officeIds.size())),
+                "purpose", "Load test"), studentTokens.get(random.nextInt(studentTokens.size())));
+            case WAITING_ROOM_STATUS -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/waiting-room?ticket="
+                    + tickets.get(random.nextInt(tickets.size()))))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        };
+    }
+
+    private HttpRequest post(String path, Map<String, ?> body, String token) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            return builder.build();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void report(String phase, Map<Operation, LoadDriver.Stats> stats, double elapsedSeconds, double targetRps) throws IOException {
+        long totalCount = 0;
+        System.out.println();
+        System.out.println("== " + phase);
+        System.out.printf("%-20s %8s %7s %7s %8s %9s %9s %9s %9s %9s%n",
+            "operation", "count", "errors", "429s", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (Map.Entry<Operation, LoadDriver.Stats> entry : stats.entrySet()) {
+            Histogram h = entry.getValue().latencyMicros;
+            long count = h.getTotalCount();
+            totalCount += count;
+            // 429 is the waiting room deferring a booking; it is also counted in errors
+            AtomicLong deferred = entry.getValue().statusCounts.get(429);
+            System.out.printf("%-20s %8d %7d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                entry.getKey().key, count, entry.getValue().errors.get(), deferred == null ? 0 : deferred.get(), count / elapsedSeconds,
+                ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)), ms(h.getValueAtPercentile(99)),
+                ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()));
+            Map<String, Object> op = new LinkedHashMap<>();
+            op.put("count", count);
+            op.put("errors", entry.getValue().errors.get());
+            op.put("statusCounts", entry.getValue().statusCounts);
+            op.put("throughput", count / elapsedSeconds);
+            op.put("p50Ms", ms(h.getValueAtPercentile(50)));
+            op.put("p90Ms", ms(h.getValueAtPercentile(90)));
+            op.put("p99Ms", ms(h.getValueAtPercentile(99)));
+            op.put("p999Ms", ms(h.getValueAtPercentile(99.9)));
+            op.put("maxMs", ms(h.getMaxValue()));
+            json.put(entry.getKey().key, op);
+        }
+        System.out.printf("%ntarget %.1f rps, achieved %.1f rps over %.1f s%n", targetRps, totalCount / elapsedSeconds, elapsedSeconds);
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("targetRps", targetRps);
+        root.put("achievedRps", totalCount / elapsedSeconds);
+        root.put("durationSeconds", elapsedSeconds);
+        root.put("operations", json);
+        reportJson.put(phase, root);
+    }
+
+    private void writeReport() throws IOException {
+        String reportPath = options.get("report");
+        if (reportPath != null) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(Path.of(reportPath).toFile(), reportJson);
+            log("Report written to " + reportPath);
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromKey(kv[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Workload mix is empty");
+        }
+        return weights;
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+
+    private static void log(String message) {
+        System.out.println("[loadtest] " + message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.klsmartq.loadtest;
+
+import java.net.http.HttpRequest;
+
+/**
+ * One kind of request in the mixed workload.
+ */
+enum Operation {
+    LOGIN("login"),
+    REGISTER("register"),
+    ADMIN_LIST("admin-list"),
+    ADMIN_CREATE("admin-create"),
+    BOOK("book"),
+    WAITING_ROOM_STATUS("waiting-room-status");
+
+    final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    static Operation fromKey(String key) {
+        for (Operation op : values()) {
+            if (op.key.equals(key)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'");
+    }
+
+    interface RequestFactory {
+        HttpRequest next(Operation op);
+    }
+}
@@ -0,0 +1,278 @@
+package com.klsmartq.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Smoke test and startup comparison for packaged builds of the backend (the JVM fat jar and/or the native
+ * binary from {@code mvn -Pnative native:compile}).
+ * <p>
+ * Each build is started as a separate process against a fresh database, stub Supabase and stub SendGrid.
+ * The test waits for the first HTTP response, logs in a stub user and uses the returned JWT on an
+ * authenticated endpoint, then runs more logins and reads the process RSS from {@code /proc}. Any failed step
+ * fails the run with exit code 1.
+ * <p>
+ * Options ({@code --name=value}): {@code jvm} (path to the fat jar), {@code native} (path to the binary), at
+ * least one of them; {@code logins} (200), {@code startup-timeout} seconds (120), {@code db-url},
+ * {@code db-user}, {@code db-password}, {@code report} (JSON output path).
+ */
+public final class StartupComparison {
+
+    private static final String EMAIL = "smoke.student@kluniversity.in";
+    private static final String PASSWORD = "SmokeTest#2024";
+
+    private final Map<String, String> options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private StartupComparison(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        boolean passed = new StartupComparison(options).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static final class Result {
+        final String build;
+        long startupMs;
+        double firstLoginMs;
+        double loginP50Ms;
+        double loginP99Ms;
+        long rssKb;
+        long peakRssKb;
+        String failure;
+
+        Result(String build) {
+            this.build = build;
+        }
+    }
+
+    private boolean run() throws Exception {
+        Map<String, List<String>> builds = new LinkedHashMap<>();
+        if (options.containsKey("jvm")) {
+            builds.put("jvm", List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", options.get("jvm")));
+        }
+        if (options.containsKey("native")) {
+            builds.put("native", List.of(options.get("native")));
+        }
+        if (builds.isEmpty()) {
+            throw new IllegalArgumentException("Pass --jvm=<fat jar> and/or --native=<binary>");
+        }
+
+        EmbeddedPostgres embedded = null;
+        if (!options.containsKey("db-url")) {
+            embedded = EmbeddedPostgres.builder().start();
+            log("Embedded Postgres on port " + embedded.getPort());
+        }
+        List<Result> results = new ArrayList<>();
+        try (StubSupabaseServer supabase = new StubSupabaseServer(new StubBehavior(0, 0, 0));
+             StubSendGridServer sendgrid = new StubSendGridServer(new StubBehavior(0, 0, 0))) {
+            supabase.addUser(EMAIL, PASSWORD, "Smoke Student");
+            for (Map.Entry<String, List<String>> build : builds.entrySet()) {
+                String dbUrl = options.get("db-url");
+                if (embedded != null) {
+                    // Fresh database per build so each one runs the Flyway migrations from scratch
+                    try (Connection connection = embedded.getPostgresDatabase().getConnection();
+                         Statement statement = connection.createStatement()) {
+                        statement.execute("CREATE DATABASE smoke_" + build.getKey());
+                    }
+                    dbUrl = embedded.getJdbcUrl("postgres", "smoke_" + build.getKey());
+                }
+                List<String> command = new ArrayList<>(build.getValue());
+                command.addAll(appArgs(dbUrl, supabase, sendgrid));
+                results.add(measure(build.getKey(), command));
+            }
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+        report(results);
+        return results.stream().allMatch(r -> r.failure == null);
+    }
+
+    private List<String> appArgs(String dbUrl, StubSupabaseServer supabase, StubSendGridServer sendgrid) throws IOException {
+        return List.of(
+            "--server.port=" + freePort(),
+            "--spring.datasource.url=" + dbUrl,
+            "--spring.datasource.username=" + options.getOrDefault("db-user", "postgres"),
+            "--spring.datasource.password=" + options.getOrDefault("db-password", "postgres"),
+            "--supabase.url=" + supabase.baseUrl(),
+            "--sendgrid.api-key=stub-key",
+            "--sendgrid.host=" + sendgrid.host(),
+            "--sendgrid.plain-http=true",
+            "--queue.journal.dir=" + Files.createTempDirectory("kl-smartq-smoke"),
+            "--logging.level.root=WARN"
+        );
+    }
+
+    private Result measure(String build, List<String> command) throws Exception {
+        Result result = new Result(build);
+        String port = command.stream().filter(a -> a.startsWith("--server.port=")).findFirst().orElseThrow().substring(14);
+        String baseUrl = "http://127.0.0.1:" + port;
+        Path logFile = Files.createTempFile("kl-smartq-smoke-" + build, ".log");
+        log("Starting " + build + ": " + command.get(0) + " (output in " + logFile + ")");
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile.toFile()).start();
+        try {
+            long deadline = started + longOption("startup-timeout", 120) * 1_000_000_000L;
+            while (!answers(baseUrl)) {
+                if (!process.isAlive()) {
+                    result.failure = "exited with code " + process.exitValue() + " during startup";
+                    return result;
+                }
+                if (System.nanoTime() > deadline) {
+                    result.failure = "no HTTP response within the startup timeout";
+                    return result;
+                }
+                Thread.sleep(10);
+            }
+            result.startupMs = (System.nanoTime() - started) / 1_000_000;
+
+            long loginStart = System.nanoTime();
+            String token = login(baseUrl);
+            result.firstLoginMs = (System.nanoTime() - loginStart) / 1e6;
+            HttpResponse<String> history = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/tokens/history"))
+                .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (history.statusCode() != 200) {
+                result.failure = "authenticated request returned " + history.statusCode() + ": " + history.body();
+                return result;
+            }
+
+            Histogram latency = new Histogram(60_000_000L, 3);
+            int logins = (int) longOption("logins", 200);
+            for (int i = 0; i < logins; i++) {
+                long t = System.nanoTime();
+                login(baseUrl);
+                latency.recordValue((System.nanoTime() - t) / 1000);
+            }
+            result.loginP50Ms = latency.getValueAtPercentile(50) / 1000.0;
+            result.loginP99Ms = latency.getValueAtPercentile(99) / 1000.0;
+            readRss(process.pid(), result);
+            log(build + " passed: started in " + result.startupMs + " ms, first login " + String.format("%.1f", result.firstLoginMs) + " ms");
+        } catch (Exception ex) {
+            result.failure = ex.getMessage();
+        } finally {
+            process.destroy();
+            process.waitFor();
+            if (result.failure != null) {
+                log(build + " FAILED: " + result.failure + " (see " + logFile + ")");
+            }
+        }
+        return result;
+    }
+
+    private boolean answers(String baseUrl) {
+        try {
+            client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/health")).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (IOException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String login(String baseUrl) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofSeconds(30))
+            .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(Map.of("email", EMAIL, "password", PASSWORD))))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("login returned " + response.statusCode() + ": " + response.body());
+        }
+        Object token = mapper.readValue(response.body(), Map.class).get("token");
+        if (!(token instanceof String) || ((String) token).isEmpty()) {
+            throw new IllegalStateException("login response has no token: " + response.body());
+        }
+        return (String) token;
+    }
+
+    /** Current and peak resident set size from /proc; left at 0 where /proc is not available. */
+    private static void readRss(long pid, Result result) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    result.rssKb = Long.parseLong(line.replaceAll("\\D", ""));
+                } else if (line.startsWith("VmHWM:")) {
+                    result.peakRssKb = Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+    }
+
+    private void report(List<Result> results) throws IOException {
+        System.out.println();
+        System.out.printf("%-8s %11s %15s %13s %13s %9s %14s  %s%n",
+            "build", "startup ms", "first login ms", "login p50 ms", "login p99 ms", "RSS MB", "peak RSS MB", "result");
+        List<Map<String, Object>> json = new ArrayList<>();
+        for (Result r : results) {
+            System.out.printf("%-8s %11d %15.1f %13.1f %13.1f %9.1f %14.1f  %s%n",
+                r.build, r.startupMs, r.firstLoginMs, r.loginP50Ms, r.loginP99Ms, r.rssKb / 1024.0, r.peakRssKb / 1024.0,
+                r.failure == null ? "ok" : "FAILED: " + r.failure);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("build", r.build);
+            entry.put("startupMs", r.startupMs);
+            entry.put("firstLoginMs", r.firstLoginMs);
+            entry.put("loginP50Ms", r.loginP50Ms);
+            entry.put("loginP99Ms", r.loginP99Ms);
+            entry.put("rssKb", r.rssKb);
+            entry.put("peakRssKb", r.peakRssKb);
+            entry.put("failure", r.failure);
+            json.add(entry);
+        }
+        String reportPath = options.get("report");
+        if (reportPath != null) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(Path.of(reportPath).toFile(), json);
+            log("Report written to " + reportPath);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return options.containsKey(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    private static void log(String message) {
+        System.out.println("[smoke] " + message);
+    }
+}
@@ -0,0 +1,38 @@
+package com.klsmartq.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failure injection shared by the stub servers.
+ */
+final class StubBehavior {
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+
+    StubBehavior(long latencyMs, long jitterMs, double errorRate) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+    }
+
+    /** Sleeps for the configured latency and returns true when this call should fail. */
+    boolean delayAndMaybeFail() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return latencyMs + "ms +" + jitterMs + "ms jitter, " + (errorRate * 100) + "% errors";
+    }
+}
@@ -0,0 +1,54 @@
+package com.klsmartq.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accepts SendGrid {@code POST /v3/mail/send} calls and discards the mail.
+ */
+final class StubSendGridServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong accepted = new AtomicLong();
+
+    StubSendGridServer(StubBehavior behavior) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/v3/mail/send", exchange -> {
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                if (behavior.delayAndMaybeFail()) {
+                    byte[] body = "{\"errors\":[{\"message\":\"injected failure\"}]}".getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(503, body.length);
+                    exchange.getResponseBody().write(body);
+                    return;
+                }
+                accepted.incrementAndGet();
+                exchange.sendResponseHeaders(202, -1);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Host and port in the form expected by {@code sendgrid.host}. */
+    String host() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long acceptedCount() {
+        return accepted.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,175 @@
+package com.klsmartq.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal stand-in for the Supabase Auth endpoints used by {@code SupabaseAuthService}: signup, password grant,
+ * OTP verify and admin user creation. Users live in memory.
+ */
+final class StubSupabaseServer implements AutoCloseable {
+
+    static final class StubUser {
+        final String id;
+        final String email;
+        final String password;
+        final String name;
+
+        StubUser(String id, String email, String password, String name) {
+            this.id = id;
+            this.email = email;
+            this.password = password;
+            this.name = name;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, StubUser> usersByEmail = new ConcurrentHashMap<>();
+    private final StubBehavior behavior;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    StubSupabaseServer(StubBehavior behavior) throws IOException {
+        this.behavior = behavior;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/auth/v1/signup", ex -> handle(ex, this::signup));
+        server.createContext("/auth/v1/token", ex -> handle(ex, this::token));
+        server.createContext("/auth/v1/verify", ex -> handle(ex, this::verify));
+        server.createContext("/auth/v1/admin/users", ex -> handle(ex, this::adminCreate));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    StubUser addUser(String email, String password, String name) {
+        StubUser user = new StubUser(UUID.randomUUID().toString(), email.toLowerCase(), password, name);
+        usersByEmail.put(user.email, user);
+        return user;
+    }
+
+    private interface Handler {
+        Object handle(Map<String, Object> body, HttpExchange exchange) throws StubError;
+    }
+
+    private static final class StubError extends Exception {
+        final int status;
+
+        StubError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (behavior.delayAndMaybeFail()) {
+                respond(exchange, 503, Map.of("msg", "injected failure"));
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = mapper.readValue(exchange.getRequestBody(), Map.class);
+            try {
+                respond(exchange, 200, handler.handle(body, exchange));
+            } catch (StubError err) {
+                respond(exchange, err.status, Map.of("msg", err.getMessage(), "error", err.getMessage()));
+            }
+        }
+    }
+
+    private Object signup(Map<String, Object> body, HttpExchange exchange) throws StubError {
+        String email = ((String) body.get("email")).toLowerCase();
+        String name = metadataName(body);
+        StubUser created = new StubUser(UUID.randomUUID().toString(), email, (String) body.get("password"), name);
+        if (usersByEmail.putIfAbsent(email, created) != null) {
+            throw new StubError(422, "User already registered");
+        }
+        return Map.of("user", userJson(created));
+    }
+
+    private Object token(Map<String, Object> body, HttpExchange exchange) throws StubError {
+        StubUser user = usersByEmail.get(((String) body.get("email")).toLowerCase());
+        if (user == null || !user.password.equals(body.get("password"))) {
+            throw new StubError(400, "invalid_grant");
+        }
+        return session(user);
+    }
+
+    private Object verify(Map<String, Object> body, HttpExchange exchange) throws StubError {
+        StubUser user = usersByEmail.get(((String) body.get("email")).toLowerCase());
+        if (user == null) {
+            throw new StubError(403, "Token has expired or is invalid");
+        }
+        return session(user);
+    }
+
+    private Object adminCreate(Map<String, Object> body, HttpExchange exchange) throws StubError {
+        String email = ((String) body.get("email")).toLowerCase();
+        StubUser created = new StubUser(UUID.randomUUID().toString(), email, (String) body.get("password"), metadataName(body));
+        if (usersByEmail.putIfAbsent(email, created) != null) {
+            throw new StubError(422, "A user with this email address has already been registered");
+        }
+        return userJson(created);
+    }
+
+    private Map<String, Object> session(StubUser user) {
+        Map<String, Object> session = new HashMap<>();
+        session.put("access_token", "stub-access-" + user.id);
+        session.put("token_type", "bearer");
+        session.put("expires_in", 3600);
+        session.put("refresh_token", "stub-refresh-" + user.id);
+        session.put("user", userJson(user));
+        return session;
+    }
+
+    private static Map<String, Object> userJson(StubUser user) {
+        Map<String, Object> json = new HashMap<>();
+        json.put("id", user.id);
+        json.put("aud", "authenticated");
+        json.put("role", "authenticated");
+        json.put("email", user.email);
+        json.put("email_confirmed_at", Instant.now().toString());
+        json.put("user_metadata", Map.of("name", user.name));
+        json.put("app_metadata", Map.of("provider", "email", "providers", new String[]{"email"}));
+        json.put("created_at", Instant.now().toString());
+        return json;
+    }
+
+    private static String metadataName(Map<String, Object> body) {
+        Object metadata = body.get("user_metadata");
+        if (metadata instanceof Map<?, ?> map && map.get("name") instanceof String name) {
+            return name;
+        }
+        return "Student";
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+-- Migration: covering index for GET /api/tokens/history (PostgreSQL 11+)
+-- Keyset pagination on (student_id, created_at DESC, id DESC); the INCLUDE columns let
+-- every history page be answered by an index-only scan.
+
+CREATE INDEX IF NOT EXISTS idx_tokens_student_history
+  ON tokens (student_id, created_at DESC, id DESC)
+  INCLUDE (status, office_id, token_number, purpose);
@@ -0,0 +1,42 @@
+#!/bin/bash
+# Runs several instances in queue cluster mode on one machine, to try out office sharding and handoff.
+#
+# Usage: DB_URL=jdbc:postgresql://localhost:5432/postgres DB_USER=postgres DB_PASSWORD=postgres scripts/cluster-local.sh [instances]
+#
+# Instance i listens on port 8083+i-1 (CLUSTER_BASE_PORT) with its own journal and log under target/cluster.
+# Any instance accepts any request. Stopping one with `kill <pid>` hands its offices to the others; Ctrl-C stops
+# them all. `curl -H "Cluster-Key: $QUEUE_CLUSTER_KEY" localhost:8083/api/cluster` shows an instance's view.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+COUNT="${1:-3}"
+BASE_PORT="${CLUSTER_BASE_PORT:-8083}"
+KEY="${QUEUE_CLUSTER_KEY:-local-cluster-key}"
+JAR=target/kl-smartq-backend-java-1.0.0.jar
+WORK="${CLUSTER_DIR:-target/cluster}"
+: "${DB_URL:?set DB_URL (jdbc:postgresql://...)}"
+: "${DB_USER:?set DB_USER}"
+: "${DB_PASSWORD?set DB_PASSWORD (may be empty)}"
+
+[ -f "$JAR" ] || mvn -B -q clean package -DskipTests
+mkdir -p "$WORK"
+
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null || true; wait' EXIT
+for i in $(seq 1 "$COUNT"); do
+  port=$((BASE_PORT + i - 1))
+  java -jar "$JAR" --server.port="$port" --spring.datasource.url="$DB_URL" \
+    --spring.datasource.username="$DB_USER" --spring.datasource.password="$DB_PASSWORD" \
+    --queue.journal.dir="$WORK/$i" --queue.cluster.enabled=true --queue.cluster.key="$KEY" \
+    > "$WORK/$i.log" 2>&1 &
+  PIDS+=("$!")
+  echo "instance $i: http://127.0.0.1:$port (pid $!, log $WORK/$i.log)"
+  if [ "$i" = 1 ]; then
+    # Flyway migrations must not race on a fresh database: let the first instance finish starting
+    until grep -q "Started KlSmartqApplication" "$WORK/1.log"; do
+      kill -0 "${PIDS[0]}" 2>/dev/null || { echo "instance 1 failed, see $WORK/1.log" >&2; exit 1; }
+      sleep 1
+    done
+  fi
+done
+wait
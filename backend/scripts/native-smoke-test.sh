@@ -0,0 +1,26 @@
+#!/bin/bash
+# Builds the JVM jar and the native binary, then runs the StartupComparison smoke test from the loadtest
+# module against both: boot, login against the stub Supabase, one authenticated call, more logins.
+# Prints startup time, login latency and RSS side by side; exits non-zero if either build fails a step.
+#
+# Needs GraalVM for JDK 17 (native-image on PATH or GRAALVM_HOME set). Embedded Postgres refuses to run as
+# root; pass DB_URL/DB_USER/DB_PASSWORD to use an existing database instead.
+#
+# Usage: scripts/native-smoke-test.sh [--skip-build]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+if [ "${1:-}" != "--skip-build" ]; then
+  mvn -B -q clean package -DskipTests
+  cp target/kl-smartq-backend-java-1.0.0.jar target/jvm-app.jar
+  mvn -B -q -Pnative -DskipTests native:compile
+  (cd loadtest && mvn -B -q package)
+fi
+
+ARGS=(--jvm=target/jvm-app.jar --native=target/kl-smartq-backend --report=target/native-smoke-report.json)
+if [ -n "${DB_URL:-}" ]; then
+  ARGS+=(--db-url="$DB_URL" --db-user="${DB_USER:-postgres}" --db-password="${DB_PASSWORD:-postgres}")
+fi
+
+java -cp loadtest/target/loadtest.jar com.klsmartq.loadtest.StartupComparison "${ARGS[@]}"
@@ -0,0 +1,83 @@
+#!/bin/bash
+# Startup-time benchmark: compares the old boot path (fat jar, Hibernate ddl-auto: update) with the
+# current one (Flyway + ddl-auto: none, unpacked classpath with an AppCDS archive).
+#
+# Usage: DB_URL=jdbc:postgresql://host:5432/db DB_USER=... DB_PASSWORD=... scripts/startup-benchmark.sh [runs]
+#
+# Each run starts the app, waits until the HTTP port answers and stops it again. Reported times are
+# wall-clock ms until the first HTTP response, plus Spring's own "Started ... in" figure.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+ROOT="$PWD"
+RUNS="${1:-5}"
+PORT="${BENCH_PORT:-18083}"
+JAR=target/kl-smartq-backend-java-1.0.0.jar
+WORK="$ROOT/${BENCH_DIR:-target/startup-benchmark}"
+: "${DB_URL:?set DB_URL (jdbc:postgresql://...)}"
+: "${DB_USER:?set DB_USER}"
+: "${DB_PASSWORD:?set DB_PASSWORD}"
+
+[ -f "$JAR" ] || mvn -B -q clean package -DskipTests
+
+# Same layout the Dockerfile produces: application.jar + lib/ + app.jsa
+rm -rf "$WORK" && mkdir -p "$WORK/app"
+(cd "$WORK/app" \
+  && jar xf "$ROOT/$JAR" \
+  && jar cf application.jar -C BOOT-INF/classes . \
+  && mv BOOT-INF/lib lib \
+  && rm -rf BOOT-INF META-INF org)
+
+COMMON=(--server.port="$PORT" --spring.datasource.url="$DB_URL"
+        --spring.datasource.username="$DB_USER" --spring.datasource.password="$DB_PASSWORD"
+        --logging.level.root=INFO)
+
+echo "Training AppCDS archive..."
+(cd "$WORK/app" && java -XX:ArchiveClassesAtExit=app.jsa -Xlog:cds=error -Dspring.context.exit=onRefresh \
+  -cp "application.jar:lib/*" com.klsmartq.KlSmartqApplication "${COMMON[@]}" \
+  --queue.journal.dir="$WORK/train-queue" > "$WORK/train.log" 2>&1)
+
+# run_once <label> <dir> <java args...>: prints "<wall ms> <spring s>"
+run_once() {
+  local dir="$1"; shift
+  local log="$WORK/run.log"
+  local start end
+  start=$(date +%s%N)
+  (cd "$dir" && exec java "$@") > "$log" 2>&1 &
+  local pid=$!
+  until curl -s -o /dev/null "http://127.0.0.1:$PORT/api/tokens/history"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Application exited during startup, see $log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  end=$(date +%s%N)
+  kill "$pid" && wait "$pid" 2>/dev/null || true
+  local spring
+  spring=$(grep -o 'Started KlSmartqApplication in [0-9.]*' "$log" | awk '{print $4}')
+  echo "$(( (end - start) / 1000000 )) ${spring:-?}"
+}
+
+bench() {
+  local label="$1"; shift
+  local total=0 line wall
+  echo "== $label"
+  for i in $(seq 1 "$RUNS"); do
+    rm -rf "$WORK/queue"
+    line=$(run_once "$@")
+    wall=${line%% *}
+    total=$((total + wall))
+    echo "  run $i: ${wall} ms to first response (Spring: ${line#* } s)"
+  done
+  echo "  mean: $((total / RUNS)) ms"
+}
+
+bench "before: fat jar, ddl-auto update" . \
+  -jar "$JAR" "${COMMON[@]}" --queue.journal.dir="$WORK/queue" \
+  --spring.flyway.enabled=false --spring.jpa.hibernate.ddl-auto=update \
+  --spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=true
+
+bench "after: Flyway + ddl-auto none, AppCDS" "$WORK/app" \
+  -XX:SharedArchiveFile=app.jsa -Xshare:auto -cp "application.jar:lib/*" com.klsmartq.KlSmartqApplication \
+  "${COMMON[@]}" --queue.journal.dir="$WORK/queue"
@@ -0,0 +1,7 @@
+package com.klsmartq.audit;
+
+import java.time.Instant;
+
+/** One recorded action: who did what to which object, with optional free-form details. */
+public record AuditEvent(Instant occurredAt, String actorId, String action, String targetType, String targetId,
+                         String details) {}
@@ -0,0 +1,83 @@
+package com.klsmartq.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and one consumer. Each slot carries a sequence number:
+ * a producer claims a position with one CAS on the tail and publishes the slot by advancing its sequence, and
+ * the consumer frees it by moving the sequence one lap ahead. {@link #offer} never blocks; it fails when the
+ * buffer is full.
+ */
+public final class AuditRingBuffer {
+    private final AuditEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only the consumer writes head; volatile so size() can be read from other threads
+    private volatile long head;
+
+    /** Capacity is rounded up to a power of two. */
+    public AuditRingBuffer(int capacity) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid audit buffer size " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AuditEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Adds the event, or returns false when the buffer is full. Safe from any thread. */
+    public boolean offer(AuditEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = event;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /** Moves up to {@code max} events into {@code target}; consumer thread only. Returns the number moved. */
+    public int drainTo(List<AuditEvent> target, int max) {
+        long position = head;
+        int moved = 0;
+        while (moved < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(slots[index]);
+            slots[index] = null;
+            sequences.set(index, position + slots.length);
+            position++;
+            moved++;
+        }
+        head = position;
+        return moved;
+    }
+
+    /** Approximate number of queued events. */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,300 @@
+package com.klsmartq.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klsmartq.queue.HashRing;
+import com.klsmartq.repository.UserRepository;
+import com.klsmartq.service.CheckInCodeService;
+import com.klsmartq.service.JwtUtil;
+import com.klsmartq.service.QueueCluster;
+import com.klsmartq.service.QueueService;
+import com.klsmartq.util.JsonUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cluster mode: sends every office-scoped request to the instance that owns the office, ahead of authentication
+ * so the owner does all the work. The office comes from the path ({@code /api/offices/{id}},
+ * {@code /api/waiting-room/{id}}), the body ({@code POST /api/tokens}, {@code POST /api/check-in}) or the token
+ * id, whose first digits carry the office's ring position. Other requests pass through.
+ * <p>
+ * Requests are proxied over HTTP with their headers and body, and the owner's response (including event
+ * streams) is copied back. While an office is moving, or when the owner cannot be reached, the answer is 503
+ * with {@code Retry-After}. A forwarded request is never forwarded again: if the receiver disagrees about the
+ * owner, the views are converging and it also answers 503.
+ */
+@Component
+@ConditionalOnProperty(name = "queue.cluster.enabled", havingValue = "true")
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    // Connection-level headers, and those java.net.http sets itself
+    private static final Set<String> NOT_FORWARDED = Set.of("connection", "content-length", "date", "expect", "host",
+        "http2-settings", "keep-alive", "origin", "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade");
+
+    /** Office, or ring position from a token id, that decides where a request is served. */
+    private record Key(String officeId, Integer hash) {}
+
+    private final QueueCluster cluster;
+    private final QueueService queueService;
+    private final CheckInCodeService checkInCodeService;
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    @Value("${queue.cluster.forward-timeout-ms:30000}")
+    private long forwardTimeoutMs;
+
+    public ClusterRoutingFilter(QueueCluster cluster, QueueService queueService, CheckInCodeService checkInCodeService,
+                                JwtUtil jwtUtil, UserRepository userRepository, ObjectMapper objectMapper) {
+        this.cluster = cluster;
+        this.queueService = queueService;
+        this.checkInCodeService = checkInCodeService;
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return "OPTIONS".equals(request.getMethod())
+            || !(path.startsWith("/api/offices/") || path.startsWith("/api/tokens") || path.startsWith("/api/waiting-room/")
+                || path.equals("/api/check-in"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        HttpServletRequest current = request;
+        byte[] body = null;
+        if ("POST".equals(request.getMethod()) && (request.getRequestURI().equals("/api/tokens")
+                || request.getRequestURI().equals("/api/check-in"))) {
+            body = readBody(request, response);
+            if (body == null) {
+                return;
+            }
+            current = new CachedBodyRequest(request, body);
+        }
+        List<Key> keys;
+        try {
+            keys = keys(current, body);
+        } catch (RuntimeException ex) {
+            // Unreadable input; the local handler reports it
+            keys = List.of();
+        }
+        if (keys.isEmpty()) {
+            filterChain.doFilter(current, response);
+            return;
+        }
+
+        QueueCluster.Member owner = null;
+        boolean ready = true;
+        for (Key key : keys) {
+            QueueCluster.Member keyOwner = key.officeId != null ? cluster.ownerOf(key.officeId) : cluster.ownerOfHash(key.hash);
+            if (keyOwner == null) {
+                unavailable(response, "Queue cluster is not ready");
+                return;
+            }
+            if (owner != null && !owner.equals(keyOwner)) {
+                writeError(response, 409, "These offices are served by different instances; call them one at a time");
+                return;
+            }
+            owner = keyOwner;
+            ready &= key.officeId != null ? cluster.isReady(key.officeId) : cluster.isReadyHash(key.hash);
+        }
+        if (cluster.isSelf(owner)) {
+            if (ready) {
+                filterChain.doFilter(current, response);
+            } else {
+                unavailable(response, "Office queue is moving to this instance");
+            }
+        } else if (request.getHeader(QueueCluster.FORWARDED_HEADER) != null) {
+            unavailable(response, "Office queue is moving between instances");
+        } else {
+            if (body == null) {
+                body = readBody(request, response);
+                if (body == null) {
+                    return;
+                }
+            }
+            forward(request, body, response, owner);
+        }
+    }
+
+    /**
+     * Reads at most {@link #MAX_BODY_BYTES}; a larger body is answered with 413 and null is returned. This runs
+     * before authentication, so nothing more than that is ever held for a caller.
+     */
+    private byte[] readBody(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, 413, "Request body too large");
+            return null;
+        }
+        return body;
+    }
+
+    private List<Key> keys(HttpServletRequest request, byte[] body) {
+        String[] path = request.getRequestURI().split("/");
+        // path[0] is empty: /api/<resource>/<id>/...
+        String resource = path.length > 2 ? path[2] : "";
+        String id = path.length > 3 ? path[3] : null;
+        switch (resource) {
+            case "offices" -> {
+                // Summaries are read from Postgres by whichever instance gets them
+                if ("live".equals(id) || (path.length > 4 && "live".equals(path[4]))) {
+                    return List.of();
+                }
+                return "call-next".equals(id) ? officeKeys(request) : officeKey(id);
+            }
+            case "waiting-room" -> {
+                return officeKey(id);
+            }
+            case "tokens" -> {
+                if (id == null) {
+                    return officeKey(textField(body, "officeId"));
+                }
+                return "history".equals(id) ? List.of() : tokenKeys(id);
+            }
+            case "check-in" -> {
+                String officeId = textField(body, "officeId");
+                if (officeId != null) {
+                    return officeKey(officeId);
+                }
+                String code = textField(body, "code");
+                return code == null ? List.of() : tokenKeys(checkInCodeService.verify(code.trim()));
+            }
+            default -> {
+                return List.of();
+            }
+        }
+    }
+
+    /** Offices of a multi-office call-next: the {@code officeIds} parameter, or else the caller's assignment. */
+    private List<Key> officeKeys(HttpServletRequest request) {
+        String[] officeIds = request.getParameterValues("officeIds");
+        if (officeIds != null) {
+            return Arrays.stream(officeIds).map(officeId -> new Key(officeId, null)).toList();
+        }
+        String auth = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (auth == null || !auth.startsWith("Bearer ")) {
+            return List.of();
+        }
+        String userId = jwtUtil.getUserIdFromToken(auth.substring(7));
+        List<String> assigned = userRepository.findById(userId)
+            .map(user -> JsonUtils.readStringList(user.getAssignedOfficeIds()))
+            .orElse(Collections.emptyList());
+        return new HashSet<>(assigned).stream().map(officeId -> new Key(officeId, null)).toList();
+    }
+
+    private static List<Key> officeKey(String officeId) {
+        return officeId == null ? List.of() : List.of(new Key(officeId, null));
+    }
+
+    /** Token ids minted before cluster routing carry no ring position; their office is looked up instead. */
+    private List<Key> tokenKeys(String tokenId) {
+        Integer hash = HashRing.officeHash(tokenId);
+        if (hash != null) {
+            return List.of(new Key(null, hash));
+        }
+        return officeKey(queueService.officeOf(tokenId));
+    }
+
+    private String textField(byte[] body, String field) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode value = objectMapper.readTree(body).path(field);
+            return value.isTextual() && !value.asText().isBlank() ? value.asText() : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void forward(HttpServletRequest request, byte[] body, HttpServletResponse response, QueueCluster.Member owner) throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(owner.url() + request.getRequestURI()
+            + (query == null ? "" : "?" + query)));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!NOT_FORWARDED.contains(name.toLowerCase(Locale.ROOT))) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    builder.header(name, value);
+                }
+            }
+        }
+        builder.header(QueueCluster.FORWARDED_HEADER, cluster.self().id());
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean streaming = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+        if (!streaming) {
+            builder.timeout(Duration.ofMillis(forwardTimeoutMs));
+        }
+        builder.method(request.getMethod(), body.length == 0
+            ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+
+        HttpResponse<InputStream> forwarded;
+        try {
+            forwarded = http.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException ex) {
+            logger.warn("Could not forward " + request.getRequestURI() + " to " + owner.url() + ": " + ex.getMessage());
+            unavailable(response, "Office queue owner is not reachable");
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            unavailable(response, "Office queue owner is not reachable");
+            return;
+        }
+        response.setStatus(forwarded.statusCode());
+        forwarded.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !NOT_FORWARDED.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = forwarded.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (streaming) {
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    private void unavailable(HttpServletResponse response, String message) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        writeError(response, 503, message);
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), objectMapper.createObjectNode().put("error", message));
+    }
+}
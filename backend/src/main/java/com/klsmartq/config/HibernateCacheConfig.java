@@ -0,0 +1,90 @@
+package com.klsmartq.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache, held per instance in Caffeine through JCache. Only the regions listed here
+ * exist (a missing one fails startup), each bounded by {@code cache.<region>.max-entries} and expired
+ * {@code cache.<region>.ttl-seconds} after it was written, which also bounds how long a change made by another
+ * instance or directly in the database stays invisible.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String USERS = "users";
+    public static final String OFFICES = "offices";
+    /**
+     * Results of cacheable queries (ids of the matching rows). All of them share Hibernate's default region:
+     * statistics of named query regions fail in this Hibernate version.
+     */
+    public static final String QUERY_RESULTS = "default-query-results-region";
+    /** Last change per table, checked before a cached query result is used. Must not expire or evict. */
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    public static final List<String> DATA_REGIONS = List.of(USERS, OFFICES);
+    public static final List<String> QUERY_REGIONS = List.of(QUERY_RESULTS);
+
+    @Value("${cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.statistics:false}")
+    private boolean statistics;
+
+    /**
+     * A cache manager of this application context alone. The provider's default one is shared by the whole JVM,
+     * where a second context (as in the startup comparison harness) would find the regions already created.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment env) {
+        CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("klsmartq:hibernate-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+        manager.createCache(USERS, region(env, USERS, 60, 10_000));
+        manager.createCache(OFFICES, region(env, OFFICES, 600, 1_000));
+        manager.createCache(QUERY_RESULTS, region(env, "query-results", 60, 10_000));
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setMaximumSize(OptionalLong.empty());
+        manager.createCache(UPDATE_TIMESTAMPS, timestamps);
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", enabled);
+            properties.put("hibernate.cache.use_query_cache", enabled);
+            properties.put("hibernate.generate_statistics", statistics);
+            if (enabled) {
+                properties.put("hibernate.cache.region.factory_class", "jcache");
+                properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+                properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            }
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(Environment env, String name, long ttlSeconds, long maxEntries) {
+        long ttl = env.getProperty("cache." + name + ".ttl-seconds", Long.class, ttlSeconds);
+        long max = env.getProperty("cache." + name + ".max-entries", Long.class, maxEntries);
+        if (ttl <= 0 || max <= 0) {
+            throw new IllegalArgumentException("cache." + name + " needs a positive ttl-seconds and max-entries");
+        }
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        config.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttl)));
+        config.setMaximumSize(OptionalLong.of(max));
+        return config;
+    }
+}
@@ -0,0 +1,172 @@
+package com.klsmartq.config;
+
+import com.klsmartq.entity.User;
+import com.klsmartq.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Honours the {@code Idempotency-Key} header on selected POST endpoints. The first response for a key is stored
+ * and replayed for retries, so a retried registration or user creation does not hash the password and call
+ * Supabase again. 5xx and 429 (waiting room) responses are not stored so the client can retry.
+ * <p>
+ * Keys are scoped by caller and path, and bound to a SHA-256 fingerprint of the method, path and body: reusing
+ * a key for a different request is answered with 422. Unauthenticated callers cannot be told apart, so their
+ * keys are also scoped by the fingerprint, and only an identical request gets the stored response. A replay
+ * carries the stored status, body and the headers the endpoint set (such as {@code Location} or
+ * {@code Set-Cookie}), plus {@code Idempotent-Replayed: true}.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // Written by the container or by this filter on every response, so never taken from the stored one
+    private static final Set<String> NOT_REPLAYED = caseInsensitive(List.of(HttpHeaders.CONTENT_TYPE,
+        HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE, HttpHeaders.CONNECTION));
+
+    private final IdempotencyStore store;
+    private final Set<String> paths;
+
+    public IdempotencyFilter(IdempotencyStore store,
+                             @Value("${idempotency.paths:/api/auth/register,/api/admin/users,/api/tokens}") String paths) {
+        this.store = store;
+        this.paths = Arrays.stream(paths.split(",")).map(String::trim).collect(Collectors.toSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || request.getHeader(HEADER) == null
+            || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, 400, "Invalid Idempotency-Key");
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, 413, "Request body too large for an Idempotency-Key");
+            return;
+        }
+        String fingerprint = fingerprint(request, body);
+        String caller = caller();
+        String scopedKey = caller != null
+            ? caller + "|" + request.getRequestURI() + "|" + key
+            : "anonymous|" + request.getRequestURI() + "|" + key + "|" + fingerprint;
+
+        IdempotencyStore.Claim claim;
+        try {
+            claim = store.claim(scopedKey, fingerprint);
+        } catch (IllegalArgumentException ex) {
+            writeError(response, 422, ex.getMessage());
+            return;
+        } catch (IllegalStateException ex) {
+            writeError(response, 409, ex.getMessage());
+            return;
+        }
+        if (!claim.isOwner()) {
+            replay(claim.getReplay(), response);
+            return;
+        }
+
+        Set<String> before = caseInsensitive(response.getHeaderNames());
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        IdempotencyStore.StoredResponse result = null;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), wrapper);
+            if (wrapper.getStatus() < 500 && wrapper.getStatus() != 429) {
+                result = new IdempotencyStore.StoredResponse(wrapper.getStatus(), wrapper.getContentType(),
+                    headersSince(before, wrapper), wrapper.getContentAsByteArray());
+            }
+        } finally {
+            store.complete(scopedKey, result);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        stored.getHeaders().forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            values.stream().skip(1).forEach(value -> response.addHeader(name, value));
+        });
+        response.setHeader("Idempotent-Replayed", "true");
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    /** Headers added while the request ran, i.e. by the endpoint rather than by filters ahead of this one. */
+    private static Map<String, List<String>> headersSince(Set<String> before, HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!before.contains(name) && !NOT_REPLAYED.contains(name)) {
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String target = request.getMethod() + " " + request.getRequestURI() + "\n";
+            digest.update(target.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /** Id of the authenticated caller, or null. */
+    private String caller() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    private static Set<String> caseInsensitive(Iterable<String> names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.forEach(set::add);
+        return set;
+    }
+
+    private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.getOutputStream().write(("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
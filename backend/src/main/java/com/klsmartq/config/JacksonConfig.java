@@ -0,0 +1,32 @@
+package com.klsmartq.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.klsmartq.util.JsonUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+
+/**
+ * Everything JSON goes through the single Spring Boot ObjectMapper (MVC, Supabase client, JsonUtils).
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Blackbird replaces reflective getter/setter/constructor calls with generated lambdas. Picked up by Boot's
+     * Jackson auto-configuration as a Module bean. Skipped in a native image, which cannot define classes at runtime.
+     */
+    @Bean
+    public Module blackbirdModule() {
+        return NativeDetector.inNativeImage() ? new SimpleModule() : new BlackbirdModule();
+    }
+
+    @Bean
+    public SmartInitializingSingleton jsonUtilsMapper(ObjectMapper objectMapper) {
+        return () -> JsonUtils.useMapper(objectMapper);
+    }
+}
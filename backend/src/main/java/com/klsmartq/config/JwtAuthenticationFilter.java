@@ -2,7 +2,9 @@ package com.klsmartq.config;
 
 import com.klsmartq.entity.User;
 import com.klsmartq.repository.UserRepository;
+import com.klsmartq.service.AccessTokenRevocations;
 import com.klsmartq.service.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,10 +26,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final AccessTokenRevocations revocations;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserRepository userRepository, AccessTokenRevocations revocations) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
+        this.revocations = revocations;
+    }
+
+    /**
+     * Waiting-room status polls (signed ticket) and kiosk check-ins (kiosk key) carry their own credentials and
+     * must not cost a user lookup.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        return ("GET".equals(method) && "/api/waiting-room".equals(path))
+            || ("POST".equals(method) && "/api/check-in".equals(path));
     }
 
     @Override
@@ -36,9 +52,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (auth != null && auth.startsWith("Bearer ")) {
             String token = auth.substring(7);
             try {
-                if (jwtUtil.validateToken(token)) {
-                    String userId = jwtUtil.getUserIdFromToken(token);
-                    Optional<User> u = userRepository.findById(userId);
+                Claims claims = jwtUtil.parseClaims(token);
+                if (!revocations.isRevoked(claims.getId())) {
+                    Optional<User> u = userRepository.findById(claims.getSubject());
                     if (u.isPresent()) {
                         User user = u.get();
                         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user, null, java.util.Collections.emptyList());
@@ -0,0 +1,91 @@
+package com.klsmartq.config;
+
+import com.klsmartq.dto.AdminCreateUserRequest;
+import com.klsmartq.dto.AdminUpdateUserRequest;
+import com.klsmartq.dto.AuditEntry;
+import com.klsmartq.dto.AuthResponse;
+import com.klsmartq.dto.BookTokenRequest;
+import com.klsmartq.dto.LeaderboardEntry;
+import com.klsmartq.dto.LoginRequest;
+import com.klsmartq.dto.OfficeLiveStatsDTO;
+import com.klsmartq.dto.RegisterRequest;
+import com.klsmartq.dto.SupabaseSession;
+import com.klsmartq.dto.SupabaseUser;
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.dto.TokenHistoryItem;
+import com.klsmartq.dto.TokenHistoryPage;
+import com.klsmartq.dto.UserDTO;
+import com.klsmartq.dto.WaitingRoomStatus;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Content;
+import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Reflection and resource hints for the native image (mvn -Pnative). Spring AOT covers beans, entities and
+ * typed controller signatures; this adds what it cannot see: DTOs behind {@code ResponseEntity<?>}, the
+ * Supabase response records, raw {@code Map}/{@code List} binding, jjwt's by-name loading and OkHttp's public
+ * suffix list. Ignored on the JVM.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.Registrar.class)
+public class NativeHints {
+
+    private static final List<String> JJWT_TYPES = List.of(
+        "io.jsonwebtoken.impl.DefaultJwtBuilder",
+        "io.jsonwebtoken.impl.DefaultJwtParser",
+        "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+        "io.jsonwebtoken.impl.DefaultClaims",
+        "io.jsonwebtoken.impl.DefaultHeader",
+        "io.jsonwebtoken.impl.DefaultJwsHeader",
+        "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+        "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+        "io.jsonwebtoken.jackson.io.JacksonSerializer",
+        "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+            bindings.registerReflectionHints(hints.reflection(),
+                AdminCreateUserRequest.class, AdminUpdateUserRequest.class, AuditEntry.class, AuthResponse.class,
+                BookTokenRequest.class, LeaderboardEntry.class, LoginRequest.class, OfficeLiveStatsDTO.class,
+                RegisterRequest.class, TokenDTO.class, TokenHistoryItem.class, TokenHistoryPage.class, UserDTO.class,
+                WaitingRoomStatus.class, SupabaseSession.class, SupabaseUser.class);
+
+            // JsonUtils and jjwt bind to raw maps and lists
+            for (Class<?> type : List.of(HashMap.class, LinkedHashMap.class, ArrayList.class)) {
+                hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+
+            // SendGrid serializes the request body from these with its own ObjectMapper
+            for (Class<?> type : List.of(Mail.class, Email.class, Content.class, Personalization.class)) {
+                hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+            }
+
+            // jjwt-api instantiates its implementation by class name and finds codecs through ServiceLoader
+            for (String type : JJWT_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+            hints.resources().registerPattern("okhttp3/internal/publicsuffix/publicsuffixes.gz");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.klsmartq.config;
+
+import com.klsmartq.queue.QueueJournal;
+import com.klsmartq.queue.QueueSnapshotStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@EnableScheduling
+public class QueueConfig {
+
+    @Value("${queue.journal.dir:data/queue}")
+    private String journalDir;
+
+    @Value("${queue.journal.segment-size:16777216}")
+    private int segmentSize;
+
+    @Bean(destroyMethod = "")
+    public QueueJournal queueJournal() throws IOException {
+        return new QueueJournal(Path.of(journalDir), segmentSize);
+    }
+
+    @Bean
+    public QueueSnapshotStore queueSnapshotStore() throws IOException {
+        return new QueueSnapshotStore(Path.of(journalDir));
+    }
+}
@@ -0,0 +1,170 @@
+package com.klsmartq.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and all others to the primary. It must sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction is only
+ * marked read-only after JPA has asked for its connection, so the real one is fetched on the first statement.
+ * <p>
+ * Reads fall back to the primary while the replica lags more than {@code maxLagMs} behind it, is not streaming
+ * from it, or cannot be reached; {@link #checkReplica()} decides that on a schedule, so reads start on the
+ * primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    // Zero when the replica has replayed everything it received (an idle primary sends nothing new), or when it
+    // is not a standby at all. A standby whose WAL receiver is not streaming has received nothing lately either,
+    // so it answers NOT_STREAMING instead. Without pg_read_all_stats the receiver's status reads as null, and
+    // a running receiver is taken as streaming.
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+        + "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE COALESCE(status, 'streaming') = 'streaming') "
+        + "THEN -1 "
+        + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+        + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+    private static final long NOT_STREAMING = -1;
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final long maxLagMs;
+
+    private volatile boolean replicaUsable;
+    private volatile long replicaLagMs = -1;
+    private volatile Instant lastCheck;
+    private volatile String lastError;
+
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder readsOnPrimary = new LongAdder();
+    private final LongAdder replicaFailures = new LongAdder();
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, HikariDataSource replica, long maxLagMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (replicaUsable) {
+                try {
+                    Connection connection = replica.getConnection();
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException ex) {
+                    markUnusable("connection failed: " + ex.getMessage());
+                }
+            }
+            readsOnPrimary.increment();
+        }
+        Connection connection = primary.getConnection();
+        primaryConnections.increment();
+        return connection;
+    }
+
+    /**
+     * Always the primary. The pool's own credentials get a pooled connection; Hikari refuses others with
+     * {@link java.sql.SQLFeatureNotSupportedException}.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (Objects.equals(username, primary.getUsername()) && Objects.equals(password, primary.getPassword())) {
+            Connection connection = primary.getConnection();
+            primaryConnections.increment();
+            return connection;
+        }
+        return primary.getConnection(username, password);
+    }
+
+    /** Measures the replica's replay lag and routes reads to it only while that is within bounds. */
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval-ms:5000}")
+    public void checkReplica() {
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+            try (ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                long lag = rs.getLong(1);
+                replicaLagMs = lag;
+                lastCheck = Instant.now();
+                if (lag == NOT_STREAMING) {
+                    markUnusable("not streaming from the primary");
+                } else if (lag > maxLagMs) {
+                    markUnusable("lag " + lag + " ms exceeds " + maxLagMs + " ms");
+                } else {
+                    if (!replicaUsable) {
+                        log.info("Read replica usable (lag {} ms), sending read-only transactions to it", lag);
+                    }
+                    replicaUsable = true;
+                    lastError = null;
+                }
+            }
+        } catch (SQLException ex) {
+            lastCheck = Instant.now();
+            markUnusable("check failed: " + ex.getMessage());
+        }
+    }
+
+    private void markUnusable(String reason) {
+        replicaFailures.increment();
+        lastError = reason;
+        if (replicaUsable) {
+            log.warn("Read replica {}; reading from the primary until it recovers", reason);
+        }
+        replicaUsable = false;
+    }
+
+    /** Connections handed out per pool, the replica's state, and each pool's current occupancy. */
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> routing = new LinkedHashMap<>();
+        routing.put("replicaUsable", replicaUsable);
+        routing.put("replicaLagMs", replicaLagMs);
+        routing.put("maxLagMs", maxLagMs);
+        routing.put("lastCheck", lastCheck);
+        routing.put("lastError", lastError);
+        routing.put("readOnlyOnPrimary", readsOnPrimary.sum());
+        routing.put("replicaFailures", replicaFailures.sum());
+        result.put("routing", routing);
+        result.put("primary", pool(primary, primaryConnections.sum()));
+        result.put("replica", pool(replica, replicaConnections.sum()));
+        return result;
+    }
+
+    /** Size and current occupancy of a pool, and how many connections it gave out when that is counted. */
+    public static Map<String, Object> pool(HikariDataSource dataSource, Long connectionsHandedOut) {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("name", dataSource.getPoolName());
+        pool.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+        if (connectionsHandedOut != null) {
+            pool.put("connectionsHandedOut", connectionsHandedOut);
+        }
+        HikariPoolMXBean mx = dataSource.getHikariPoolMXBean();
+        // Null until the pool opens its first connection
+        if (mx != null) {
+            pool.put("active", mx.getActiveConnections());
+            pool.put("idle", mx.getIdleConnections());
+            pool.put("total", mx.getTotalConnections());
+            pool.put("waiting", mx.getThreadsAwaitingConnection());
+        }
+        return pool;
+    }
+}
@@ -32,21 +32,46 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .requestMatchers("/api/auth/**", "/actuator/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/waiting-room").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/offices/live", "/api/offices/*/live").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/check-in").permitAll()
+                // Cluster mode only; checked against queue.cluster.key by ClusterController
+                .requestMatchers("/api/cluster/**").permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(idempotencyFilter, JwtAuthenticationFilter.class)
+            // After idempotency, so a retried booking is replayed rather than sent back to the waiting room
+            .addFilterAfter(waitingRoomFilter, IdempotencyFilter.class)
             .httpBasic(httpBasic -> httpBasic.disable());
+        if (clusterRoutingFilter != null) {
+            http.addFilterBefore(clusterRoutingFilter, JwtAuthenticationFilter.class);
+        }
         return http.build();
     }
 
+    // Cost of new hashes only; existing hashes are verified at the cost they were made with
+    @Value("${auth.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private WaitingRoomFilter waitingRoomFilter;
+
+    // Only present with queue.cluster.enabled
+    @Autowired(required = false)
+    private ClusterRoutingFilter clusterRoutingFilter;
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
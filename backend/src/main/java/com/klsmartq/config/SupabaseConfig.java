@@ -4,6 +4,7 @@ import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.time.Duration;
 
@@ -20,6 +21,7 @@ public class SupabaseConfig {
     private String supabaseServiceRoleKey;
 
     @Bean
+    @Lazy
     public OkHttpClient httpClient() {
         return new OkHttpClient.Builder()
                 .connectTimeout(Duration.ofSeconds(30))
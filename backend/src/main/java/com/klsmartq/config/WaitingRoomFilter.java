@@ -0,0 +1,97 @@
+package com.klsmartq.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klsmartq.dto.WaitingRoomStatus;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.WaitingRoomService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link WaitingRoomService} to {@code POST /api/tokens}, after {@link JwtAuthenticationFilter} and
+ * {@link IdempotencyFilter}: the caller is the authenticated user (so a revoked token is never admitted) and a
+ * retried booking gets its stored response rather than a 429 or a second slot. The office comes from the request
+ * body, and a deferred booking is answered with 429 before any queue or database work. Requests it cannot
+ * attribute (not authenticated, unreadable body) are passed on unchanged and fail further down as before.
+ */
+@Component
+public class WaitingRoomFilter extends OncePerRequestFilter {
+
+    private static final String PATH = "/api/tokens";
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final WaitingRoomService waitingRoomService;
+    private final ObjectMapper objectMapper;
+
+    public WaitingRoomFilter(WaitingRoomService waitingRoomService, ObjectMapper objectMapper) {
+        this.waitingRoomService = waitingRoomService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !PATH.equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof User student)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeJson(response, 413, objectMapper.createObjectNode().put("error", "Request body too large"));
+            return;
+        }
+        HttpServletRequest replay = new CachedBodyRequest(request, body);
+        String officeId = officeId(body);
+        if (officeId == null) {
+            filterChain.doFilter(replay, response);
+            return;
+        }
+
+        WaitingRoomStatus waiting;
+        try {
+            waiting = waitingRoomService.admit(officeId, student.getId(),
+                request.getHeader(WaitingRoomService.TICKET_HEADER));
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            writeJson(response, ex instanceof IllegalArgumentException ? 400 : 409,
+                objectMapper.createObjectNode().put("error", ex.getMessage()));
+            return;
+        }
+        if (waiting != null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, waiting.getEstimatedWaitSeconds())));
+            writeJson(response, 429, waiting);
+            return;
+        }
+        filterChain.doFilter(replay, response);
+    }
+
+    private String officeId(byte[] body) {
+        try {
+            JsonNode officeId = objectMapper.readTree(body).path("officeId");
+            return officeId.isTextual() && !officeId.asText().isBlank() ? officeId.asText() : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void writeJson(HttpServletResponse response, int status, Object body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -2,16 +2,22 @@ package com.klsmartq.controller;
 
 import com.klsmartq.dto.AdminCreateUserRequest;
 import com.klsmartq.dto.AdminUpdateUserRequest;
+import com.klsmartq.dto.AuditEntry;
 import com.klsmartq.dto.UserDTO;
 import com.klsmartq.entity.User;
 import com.klsmartq.service.AdminUserService;
+import com.klsmartq.service.AuditLog;
+import com.klsmartq.service.DataSourceStatistics;
+import com.klsmartq.service.EntityCache;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -19,9 +25,16 @@ import java.util.List;
 public class AdminController {
 
     private final AdminUserService adminUserService;
+    private final AuditLog auditLog;
+    private final EntityCache entityCache;
+    private final DataSourceStatistics dataSourceStatistics;
 
-    public AdminController(AdminUserService adminUserService) {
+    public AdminController(AdminUserService adminUserService, AuditLog auditLog, EntityCache entityCache,
+                           DataSourceStatistics dataSourceStatistics) {
         this.adminUserService = adminUserService;
+        this.auditLog = auditLog;
+        this.entityCache = entityCache;
+        this.dataSourceStatistics = dataSourceStatistics;
     }
 
     @GetMapping("/users")
@@ -33,24 +46,49 @@ public class AdminController {
     @PostMapping("/users")
     public ResponseEntity<UserDTO> createUser(@AuthenticationPrincipal User principal, @RequestBody AdminCreateUserRequest request) {
         ensureAdmin(principal);
-        UserDTO created = adminUserService.createUser(request);
+        UserDTO created = adminUserService.createUser(principal, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
     @PatchMapping("/users/{userId}")
     public ResponseEntity<UserDTO> updateUser(@AuthenticationPrincipal User principal, @PathVariable String userId, @RequestBody AdminUpdateUserRequest request) {
         ensureAdmin(principal);
-        UserDTO updated = adminUserService.updateUser(userId, request);
+        UserDTO updated = adminUserService.updateUser(principal, userId, request);
         return ResponseEntity.ok(updated);
     }
 
     @DeleteMapping("/users/{userId}")
     public ResponseEntity<Void> deleteUser(@AuthenticationPrincipal User principal, @PathVariable String userId) {
         ensureAdmin(principal);
-        adminUserService.deleteUser(userId);
+        adminUserService.deleteUser(principal, userId);
         return ResponseEntity.noContent().build();
     }
 
+    /** Audit log entries in {@code [from, to)} (default: the last 7 days), newest first, at most 1000. */
+    @GetMapping("/audit")
+    public ResponseEntity<List<AuditEntry>> audit(@AuthenticationPrincipal User principal,
+                                                  @RequestParam(required = false) String actorId,
+                                                  @RequestParam(required = false) Instant from,
+                                                  @RequestParam(required = false) Instant to,
+                                                  @RequestParam(required = false) Integer limit) {
+        ensureAdmin(principal);
+        return ResponseEntity.ok(auditLog.find(actorId, from, to, limit));
+    }
+
+    /** Second-level cache statistics of this instance. */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> cache(@AuthenticationPrincipal User principal) {
+        ensureAdmin(principal);
+        return ResponseEntity.ok(entityCache.statistics());
+    }
+
+    /** Connection pools of this instance and, with a read replica, where reads were sent. */
+    @GetMapping("/datasource")
+    public ResponseEntity<Map<String, Object>> dataSource(@AuthenticationPrincipal User principal) {
+        ensureAdmin(principal);
+        return ResponseEntity.ok(dataSourceStatistics.statistics());
+    }
+
     private void ensureAdmin(User principal) {
         if (principal == null || principal.getRole() == null || !"ADMIN".equalsIgnoreCase(principal.getRole())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required");
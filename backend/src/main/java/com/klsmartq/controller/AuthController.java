@@ -3,7 +3,8 @@ package com.klsmartq.controller;
 import com.klsmartq.dto.AuthResponse;
 import com.klsmartq.dto.LoginRequest;
 import com.klsmartq.dto.RegisterRequest;
-import com.klsmartq.service.SupabaseAuthService;
+import com.klsmartq.service.AuthProvider;
+import com.klsmartq.service.RefreshTokenService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -11,10 +12,12 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final SupabaseAuthService supabaseAuthService;
+    private final AuthProvider authProvider;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(SupabaseAuthService supabaseAuthService) { 
-        this.supabaseAuthService = supabaseAuthService; 
+    public AuthController(AuthProvider authProvider, RefreshTokenService refreshTokenService) { 
+        this.authProvider = authProvider; 
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
@@ -35,7 +38,7 @@ public class AuthController {
     public ResponseEntity<?> register(@RequestBody RegisterRequest r) {
         System.out.println("→ /register called for email: " + r.getEmail());
         try {
-            supabaseAuthService.registerStudent(r.getName(), r.getEmail(), r.getPassword());
+            authProvider.registerStudent(r.getName(), r.getEmail(), r.getPassword());
             return ResponseEntity.ok().body(java.util.Map.of(
                 "message", "Registration successful! You can now login with your credentials.",
                 "success", true
@@ -59,8 +62,8 @@ public class AuthController {
 
     /**
      * Step 2: Verify OTP code from email
-     * NOTE: This is only needed if email confirmations are enabled in Supabase
-     * If disabled, users can login immediately after registration
+     * NOTE: Only the local provider with auth.local.verify-email asks for a code;
+     * otherwise users can login immediately after registration
      */
     @PostMapping("/verify-otp")
     public ResponseEntity<?> verifyOtp(@RequestBody java.util.Map<String,String> body) {
@@ -69,29 +72,28 @@ public class AuthController {
         System.out.println("→ /verify-otp called for email: " + email);
         
         try {
-            // If email confirmations are disabled in Supabase, user is already verified
-            // Just return success
+            authProvider.confirmRegistration(email, token);
             return ResponseEntity.ok().body(java.util.Map.of(
                 "message", "Email verified successfully! You can now login.",
                 "success", true
             ));
-        } catch (Exception e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             System.err.println("✗ OTP verification failed: " + e.getMessage());
             return ResponseEntity.badRequest().body(java.util.Map.of(
-                "error", "Verification failed. Please try logging in directly.",
+                "error", e.getMessage(),
                 "success", false
             ));
         }
     }
 
     /**
-     * Step 3: Login - checks Supabase auth and email verification
+     * Step 3: Login - checks credentials with the configured provider and email verification
      */
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest req) {
         System.out.println("→ /login called for email: " + req.getEmail());
         try {
-            AuthResponse resp = supabaseAuthService.login(req.getEmail(), req.getPassword());
+            AuthResponse resp = refreshTokenService.startSession(authProvider.authenticate(req.getEmail(), req.getPassword()));
             System.out.println("✓ Login successful for: " + req.getEmail());
             return ResponseEntity.ok(resp);
         } catch (Exception e) {
@@ -100,6 +102,30 @@ public class AuthController {
         }
     }
 
+    /**
+     * Renews the access token with a refresh token from login, without going back to Supabase. The refresh
+     * token is used up; the response carries the next one.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody java.util.Map<String,String> body) {
+        try {
+            return ResponseEntity.ok(refreshTokenService.refresh(body.get("refreshToken")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(401).body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Revokes the bearer access token and, when given, the refresh token's session
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                    @RequestBody(required = false) java.util.Map<String,String> body) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        refreshTokenService.logout(accessToken, body != null ? body.get("refreshToken") : null);
+        return ResponseEntity.noContent().build();
+    }
+
     // Legacy endpoints for backward compatibility
     @PostMapping("/send-verification-code")
     public ResponseEntity<?> sendCode(@RequestBody RegisterRequest r) {
@@ -0,0 +1,68 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.dto.CheckInRequest;
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.service.CheckInCodeService;
+import com.klsmartq.service.QueueService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counter kiosk check-in. Kiosks authenticate with a shared {@code Kiosk-Key} instead of a user session, so a scan
+ * is verified and applied to the in-memory queue without touching Postgres; the change is written back by the
+ * queue's write-behind like any other.
+ */
+@RestController
+@RequestMapping("/api/check-in")
+public class CheckInController {
+
+    public static final String KIOSK_KEY_HEADER = "Kiosk-Key";
+
+    private final CheckInCodeService checkInCodeService;
+    private final QueueService queueService;
+    private final List<byte[]> kioskKeys;
+
+    public CheckInController(CheckInCodeService checkInCodeService, QueueService queueService,
+                             @Value("${check-in.kiosk-keys:}") String kioskKeys) {
+        this.checkInCodeService = checkInCodeService;
+        this.queueService = queueService;
+        this.kioskKeys = Arrays.stream(kioskKeys.split(","))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .map(key -> key.getBytes(StandardCharsets.UTF_8))
+            .toList();
+    }
+
+    @PostMapping
+    public ResponseEntity<TokenDTO> checkIn(@RequestHeader(value = KIOSK_KEY_HEADER, required = false) String kioskKey,
+                                            @RequestBody CheckInRequest request) {
+        if (!isKiosk(kioskKey)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Kiosk key required");
+        }
+        if (request == null || request.getCode() == null || request.getCode().isBlank()) {
+            throw new IllegalArgumentException("Check-in code is required");
+        }
+        String tokenId = checkInCodeService.verify(request.getCode().trim());
+        return ResponseEntity.ok(queueService.checkIn("kiosk", tokenId, request.getOfficeId()));
+    }
+
+    private boolean isKiosk(String kioskKey) {
+        if (kioskKey == null) {
+            return false;
+        }
+        byte[] presented = kioskKey.getBytes(StandardCharsets.UTF_8);
+        boolean match = false;
+        for (byte[] key : kioskKeys) {
+            match |= MessageDigest.isEqual(key, presented);
+        }
+        return match;
+    }
+}
@@ -0,0 +1,45 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.service.QueueCluster;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/** Instance-to-instance calls of cluster mode, authenticated with the shared {@code queue.cluster.key}. */
+@RestController
+@RequestMapping("/api/cluster")
+@ConditionalOnProperty(name = "queue.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private final QueueCluster cluster;
+
+    public ClusterController(QueueCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /** The previous owner has written the office back; load it. */
+    @PostMapping("/offices/{officeId}/handoff")
+    public ResponseEntity<Void> handoff(@RequestHeader(value = QueueCluster.KEY_HEADER, required = false) String key,
+                                        @PathVariable String officeId) {
+        ensureMember(key);
+        cluster.handoffReceived(officeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** This instance's view: live members and the owner of every office. */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> describe(@RequestHeader(value = QueueCluster.KEY_HEADER, required = false) String key) {
+        ensureMember(key);
+        return ResponseEntity.ok(cluster.describe());
+    }
+
+    private void ensureMember(String key) {
+        if (!cluster.isClusterKey(key)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Cluster key required");
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.dto.OfficeLiveStatsDTO;
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.OfficeLiveStatsService;
+import com.klsmartq.service.QueueBroadcaster;
+import com.klsmartq.service.QueueService;
+import com.klsmartq.util.JsonUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/offices")
+public class OfficeQueueController {
+
+    private final QueueService queueService;
+    private final QueueBroadcaster queueBroadcaster;
+    private final OfficeLiveStatsService liveStatsService;
+
+    public OfficeQueueController(QueueService queueService, QueueBroadcaster queueBroadcaster,
+                                 OfficeLiveStatsService liveStatsService) {
+        this.queueService = queueService;
+        this.queueBroadcaster = queueBroadcaster;
+        this.liveStatsService = liveStatsService;
+    }
+
+    /** Public "now serving" and waiting numbers of the given offices, or of every office that has any. */
+    @GetMapping("/live")
+    public ResponseEntity<List<OfficeLiveStatsDTO>> liveStats(@RequestParam(required = false) List<String> officeIds) {
+        return ResponseEntity.ok(liveStatsService.get(officeIds));
+    }
+
+    @GetMapping("/{officeId}/live")
+    public ResponseEntity<OfficeLiveStatsDTO> liveStats(@PathVariable String officeId) {
+        return ResponseEntity.ok(liveStatsService.get(officeId));
+    }
+
+    @GetMapping("/{officeId}/queue")
+    public ResponseEntity<List<TokenDTO>> waitingTokens(@AuthenticationPrincipal User principal, @PathVariable String officeId) {
+        ensureOfficeStaff(principal, officeId);
+        return ResponseEntity.ok(queueService.getWaitingTokens(officeId));
+    }
+
+    @PostMapping("/{officeId}/call-next")
+    public ResponseEntity<TokenDTO> callNext(@AuthenticationPrincipal User principal, @PathVariable String officeId) {
+        ensureOfficeStaff(principal, officeId);
+        TokenDTO called = queueService.callNext(principal, officeId);
+        return called == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(called);
+    }
+
+    /**
+     * Calls the best waiting token across every office assigned to the caller. Staff may narrow it with
+     * {@code officeIds}; admins have no assignments and must pass them.
+     */
+    @PostMapping("/call-next")
+    public ResponseEntity<TokenDTO> callNextAcross(@AuthenticationPrincipal User principal,
+                                                   @RequestParam(required = false) List<String> officeIds) {
+        if (principal == null || principal.getRole() == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Staff access required");
+        }
+        List<String> offices;
+        if ("ADMIN".equalsIgnoreCase(principal.getRole())) {
+            offices = officeIds == null ? List.of() : officeIds;
+        } else if ("STAFF".equalsIgnoreCase(principal.getRole())) {
+            List<String> assigned = JsonUtils.readStringList(principal.getAssignedOfficeIds());
+            if (officeIds != null && !assigned.containsAll(officeIds)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not assigned to this office");
+            }
+            offices = officeIds == null ? assigned : officeIds;
+        } else {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Staff access required");
+        }
+        if (offices.isEmpty()) {
+            throw new IllegalArgumentException("No offices to call from");
+        }
+        TokenDTO called = queueService.callNextAcross(principal, offices);
+        return called == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(called);
+    }
+
+    @GetMapping(value = "/{officeId}/events", produces = "text/event-stream")
+    public SseEmitter events(@AuthenticationPrincipal User principal, @PathVariable String officeId) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        return queueBroadcaster.subscribe(officeId);
+    }
+
+    private void ensureOfficeStaff(User principal, String officeId) {
+        if (principal == null || principal.getRole() == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Staff access required");
+        }
+        if ("ADMIN".equalsIgnoreCase(principal.getRole())) {
+            return;
+        }
+        if (!"STAFF".equalsIgnoreCase(principal.getRole())
+                || !JsonUtils.readStringList(principal.getAssignedOfficeIds()).contains(officeId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not assigned to this office");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.dto.LeaderboardEntry;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.RewardsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/rewards")
+public class RewardsController {
+
+    private final RewardsService rewardsService;
+
+    public RewardsController(RewardsService rewardsService) {
+        this.rewardsService = rewardsService;
+    }
+
+    /** Students with the most points, at most 100. */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<List<LeaderboardEntry>> leaderboard(@AuthenticationPrincipal User principal,
+                                                              @RequestParam(required = false) Integer limit) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        return ResponseEntity.ok(rewardsService.leaderboard(limit));
+    }
+}
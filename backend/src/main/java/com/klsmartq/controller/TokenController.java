@@ -0,0 +1,108 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.dto.BookTokenRequest;
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.dto.TokenHistoryPage;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.CheckInCodeService;
+import com.klsmartq.service.QueueService;
+import com.klsmartq.service.TokenHistoryService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/tokens")
+public class TokenController {
+
+    private final QueueService queueService;
+    private final TokenHistoryService tokenHistoryService;
+    private final CheckInCodeService checkInCodeService;
+
+    public TokenController(QueueService queueService, TokenHistoryService tokenHistoryService,
+                           CheckInCodeService checkInCodeService) {
+        this.queueService = queueService;
+        this.tokenHistoryService = tokenHistoryService;
+        this.checkInCodeService = checkInCodeService;
+    }
+
+    /** Books a token. Requests over the office's waiting-room rate are answered with 429 by {@code WaitingRoomFilter}. */
+    @PostMapping
+    public ResponseEntity<TokenDTO> book(@AuthenticationPrincipal User principal, @RequestBody BookTokenRequest request) {
+        ensureRole(principal, "STUDENT");
+        TokenDTO token = queueService.book(principal, request);
+        token.setCheckInCode(checkInCodeService.issue(token.getId()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(token);
+    }
+
+    /**
+     * Token history of the current student, newest first. Admins may pass {@code studentId} to view another
+     * student's history.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<TokenHistoryPage> history(@AuthenticationPrincipal User principal,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String officeId,
+                                                    @RequestParam(required = false) String status,
+                                                    @RequestParam(required = false) String studentId) {
+        ensureAuthenticated(principal);
+        String subject = principal.getId();
+        if (studentId != null && !studentId.equals(subject)) {
+            ensureRole(principal, "ADMIN");
+            subject = studentId;
+        }
+        return ResponseEntity.ok(tokenHistoryService.getHistory(subject, cursor, limit, officeId, status));
+    }
+
+    @GetMapping("/{tokenId}")
+    public ResponseEntity<TokenDTO> getToken(@AuthenticationPrincipal User principal, @PathVariable String tokenId) {
+        ensureAuthenticated(principal);
+        TokenDTO token = queueService.getToken(tokenId);
+        if ("STUDENT".equalsIgnoreCase(principal.getRole()) && !principal.getId().equals(token.getStudentId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Token not found");
+        }
+        boolean open = "WAITING".equals(token.getStatus()) || "IN_PROGRESS".equals(token.getStatus());
+        if (principal.getId().equals(token.getStudentId()) && open && !token.getIsCheckedIn()) {
+            token.setCheckInCode(checkInCodeService.issue(token.getId()));
+        }
+        return ResponseEntity.ok(token);
+    }
+
+    /** Staff act only on tokens of their assigned offices; {@link QueueService} checks that against the token. */
+    @PostMapping("/{tokenId}/check-in")
+    public ResponseEntity<TokenDTO> checkIn(@AuthenticationPrincipal User principal, @PathVariable String tokenId) {
+        ensureRole(principal, "STAFF", "ADMIN");
+        return ResponseEntity.ok(queueService.checkIn(principal, tokenId));
+    }
+
+    @PostMapping("/{tokenId}/complete")
+    public ResponseEntity<TokenDTO> complete(@AuthenticationPrincipal User principal, @PathVariable String tokenId) {
+        ensureRole(principal, "STAFF", "ADMIN");
+        return ResponseEntity.ok(queueService.complete(principal, tokenId));
+    }
+
+    @PostMapping("/{tokenId}/cancel")
+    public ResponseEntity<TokenDTO> cancel(@AuthenticationPrincipal User principal, @PathVariable String tokenId) {
+        ensureAuthenticated(principal);
+        return ResponseEntity.ok(queueService.cancel(principal, tokenId));
+    }
+
+    private void ensureAuthenticated(User principal) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+    }
+
+    private void ensureRole(User principal, String... roles) {
+        ensureAuthenticated(principal);
+        for (String role : roles) {
+            if (role.equalsIgnoreCase(principal.getRole())) {
+                return;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Insufficient role");
+    }
+}
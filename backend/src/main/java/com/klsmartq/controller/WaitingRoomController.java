@@ -0,0 +1,41 @@
+package com.klsmartq.controller;
+
+import com.klsmartq.dto.WaitingRoomStatus;
+import com.klsmartq.entity.User;
+import com.klsmartq.service.WaitingRoomService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/waiting-room")
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    public WaitingRoomController(WaitingRoomService waitingRoomService) {
+        this.waitingRoomService = waitingRoomService;
+    }
+
+    @PostMapping("/{officeId}")
+    public ResponseEntity<WaitingRoomStatus> join(@AuthenticationPrincipal User principal, @PathVariable String officeId) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required");
+        }
+        if (!"STUDENT".equalsIgnoreCase(principal.getRole())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Insufficient role");
+        }
+        return ResponseEntity.ok(waitingRoomService.join(officeId, principal.getId()));
+    }
+
+    /**
+     * Status of a waiting-room ticket. The signed ticket is its own credential, so this is served without a
+     * session lookup and may be polled freely.
+     */
+    @GetMapping
+    public ResponseEntity<WaitingRoomStatus> status(@RequestParam String ticket) {
+        return ResponseEntity.ok(waitingRoomService.status(ticket));
+    }
+}
@@ -0,0 +1,34 @@
+package com.klsmartq.dto;
+
+import java.time.Instant;
+
+public class AuditEntry {
+    private Instant occurredAt;
+    private String actorId;
+    private String action;
+    private String targetType;
+    private String targetId;
+    private String details;
+
+    public AuditEntry() {}
+    public AuditEntry(Instant occurredAt, String actorId, String action, String targetType, String targetId, String details) {
+        this.occurredAt = occurredAt;
+        this.actorId = actorId;
+        this.action = action;
+        this.targetType = targetType;
+        this.targetId = targetId;
+        this.details = details;
+    }
+    public Instant getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(Instant occurredAt) { this.occurredAt = occurredAt; }
+    public String getActorId() { return actorId; }
+    public void setActorId(String actorId) { this.actorId = actorId; }
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+    public String getTargetType() { return targetType; }
+    public void setTargetType(String targetType) { this.targetType = targetType; }
+    public String getTargetId() { return targetId; }
+    public void setTargetId(String targetId) { this.targetId = targetId; }
+    public String getDetails() { return details; }
+    public void setDetails(String details) { this.details = details; }
+}
@@ -4,15 +4,23 @@ public class AuthResponse {
     private String token;
     private Object user;
     private long expiresIn;
+    private String refreshToken;
 
     public AuthResponse() {}
     public AuthResponse(String token, Object user, long expiresIn) {
         this.token = token; this.user = user; this.expiresIn = expiresIn;
     }
+    public AuthResponse(String token, Object user, long expiresIn, String refreshToken) {
+        this(token, user, expiresIn);
+        this.refreshToken = refreshToken;
+    }
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
     public Object getUser() { return user; }
     public void setUser(Object user) { this.user = user; }
     public long getExpiresIn() { return expiresIn; }
     public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
+    /** Single-use token for {@code POST /api/auth/refresh}; a new one comes back with every refresh. */
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
 }
@@ -0,0 +1,14 @@
+package com.klsmartq.dto;
+
+public class BookTokenRequest {
+    private String officeId;
+    private String purpose;
+    private String priority;
+
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+}
@@ -0,0 +1,12 @@
+package com.klsmartq.dto;
+
+public class CheckInRequest {
+    private String code;
+    private String officeId;
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+    /** Office of the scanning kiosk; when set, codes for other offices are rejected. */
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+}
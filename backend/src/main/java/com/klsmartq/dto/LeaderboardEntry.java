@@ -0,0 +1,24 @@
+package com.klsmartq.dto;
+
+public class LeaderboardEntry {
+    private int rank;
+    private String userId;
+    private String name;
+    private int points;
+
+    public LeaderboardEntry() {}
+    public LeaderboardEntry(int rank, String userId, String name, int points) {
+        this.rank = rank;
+        this.userId = userId;
+        this.name = name;
+        this.points = points;
+    }
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public int getPoints() { return points; }
+    public void setPoints(int points) { this.points = points; }
+}
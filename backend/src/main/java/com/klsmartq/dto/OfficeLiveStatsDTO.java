@@ -0,0 +1,34 @@
+package com.klsmartq.dto;
+
+import java.time.Instant;
+
+public class OfficeLiveStatsDTO {
+    private String officeId;
+    private int waiting;
+    private int inProgress;
+    private String nowServing;
+    private int issuedToday;
+    private Instant updatedAt;
+
+    public OfficeLiveStatsDTO() {}
+    public OfficeLiveStatsDTO(String officeId, int waiting, int inProgress, String nowServing, int issuedToday, Instant updatedAt) {
+        this.officeId = officeId;
+        this.waiting = waiting;
+        this.inProgress = inProgress;
+        this.nowServing = nowServing;
+        this.issuedToday = issuedToday;
+        this.updatedAt = updatedAt;
+    }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public int getWaiting() { return waiting; }
+    public void setWaiting(int waiting) { this.waiting = waiting; }
+    public int getInProgress() { return inProgress; }
+    public void setInProgress(int inProgress) { this.inProgress = inProgress; }
+    public String getNowServing() { return nowServing; }
+    public void setNowServing(String nowServing) { this.nowServing = nowServing; }
+    public int getIssuedToday() { return issuedToday; }
+    public void setIssuedToday(int issuedToday) { this.issuedToday = issuedToday; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,10 @@
+package com.klsmartq.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Response of the Supabase signup, verify and password-grant endpoints. Only the user is used; the Supabase
+ * access and refresh tokens are skipped since the backend issues its own JWT.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SupabaseSession(SupabaseUser user) {}
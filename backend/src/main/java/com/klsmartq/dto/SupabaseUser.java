@@ -0,0 +1,29 @@
+package com.klsmartq.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The part of a Supabase Auth user object the backend reads. Everything else (identities, app_metadata,
+ * timestamps) is skipped by the parser without being bound.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SupabaseUser(
+    String id,
+    String email,
+    @JsonProperty("email_confirmed_at") String emailConfirmedAt,
+    @JsonProperty("user_metadata") Metadata userMetadata
+) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Metadata(String name) {}
+
+    public boolean isEmailConfirmed() {
+        return emailConfirmedAt != null;
+    }
+
+    /** Display name from user_metadata, falling back to the given default. */
+    public String nameOr(String fallback) {
+        return userMetadata != null && userMetadata.name() != null ? userMetadata.name() : fallback;
+    }
+}
@@ -0,0 +1,67 @@
+package com.klsmartq.dto;
+
+import java.time.Instant;
+
+public class TokenDTO {
+    private String id;
+    private String tokenNumber;
+    private String studentId;
+    private String officeId;
+    private String purpose;
+    private String priority;
+    private String status;
+    private Instant createdAt;
+    private Instant calledAt;
+    private Instant completedAt;
+    private boolean isCheckedIn;
+    private Integer position;
+    private Integer aheadCount;
+    private String checkInCode;
+
+    public TokenDTO() {}
+    public TokenDTO(String id, String tokenNumber, String studentId, String officeId, String purpose, String priority,
+                    String status, Instant createdAt, Instant calledAt, Instant completedAt, boolean isCheckedIn) {
+        this.id = id;
+        this.tokenNumber = tokenNumber;
+        this.studentId = studentId;
+        this.officeId = officeId;
+        this.purpose = purpose;
+        this.priority = priority;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.calledAt = calledAt;
+        this.completedAt = completedAt;
+        this.isCheckedIn = isCheckedIn;
+    }
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getTokenNumber() { return tokenNumber; }
+    public void setTokenNumber(String tokenNumber) { this.tokenNumber = tokenNumber; }
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getCalledAt() { return calledAt; }
+    public void setCalledAt(Instant calledAt) { this.calledAt = calledAt; }
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+    public boolean getIsCheckedIn() { return isCheckedIn; }
+    public void setIsCheckedIn(boolean v) { this.isCheckedIn = v; }
+    /** 1-based place in the office's waiting line; null unless the token is waiting. */
+    public Integer getPosition() { return position; }
+    public void setPosition(Integer position) { this.position = position; }
+    /** Waiting tokens that will be served first; null unless the token is waiting. */
+    public Integer getAheadCount() { return aheadCount; }
+    public void setAheadCount(Integer aheadCount) { this.aheadCount = aheadCount; }
+    /** Signed, short-lived code for the counter kiosk; only sent to the token's student while it is open. */
+    public String getCheckInCode() { return checkInCode; }
+    public void setCheckInCode(String checkInCode) { this.checkInCode = checkInCode; }
+}
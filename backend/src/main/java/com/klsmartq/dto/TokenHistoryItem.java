@@ -0,0 +1,34 @@
+package com.klsmartq.dto;
+
+import java.time.Instant;
+
+public class TokenHistoryItem {
+    private String id;
+    private String tokenNumber;
+    private String officeId;
+    private String purpose;
+    private String status;
+    private Instant createdAt;
+
+    public TokenHistoryItem() {}
+    public TokenHistoryItem(String id, String tokenNumber, String officeId, String purpose, String status, Instant createdAt) {
+        this.id = id;
+        this.tokenNumber = tokenNumber;
+        this.officeId = officeId;
+        this.purpose = purpose;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getTokenNumber() { return tokenNumber; }
+    public void setTokenNumber(String tokenNumber) { this.tokenNumber = tokenNumber; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,19 @@
+package com.klsmartq.dto;
+
+import java.util.List;
+
+public class TokenHistoryPage {
+    private List<TokenHistoryItem> items;
+    private String nextCursor;
+
+    public TokenHistoryPage() {}
+    public TokenHistoryPage(List<TokenHistoryItem> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    public List<TokenHistoryItem> getItems() { return items; }
+    public void setItems(List<TokenHistoryItem> items) { this.items = items; }
+    /** Opaque cursor for the next page, or null on the last page. */
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
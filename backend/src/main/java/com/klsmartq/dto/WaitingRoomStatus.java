@@ -0,0 +1,42 @@
+package com.klsmartq.dto;
+
+public class WaitingRoomStatus {
+    private String ticket;
+    private String officeId;
+    private boolean admitted;
+    private long position;
+    private long estimatedWaitSeconds;
+    private long admitAt;
+    private long expiresAt;
+
+    public WaitingRoomStatus() {}
+    public WaitingRoomStatus(String ticket, String officeId, boolean admitted, long position,
+                             long estimatedWaitSeconds, long admitAt, long expiresAt) {
+        this.ticket = ticket;
+        this.officeId = officeId;
+        this.admitted = admitted;
+        this.position = position;
+        this.estimatedWaitSeconds = estimatedWaitSeconds;
+        this.admitAt = admitAt;
+        this.expiresAt = expiresAt;
+    }
+    /** Signed ticket to send as the {@code Waiting-Room-Ticket} header when booking. */
+    public String getTicket() { return ticket; }
+    public void setTicket(String ticket) { this.ticket = ticket; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    /** True once the ticket may be used to book. */
+    public boolean isAdmitted() { return admitted; }
+    public void setAdmitted(boolean admitted) { this.admitted = admitted; }
+    /** Approximate number of callers admitted before this ticket; 0 once admitted. */
+    public long getPosition() { return position; }
+    public void setPosition(long position) { this.position = position; }
+    public long getEstimatedWaitSeconds() { return estimatedWaitSeconds; }
+    public void setEstimatedWaitSeconds(long estimatedWaitSeconds) { this.estimatedWaitSeconds = estimatedWaitSeconds; }
+    /** Epoch millis from which the ticket is accepted. */
+    public long getAdmitAt() { return admitAt; }
+    public void setAdmitAt(long admitAt) { this.admitAt = admitAt; }
+    /** Epoch millis after which the ticket is no longer accepted. */
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,44 @@
+package com.klsmartq.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+@Entity
+@Table(name = "offices")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "offices")
+public class Office {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false, length = 10)
+    private String prefix;
+
+    @Column(name = "operating_hours")
+    private String operatingHours;
+
+    @Column(name = "token_limit")
+    private int tokenLimit = 100;
+
+    @Column(name = "is_active")
+    private boolean isActive = true;
+
+    // getters/setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getPrefix() { return prefix; }
+    public void setPrefix(String prefix) { this.prefix = prefix; }
+    public String getOperatingHours() { return operatingHours; }
+    public void setOperatingHours(String operatingHours) { this.operatingHours = operatingHours; }
+    public int getTokenLimit() { return tokenLimit; }
+    public void setTokenLimit(int tokenLimit) { this.tokenLimit = tokenLimit; }
+    public boolean isActive() { return isActive; }
+    public void setActive(boolean active) { isActive = active; }
+}
@@ -0,0 +1,58 @@
+package com.klsmartq.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "office_live_stats")
+public class OfficeLiveStats {
+    @Id
+    @Column(name = "office_id", length = 36)
+    private String officeId;
+
+    @Column(nullable = false)
+    private int waiting;
+
+    @Column(name = "in_progress", nullable = false)
+    private int inProgress;
+
+    @Column(name = "now_serving", length = 20)
+    private String nowServing;
+
+    @Column(name = "issued_today", nullable = false)
+    private int issuedToday;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public OfficeLiveStats() {}
+
+    public OfficeLiveStats(String officeId, int waiting, int inProgress, String nowServing, int issuedToday) {
+        this.officeId = officeId;
+        this.waiting = waiting;
+        this.inProgress = inProgress;
+        this.nowServing = nowServing;
+        this.issuedToday = issuedToday;
+    }
+
+    /** Whether the counters match, ignoring when they were written. */
+    public boolean sameCounts(OfficeLiveStats other) {
+        return waiting == other.waiting && inProgress == other.inProgress && issuedToday == other.issuedToday
+            && Objects.equals(nowServing, other.nowServing);
+    }
+
+    // getters/setters
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public int getWaiting() { return waiting; }
+    public void setWaiting(int waiting) { this.waiting = waiting; }
+    public int getInProgress() { return inProgress; }
+    public void setInProgress(int inProgress) { this.inProgress = inProgress; }
+    public String getNowServing() { return nowServing; }
+    public void setNowServing(String nowServing) { this.nowServing = nowServing; }
+    public int getIssuedToday() { return issuedToday; }
+    public void setIssuedToday(int issuedToday) { this.issuedToday = issuedToday; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,70 @@
+package com.klsmartq.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "tokens")
+public class Token {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "token_number", nullable = false, length = 20)
+    private String tokenNumber;
+
+    @Column(name = "student_id", nullable = false, length = 36)
+    private String studentId;
+
+    @Column(name = "office_id", nullable = false, length = 36)
+    private String officeId;
+
+    private String purpose;
+
+    @Column(nullable = false, length = 20)
+    private String priority = "NORMAL";
+
+    @Column(nullable = false, length = 20)
+    private String status = "WAITING";
+
+    @Column(name = "is_checked_in")
+    private boolean isCheckedIn = false;
+
+    @Column(name = "served_by", length = 36)
+    private String servedBy;
+
+    @Column(name = "created_at")
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "called_at")
+    private Instant calledAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    // getters/setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getTokenNumber() { return tokenNumber; }
+    public void setTokenNumber(String tokenNumber) { this.tokenNumber = tokenNumber; }
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public boolean isCheckedIn() { return isCheckedIn; }
+    public void setCheckedIn(boolean checkedIn) { isCheckedIn = checkedIn; }
+    public String getServedBy() { return servedBy; }
+    public void setServedBy(String servedBy) { this.servedBy = servedBy; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getCalledAt() { return calledAt; }
+    public void setCalledAt(Instant calledAt) { this.calledAt = calledAt; }
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+}
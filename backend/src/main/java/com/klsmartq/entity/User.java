@@ -1,10 +1,15 @@
 package com.klsmartq.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
 import java.time.Instant;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
     @Id
     @Column(length = 36)
@@ -27,9 +32,11 @@ public class User {
     private int points = 0;
 
     @Column(columnDefinition = "json", nullable = true)
+    @ColumnTransformer(write = "?::json")
     private String badges = null; // Default to null for JSON column
 
     @Column(name = "assigned_office_ids", columnDefinition = "json")
+    @ColumnTransformer(write = "?::json")
     private String assignedOfficeIds = null; // Default to null for JSON column
 
     @Column(name = "created_at")
@@ -0,0 +1,107 @@
+package com.klsmartq.queue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Order-statistic index over the waiting tokens of one priority class in one office: a Fenwick tree over
+ * insertion slots, so counting the tokens that arrived before a given one is O(log n).
+ * <p>
+ * Slots are handed out in insertion order, which is arrival order for live bookings. Tokens restored from a
+ * snapshot or from Postgres can arrive out of order; the index then re-sorts itself once, on the next query.
+ * Removed slots stay empty until the arrays fill up, when live tokens are compacted to the front.
+ */
+final class ArrivalIndex {
+
+    private static final Comparator<QueuedToken> BY_ARRIVAL = Comparator.comparingLong(QueuedToken::getArrival);
+
+    private QueuedToken[] slots = new QueuedToken[16];
+    // 1-based Fenwick tree over slots
+    private int[] tree = new int[17];
+    private int used;
+    private int live;
+    private long maxArrival = Long.MIN_VALUE;
+    private boolean sorted = true;
+
+    void add(QueuedToken token) {
+        if (used == slots.length) {
+            rebuild(live * 2 > slots.length ? slots.length * 2 : slots.length);
+        }
+        if (token.getArrival() < maxArrival) {
+            sorted = false;
+        }
+        maxArrival = Math.max(maxArrival, token.getArrival());
+        slots[used] = token;
+        token.setQueueSlot(used);
+        increment(used, 1);
+        used++;
+        live++;
+    }
+
+    /** Returns false when the token was not indexed here. */
+    boolean remove(QueuedToken token) {
+        int slot = token.getQueueSlot();
+        if (slot < 0 || slot >= used || slots[slot] != token) {
+            return false;
+        }
+        slots[slot] = null;
+        token.setQueueSlot(-1);
+        increment(slot, -1);
+        live--;
+        return true;
+    }
+
+    /** Waiting tokens of this class that arrived before {@code token}, or -1 when it is not indexed here. */
+    int countBefore(QueuedToken token) {
+        if (!sorted) {
+            rebuild(slots.length);
+        }
+        int slot = token.getQueueSlot();
+        if (slot < 0 || slot >= used || slots[slot] != token) {
+            return -1;
+        }
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    int size() {
+        return live;
+    }
+
+    private void increment(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Compacts live tokens into arrival order and rebuilds the tree in O(n). */
+    private void rebuild(int capacity) {
+        QueuedToken[] compacted = new QueuedToken[capacity];
+        int n = 0;
+        for (int i = 0; i < used; i++) {
+            if (slots[i] != null) {
+                compacted[n++] = slots[i];
+            }
+        }
+        Arrays.sort(compacted, 0, n, BY_ARRIVAL);
+        tree = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= n) {
+                compacted[i - 1].setQueueSlot(i - 1);
+                tree[i] += 1;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+        slots = compacted;
+        used = n;
+        live = n;
+        maxArrival = n > 0 ? compacted[n - 1].getArrival() : Long.MIN_VALUE;
+        sorted = true;
+    }
+}
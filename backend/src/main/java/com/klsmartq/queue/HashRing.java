@@ -0,0 +1,127 @@
+package com.klsmartq.queue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Immutable consistent-hash ring assigning offices to cluster members. Each member is placed at
+ * {@code virtualNodes} points of a 32-bit ring and owns the arcs ending at them, so adding or removing a member
+ * only moves the offices on its own arcs.
+ * <p>
+ * Token ids minted by {@link #tokenId(String)} carry their office's ring position, which lets a request for a
+ * token be routed to the owner without looking the token up.
+ */
+public final class HashRing {
+
+    private static final HashRing EMPTY = new HashRing(new long[0], new String[0], Set.of());
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> members;
+
+    private HashRing(long[] points, String[] owners, Set<String> members) {
+        this.points = points;
+        this.owners = owners;
+        this.members = members;
+    }
+
+    public static HashRing of(Collection<String> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            return EMPTY;
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Invalid virtual node count " + virtualNodes);
+        }
+        // Sorted so every instance builds the same ring, including the tie-break on colliding points
+        List<String> sorted = new ArrayList<>(new TreeSet<>(members));
+        long[] keys = new long[sorted.size() * virtualNodes];
+        int k = 0;
+        for (int m = 0; m < sorted.size(); m++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                long point = Integer.toUnsignedLong(hash(sorted.get(m) + "#" + v));
+                // Point in the high bits, member index in the low bits: one sort orders both
+                keys[k++] = point << 20 | m;
+            }
+        }
+        Arrays.sort(keys);
+        long[] points = new long[keys.length];
+        String[] owners = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            points[i] = keys[i] >>> 20;
+            owners[i] = sorted.get((int) (keys[i] & 0xFFFFF));
+        }
+        return new HashRing(points, owners, Set.copyOf(sorted));
+    }
+
+    public Set<String> members() {
+        return members;
+    }
+
+    public boolean isEmpty() {
+        return points.length == 0;
+    }
+
+    /** Member owning the office, or null when the ring is empty. */
+    public String owner(String officeId) {
+        return ownerOfHash(hash(officeId));
+    }
+
+    /** Member owning the ring position, e.g. one taken from a token id. */
+    public String ownerOfHash(int hash) {
+        if (points.length == 0) {
+            return null;
+        }
+        long point = Integer.toUnsignedLong(hash);
+        int index = Arrays.binarySearch(points, point);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // First of equal points, so the result does not depend on where the search landed
+            while (index > 0 && points[index - 1] == point) {
+                index--;
+            }
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /** 32-bit ring position: FNV-1a over the UTF-16 chars, then a Murmur3 finalizer to spread nearby keys. */
+    public static int hash(String key) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Random token id whose first 8 hex digits are the office's ring position. It is marked as UUID version 8
+     * (custom layout) so {@link #officeHash(String)} can tell it from ids minted before.
+     */
+    public static String tokenId(String officeId) {
+        UUID random = UUID.randomUUID();
+        long msb = (long) hash(officeId) << 32 | (random.getMostSignificantBits() & 0xFFFF0FFFL) | 0x8000L;
+        return new UUID(msb, random.getLeastSignificantBits()).toString();
+    }
+
+    /** Ring position carried by a {@link #tokenId(String)} id, or null for any other id. */
+    public static Integer officeHash(String tokenId) {
+        if (tokenId == null || tokenId.length() != 36 || tokenId.charAt(8) != '-' || tokenId.charAt(14) != '8') {
+            return null;
+        }
+        try {
+            return Integer.parseUnsignedInt(tokenId, 0, 8, 16);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.klsmartq.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Waiting line and daily token counter for a single office.
+ * <p>
+ * Leaving the line anywhere but at the head is O(log n): the token is dropped from its arrival index, which
+ * clears its slot, and stays in the heap as a tombstone. Tombstones are skipped when they reach the head, and
+ * once they make up more than a quarter of the heap it is rebuilt without them in one O(n) pass.
+ */
+public final class OfficeQueue {
+
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+
+    private final String officeId;
+    private final PriorityQueue<QueuedToken> waiting = new PriorityQueue<>(QueuedToken.SERVICE_ORDER);
+    // One arrival index per priority rank, for position lookups
+    private final ArrivalIndex[] byRank = {new ArrivalIndex(), new ArrivalIndex(), new ArrivalIndex()};
+    private int tombstones;
+    private long issuedDay;
+    private int issuedCount;
+    // Tokens issued on issuedDay that were cancelled again; they no longer count against the daily limit
+    private int releasedCount;
+    // Live counters for the office's summary, kept up to date by QueueState as tokens move
+    private int inProgressCount;
+    private String nowServing;
+    private long nowServingCalledAt;
+
+    OfficeQueue(String officeId) {
+        this.officeId = officeId;
+    }
+
+    public String getOfficeId() {
+        return officeId;
+    }
+
+    public int issuedOn(long epochDay) {
+        return issuedDay == epochDay ? issuedCount : 0;
+    }
+
+    /** Tokens issued on the day that still count against the office's daily limit. */
+    public int admittedOn(long epochDay) {
+        return issuedDay == epochDay ? issuedCount - releasedCount : 0;
+    }
+
+    void recordIssued(long epochDay) {
+        if (issuedDay != epochDay) {
+            issuedDay = epochDay;
+            issuedCount = 0;
+            releasedCount = 0;
+        }
+        issuedCount++;
+    }
+
+    void recordReleased(long epochDay) {
+        if (issuedDay == epochDay) {
+            releasedCount++;
+        }
+    }
+
+    void setIssued(long epochDay, int count, int released) {
+        issuedDay = epochDay;
+        issuedCount = count;
+        releasedCount = released;
+    }
+
+    /** Tokens called and not yet completed or cancelled. */
+    public int inProgressCount() {
+        return inProgressCount;
+    }
+
+    /** Number of the token called last; it stays shown after that token is completed. */
+    public String getNowServing() {
+        return nowServing;
+    }
+
+    void recordCalled(QueuedToken token) {
+        inProgressCount++;
+        if (nowServing == null || token.getCalledAt() >= nowServingCalledAt) {
+            nowServing = token.getTokenNumber();
+            nowServingCalledAt = token.getCalledAt();
+        }
+    }
+
+    void recordFinished() {
+        inProgressCount--;
+    }
+
+    /** Replaces the in-progress counter with a recount; returns whether it had drifted. */
+    boolean resetInProgress(int count) {
+        boolean drifted = inProgressCount != count;
+        inProgressCount = count;
+        return drifted;
+    }
+
+    long getIssuedDay() {
+        return issuedDay;
+    }
+
+    int getIssuedCount() {
+        return issuedCount;
+    }
+
+    int getReleasedCount() {
+        return releasedCount;
+    }
+
+    void enqueue(QueuedToken token) {
+        waiting.add(token);
+        byRank[QueuedToken.priorityRank(token.getPriority())].add(token);
+    }
+
+    void remove(QueuedToken token) {
+        if (!byRank[QueuedToken.priorityRank(token.getPriority())].remove(token)) {
+            return;
+        }
+        if (waiting.peek() == token) {
+            waiting.poll();
+            return;
+        }
+        tombstones++;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 > waiting.size()) {
+            compact();
+        }
+    }
+
+    /** Next token to serve. Tombstones that surfaced at the head are discarded on the way. */
+    public QueuedToken peek() {
+        QueuedToken head = waiting.peek();
+        while (head != null && isTombstone(head)) {
+            waiting.poll();
+            tombstones--;
+            head = waiting.peek();
+        }
+        return head;
+    }
+
+    public int waitingCount() {
+        return waiting.size() - tombstones;
+    }
+
+    /** Waiting tokens booked before {@code timestamp}, in no particular order. One pass over the line. */
+    public List<QueuedToken> waitingBefore(long timestamp) {
+        List<QueuedToken> before = new ArrayList<>();
+        for (QueuedToken token : waiting) {
+            if (!isTombstone(token) && token.getCreatedAt() < timestamp) {
+                before.add(token);
+            }
+        }
+        return before;
+    }
+
+    private void compact() {
+        waiting.removeIf(OfficeQueue::isTombstone);
+        tombstones = 0;
+    }
+
+    private static boolean isTombstone(QueuedToken token) {
+        return token.getQueueSlot() < 0;
+    }
+
+    /**
+     * Number of waiting tokens that will be served before {@code token}: everything in a higher priority class
+     * plus earlier arrivals in its own. O(log n). Returns -1 when the token is not waiting in this office.
+     */
+    public int aheadOf(QueuedToken token) {
+        int rank = QueuedToken.priorityRank(token.getPriority());
+        int ahead = byRank[rank].countBefore(token);
+        if (ahead < 0) {
+            return -1;
+        }
+        for (int r = 0; r < rank; r++) {
+            ahead += byRank[r].size();
+        }
+        return ahead;
+    }
+
+    /** Waiting tokens in service order. O(n log n); meant for staff views, not hot paths. */
+    public List<QueuedToken> waitingInOrder() {
+        List<QueuedToken> ordered = new ArrayList<>(waiting.size() - tombstones);
+        for (QueuedToken token : waiting) {
+            if (!isTombstone(token)) {
+                ordered.add(token);
+            }
+        }
+        ordered.sort(QueuedToken.SERVICE_ORDER);
+        return ordered;
+    }
+}
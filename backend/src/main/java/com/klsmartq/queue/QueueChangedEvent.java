@@ -0,0 +1,29 @@
+package com.klsmartq.queue;
+
+/**
+ * Published through Spring's event bus after an event has been applied to the local {@link QueueState},
+ * whether it originated here or on another instance.
+ */
+public final class QueueChangedEvent {
+
+    private final QueueEvent event;
+    private final QueuedToken token;
+
+    public QueueChangedEvent(QueueEvent event, QueuedToken token) {
+        this.event = event;
+        this.token = token;
+    }
+
+    public QueueEvent getEvent() {
+        return event;
+    }
+
+    /** Copy of the token after the event was applied. */
+    public QueuedToken getToken() {
+        return token;
+    }
+
+    public boolean isRemote() {
+        return event.isRemote();
+    }
+}
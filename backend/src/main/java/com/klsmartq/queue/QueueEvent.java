@@ -0,0 +1,135 @@
+package com.klsmartq.queue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A single queue state transition as written to the {@link QueueJournal}.
+ * Events carry everything needed to replay them, so recovery never has to consult Postgres.
+ */
+public final class QueueEvent {
+
+    public enum Type {
+        BOOK(1), CALL(2), CHECK_IN(3), COMPLETE(4), CANCEL(5);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        static Type fromCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown queue event type " + code);
+        }
+    }
+
+    private final Type type;
+    private final String tokenId;
+    private final String officeId;
+    private final String studentId;
+    private final String actorId;
+    private final String tokenNumber;
+    private final String purpose;
+    private final String priority;
+    private final long timestamp;
+    private final boolean remote;
+
+    private QueueEvent(Type type, String tokenId, String officeId, String studentId, String actorId,
+                       String tokenNumber, String purpose, String priority, long timestamp, boolean remote) {
+        this.type = type;
+        this.tokenId = tokenId;
+        this.officeId = officeId;
+        this.studentId = studentId;
+        this.actorId = actorId;
+        this.tokenNumber = tokenNumber;
+        this.purpose = purpose;
+        this.priority = priority;
+        this.timestamp = timestamp;
+        this.remote = remote;
+    }
+
+    public static QueueEvent book(String tokenId, String officeId, String studentId, String tokenNumber,
+                                  String purpose, String priority, long timestamp) {
+        return new QueueEvent(Type.BOOK, tokenId, officeId, studentId, studentId, tokenNumber, purpose, priority, timestamp, false);
+    }
+
+    public static QueueEvent transition(Type type, String tokenId, String officeId, String actorId, long timestamp) {
+        if (type == Type.BOOK) {
+            throw new IllegalArgumentException("Use QueueEvent.book for bookings");
+        }
+        return new QueueEvent(type, tokenId, officeId, null, actorId, null, null, null, timestamp, false);
+    }
+
+    /** Marks an event received from another instance; remote events are applied but not written back to Postgres. */
+    public QueueEvent asRemote() {
+        return new QueueEvent(type, tokenId, officeId, studentId, actorId, tokenNumber, purpose, priority, timestamp, true);
+    }
+
+    public Type getType() { return type; }
+    public String getTokenId() { return tokenId; }
+    public String getOfficeId() { return officeId; }
+    public String getStudentId() { return studentId; }
+    public String getActorId() { return actorId; }
+    public String getTokenNumber() { return tokenNumber; }
+    public String getPurpose() { return purpose; }
+    public String getPriority() { return priority; }
+    public long getTimestamp() { return timestamp; }
+    public boolean isRemote() { return remote; }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.code);
+            out.writeLong(timestamp);
+            writeNullable(out, tokenId);
+            writeNullable(out, officeId);
+            writeNullable(out, studentId);
+            writeNullable(out, actorId);
+            writeNullable(out, tokenNumber);
+            writeNullable(out, purpose);
+            writeNullable(out, priority);
+            out.writeBoolean(remote);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static QueueEvent decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Type type = Type.fromCode(in.readUnsignedByte());
+            long timestamp = in.readLong();
+            String tokenId = readNullable(in);
+            String officeId = readNullable(in);
+            String studentId = readNullable(in);
+            String actorId = readNullable(in);
+            String tokenNumber = readNullable(in);
+            String purpose = readNullable(in);
+            String priority = readNullable(in);
+            boolean remote = in.readBoolean();
+            return new QueueEvent(type, tokenId, officeId, studentId, actorId, tokenNumber, purpose, priority, timestamp, remote);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,169 @@
+package com.klsmartq.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of {@link QueueEvent}s stored in fixed-size, memory-mapped segment files.
+ * <p>
+ * Record layout: {@code int length | int crc32(seq, payload) | long seq | payload}. A zero length marks the
+ * end of a segment; a bad checksum marks a torn write and ends replay of that segment. Segments are named
+ * after the first sequence number they may contain, which lets {@link #compact(long)} drop whole files
+ * once a snapshot covers them.
+ */
+public class QueueJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(QueueJournal.class);
+
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private volatile MappedByteBuffer active;
+    private long lastSeq;
+    private boolean opened;
+
+    public QueueJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Replays every intact record with a sequence number above {@code afterSeq}, then opens a fresh segment
+     * for appends. Returns the highest sequence number seen.
+     */
+    public synchronized long recover(long afterSeq, ObjLongConsumer<QueueEvent> consumer) throws IOException {
+        lastSeq = afterSeq;
+        for (Path segment : segments()) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                    int length = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining() - 12) {
+                        break;
+                    }
+                    int crc = buffer.getInt();
+                    long seq = buffer.getLong();
+                    byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    if (checksum(seq, payload) != crc) {
+                        log.warn("Torn journal record at seq {} in {}, skipping rest of segment", seq, segment.getFileName());
+                        break;
+                    }
+                    if (seq > afterSeq) {
+                        consumer.accept(QueueEvent.decode(payload), seq);
+                    }
+                    lastSeq = Math.max(lastSeq, seq);
+                }
+            }
+        }
+        openSegment(lastSeq + 1);
+        opened = true;
+        return lastSeq;
+    }
+
+    /** Appends an event and returns its sequence number. Durable once the page cache is flushed. */
+    public synchronized long append(QueueEvent event) throws IOException {
+        if (!opened) {
+            throw new IllegalStateException("Journal has not been recovered");
+        }
+        byte[] payload = event.encode();
+        int recordSize = RECORD_HEADER_BYTES + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Queue event of " + payload.length + " bytes exceeds journal segment size");
+        }
+        if (active.remaining() < recordSize) {
+            active.force();
+            openSegment(lastSeq + 1);
+        }
+        long seq = lastSeq + 1;
+        active.putInt(payload.length);
+        active.putInt(checksum(seq, payload));
+        active.putLong(seq);
+        active.put(payload);
+        lastSeq = seq;
+        return seq;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /** Forces the active segment to disk. Safe to call concurrently with appends. */
+    public void flush() {
+        MappedByteBuffer buffer = active;
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /** Deletes every closed segment whose records are all covered by a snapshot at {@code snapshotSeq}. */
+    public synchronized void compact(long snapshotSeq) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            long nextFirstSeq = firstSeqOf(segments.get(i + 1));
+            if (nextFirstSeq - 1 > snapshotSeq) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        active = null;
+        opened = false;
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping stays valid after the channel is closed.
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksum(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (seq >>> shift) & 0xFF);
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,141 @@
+package com.klsmartq.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Compacted point-in-time copies of {@link QueueState}. A snapshot at sequence {@code n} plus the journal tail
+ * after {@code n} is enough to restore the queue. Files are written to a temp file, synced and atomically
+ * renamed, and carry a trailing CRC so a half-written snapshot is never loaded. The previous snapshot is kept
+ * as well, so that a damaged newest one can fall back to it as long as the journal still reaches back that far.
+ */
+public class QueueSnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(QueueSnapshotStore.class);
+
+    private static final int MAGIC = 0x4B4C5351; // "KLSQ"
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int KEEP = 2;
+
+    private final Path directory;
+
+    public QueueSnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /** Serializes the state; call while holding the queue lock, then pass the bytes to {@link #write}. */
+    public byte[] encode(QueueState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            state.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Durably writes the snapshot at {@code seq} and removes all but it and the one before. Returns the sequence
+     * the journal may be compacted up to: that of the oldest snapshot kept, or 0 when this is the first.
+     */
+    public long write(long seq, byte[] encoded) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(encoded);
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        ByteBuffer file = ByteBuffer.allocate(encoded.length + Long.BYTES).put(encoded).putLong(crc.getValue()).flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (file.hasRemaining()) {
+                channel.write(file);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        List<Path> snapshots = snapshots();
+        int keepFrom = Math.max(0, snapshots.indexOf(target) - (KEEP - 1));
+        for (Path older : snapshots.subList(0, keepFrom)) {
+            Files.deleteIfExists(older);
+        }
+        return keepFrom < snapshots.indexOf(target) ? seqOf(snapshots.get(keepFrom)) : 0;
+    }
+
+    /** Loads the newest intact snapshot, falling back to older ones if the newest is corrupt. */
+    public Optional<QueueState> readLatest(ZoneId zone) throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path snapshot = snapshots.get(i);
+            byte[] file = Files.readAllBytes(snapshot);
+            if (file.length < Long.BYTES + 8) {
+                continue;
+            }
+            byte[] encoded = Arrays.copyOf(file, file.length - Long.BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(encoded);
+            if (crc.getValue() != ByteBuffer.wrap(file, encoded.length, Long.BYTES).getLong()) {
+                log.warn("Ignoring corrupt queue snapshot {}", snapshot.getFileName());
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+                int magic = in.readInt();
+                int version = in.readInt();
+                if (magic != MAGIC || version < 1 || version > VERSION) {
+                    log.warn("Ignoring queue snapshot {} with unknown format", snapshot.getFileName());
+                    continue;
+                }
+                return Optional.of(QueueState.readFrom(in, zone, version));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Makes the rename itself durable before the journal segments it replaces are deleted. */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (UnsupportedOperationException | AccessDeniedException ex) {
+            // Directories cannot be opened or synced on this platform (Windows); the rename is all we get
+        }
+    }
+
+    private static long seqOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
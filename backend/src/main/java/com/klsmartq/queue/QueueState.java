@@ -0,0 +1,291 @@
+package com.klsmartq.queue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic in-memory queue state. Every mutation goes through {@link #apply(long, QueueEvent)} so that
+ * replaying the journal reproduces exactly the state the live instance had.
+ * <p>
+ * Tokens whose latest version has not yet reached Postgres are tracked as dirty; they survive in snapshots
+ * until {@link #drainDirty()} hands them to the reconciler.
+ */
+public final class QueueState {
+
+    private final ZoneId zone;
+    private final Map<String, QueuedToken> open = new HashMap<>();
+    // Open tokens per student and office; more than one only when instances booked concurrently
+    private final Map<String, Integer> openPerStudent = new HashMap<>();
+    private final Map<String, OfficeQueue> offices = new HashMap<>();
+    private Map<String, QueuedToken> dirty = new LinkedHashMap<>();
+    private long lastSeq;
+
+    public QueueState(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public long epochDay(long timestamp) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone).toEpochDay();
+    }
+
+    public QueuedToken get(String tokenId) {
+        return open.get(tokenId);
+    }
+
+    /** Whether the student holds an open token for the office. */
+    public boolean hasOpenToken(String studentId, String officeId) {
+        return openPerStudent.containsKey(studentKey(studentId, officeId));
+    }
+
+    public OfficeQueue office(String officeId) {
+        return offices.computeIfAbsent(officeId, OfficeQueue::new);
+    }
+
+    /** The office's queue if one is held here, without creating it. */
+    public OfficeQueue findOffice(String officeId) {
+        return offices.get(officeId);
+    }
+
+    public Collection<QueuedToken> openTokens() {
+        return open.values();
+    }
+
+    public Collection<OfficeQueue> offices() {
+        return offices.values();
+    }
+
+    public boolean isEmpty() {
+        return open.isEmpty() && dirty.isEmpty() && lastSeq == 0;
+    }
+
+    /**
+     * Applies a journaled event. Unknown tokens are ignored so that a replay over a snapshot that already
+     * contains the effect of an event is harmless.
+     */
+    public QueuedToken apply(long seq, QueueEvent event) {
+        lastSeq = Math.max(lastSeq, seq);
+        if (event.getType() == QueueEvent.Type.BOOK) {
+            if (open.containsKey(event.getTokenId())) {
+                return open.get(event.getTokenId());
+            }
+            QueuedToken token = new QueuedToken();
+            token.setId(event.getTokenId());
+            token.setTokenNumber(event.getTokenNumber());
+            token.setStudentId(event.getStudentId());
+            token.setOfficeId(event.getOfficeId());
+            token.setPurpose(event.getPurpose());
+            token.setPriority(event.getPriority());
+            token.setStatus(QueuedToken.WAITING);
+            token.setArrival(seq);
+            token.setCreatedAt(event.getTimestamp());
+            addOpen(token);
+            OfficeQueue office = office(token.getOfficeId());
+            office.recordIssued(epochDay(event.getTimestamp()));
+            office.enqueue(token);
+            markDirty(token, event);
+            return token;
+        }
+
+        QueuedToken token = open.get(event.getTokenId());
+        if (token == null) {
+            return null;
+        }
+        switch (event.getType()) {
+            case CALL -> {
+                OfficeQueue office = office(token.getOfficeId());
+                // A call replayed over a snapshot that already holds it is counted once
+                boolean counted = QueuedToken.IN_PROGRESS.equals(token.getStatus());
+                office.remove(token);
+                token.setStatus(QueuedToken.IN_PROGRESS);
+                token.setServedBy(event.getActorId());
+                token.setCalledAt(event.getTimestamp());
+                if (!counted) {
+                    office.recordCalled(token);
+                }
+            }
+            case CHECK_IN -> token.setCheckedIn(true);
+            case COMPLETE -> {
+                if (QueuedToken.IN_PROGRESS.equals(token.getStatus())) {
+                    office(token.getOfficeId()).recordFinished();
+                }
+                token.setStatus(QueuedToken.COMPLETED);
+                token.setCompletedAt(event.getTimestamp());
+                removeOpen(token);
+            }
+            case CANCEL -> {
+                OfficeQueue office = office(token.getOfficeId());
+                if (QueuedToken.WAITING.equals(token.getStatus())) {
+                    office.remove(token);
+                } else if (QueuedToken.IN_PROGRESS.equals(token.getStatus())) {
+                    office.recordFinished();
+                }
+                office.recordReleased(epochDay(token.getCreatedAt()));
+                token.setStatus(QueuedToken.CANCELLED);
+                token.setCompletedAt(event.getTimestamp());
+                removeOpen(token);
+            }
+            default -> throw new IllegalStateException("Unhandled queue event " + event.getType());
+        }
+        markDirty(token, event);
+        return token;
+    }
+
+    /**
+     * Loads an open token from Postgres when no local journal exists. Seeded tokens get negative arrival
+     * numbers so they stay ahead of anything booked after the restart.
+     */
+    public void seed(QueuedToken token) {
+        addOpen(token);
+        if (QueuedToken.WAITING.equals(token.getStatus())) {
+            office(token.getOfficeId()).enqueue(token);
+        } else if (QueuedToken.IN_PROGRESS.equals(token.getStatus())) {
+            office(token.getOfficeId()).recordCalled(token);
+        }
+    }
+
+    public void seedIssued(String officeId, long epochDay, int count, int released) {
+        office(officeId).setIssued(epochDay, count, released);
+    }
+
+    /**
+     * Forgets an office and its open tokens, when another instance takes it over. Pending writes of its tokens
+     * stay dirty so they still reach Postgres. Returns the number of open tokens dropped.
+     */
+    public int removeOffice(String officeId) {
+        offices.remove(officeId);
+        List<QueuedToken> dropped = open.values().stream()
+            .filter(token -> token.getOfficeId().equals(officeId))
+            .toList();
+        dropped.forEach(this::removeOpen);
+        return dropped.size();
+    }
+
+    /** Recounts every office's tokens in progress from the open tokens; returns the offices whose count had drifted. */
+    public List<String> recountInProgress() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (QueuedToken token : open.values()) {
+            if (QueuedToken.IN_PROGRESS.equals(token.getStatus())) {
+                counts.merge(token.getOfficeId(), 1, Integer::sum);
+            }
+        }
+        List<String> drifted = new ArrayList<>();
+        for (OfficeQueue office : offices.values()) {
+            if (office.resetInProgress(counts.getOrDefault(office.getOfficeId(), 0))) {
+                drifted.add(office.getOfficeId());
+            }
+        }
+        return drifted;
+    }
+
+    /** Aligns the sequence counter with the journal after the state was rebuilt from Postgres. */
+    public void rebase(long seq) {
+        lastSeq = seq;
+    }
+
+    private void addOpen(QueuedToken token) {
+        QueuedToken replaced = open.put(token.getId(), token);
+        if (replaced != null) {
+            release(replaced);
+        }
+        openPerStudent.merge(studentKey(token.getStudentId(), token.getOfficeId()), 1, Integer::sum);
+    }
+
+    private void removeOpen(QueuedToken token) {
+        if (open.remove(token.getId()) != null) {
+            release(token);
+        }
+    }
+
+    private void release(QueuedToken token) {
+        openPerStudent.computeIfPresent(studentKey(token.getStudentId(), token.getOfficeId()),
+            (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static String studentKey(String studentId, String officeId) {
+        return studentId + '/' + officeId;
+    }
+
+    private void markDirty(QueuedToken token, QueueEvent event) {
+        // The instance that originated a remote event owns writing it back
+        if (!event.isRemote()) {
+            dirty.put(token.getId(), token.copy());
+        }
+    }
+
+    public List<QueuedToken> drainDirty() {
+        List<QueuedToken> drained = new ArrayList<>(dirty.values());
+        dirty = new LinkedHashMap<>();
+        return drained;
+    }
+
+    /** Puts back tokens whose write failed, unless a newer version has been queued meanwhile. */
+    public void requeueDirty(Collection<QueuedToken> tokens) {
+        for (QueuedToken token : tokens) {
+            dirty.putIfAbsent(token.getId(), token);
+        }
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(lastSeq);
+        out.writeInt(offices.size());
+        for (OfficeQueue office : offices.values()) {
+            out.writeUTF(office.getOfficeId());
+            out.writeLong(office.getIssuedDay());
+            out.writeInt(office.getIssuedCount());
+            out.writeInt(office.getReleasedCount());
+        }
+        out.writeInt(open.size());
+        for (QueuedToken token : open.values()) {
+            token.writeTo(out);
+        }
+        out.writeInt(dirty.size());
+        for (QueuedToken token : dirty.values()) {
+            token.writeTo(out);
+        }
+    }
+
+    static QueueState readFrom(DataInputStream in, ZoneId zone, int version) throws IOException {
+        QueueState state = new QueueState(zone);
+        state.lastSeq = in.readLong();
+        int officeCount = in.readInt();
+        for (int i = 0; i < officeCount; i++) {
+            String officeId = in.readUTF();
+            long day = in.readLong();
+            int issued = in.readInt();
+            // Version 1 snapshots predate the released counter
+            state.seedIssued(officeId, day, issued, version >= 2 ? in.readInt() : 0);
+        }
+        int openCount = in.readInt();
+        for (int i = 0; i < openCount; i++) {
+            state.seed(QueuedToken.readFrom(in));
+        }
+        int dirtyCount = in.readInt();
+        for (int i = 0; i < dirtyCount; i++) {
+            QueuedToken token = QueuedToken.readFrom(in);
+            state.dirty.put(token.getId(), token);
+        }
+        return state;
+    }
+}
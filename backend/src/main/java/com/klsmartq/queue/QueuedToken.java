@@ -0,0 +1,135 @@
+package com.klsmartq.queue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+
+/**
+ * In-memory view of a token held by {@link QueueState}. Instances are mutated only under the queue lock;
+ * callers outside of it should work on a {@link #copy()}.
+ */
+public final class QueuedToken {
+
+    public static final String WAITING = "WAITING";
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+
+    /** Urgent first, then medical, then normal; FIFO by arrival within a class. */
+    public static final Comparator<QueuedToken> SERVICE_ORDER = Comparator
+        .comparingInt((QueuedToken t) -> priorityRank(t.priority))
+        .thenComparingLong(t -> t.arrival);
+
+    private String id;
+    private String tokenNumber;
+    private String studentId;
+    private String officeId;
+    private String purpose;
+    private String priority;
+    private String status;
+    private boolean checkedIn;
+    private String servedBy;
+    private long arrival;
+    private long createdAt;
+    private long calledAt;
+    private long completedAt;
+    // Slot in the office's ArrivalIndex while waiting, -1 once it left the line; not copied or persisted
+    private int queueSlot = -1;
+
+    public static int priorityRank(String priority) {
+        if ("URGENT".equals(priority)) {
+            return 0;
+        }
+        if ("MEDICAL".equals(priority)) {
+            return 1;
+        }
+        return 2;
+    }
+
+    public boolean isOpen() {
+        return WAITING.equals(status) || IN_PROGRESS.equals(status);
+    }
+
+    public QueuedToken copy() {
+        QueuedToken copy = new QueuedToken();
+        copy.id = id;
+        copy.tokenNumber = tokenNumber;
+        copy.studentId = studentId;
+        copy.officeId = officeId;
+        copy.purpose = purpose;
+        copy.priority = priority;
+        copy.status = status;
+        copy.checkedIn = checkedIn;
+        copy.servedBy = servedBy;
+        copy.arrival = arrival;
+        copy.createdAt = createdAt;
+        copy.calledAt = calledAt;
+        copy.completedAt = completedAt;
+        return copy;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(id);
+        out.writeUTF(tokenNumber);
+        out.writeUTF(studentId);
+        out.writeUTF(officeId);
+        QueueEvent.writeNullable(out, purpose);
+        out.writeUTF(priority);
+        out.writeUTF(status);
+        out.writeBoolean(checkedIn);
+        QueueEvent.writeNullable(out, servedBy);
+        out.writeLong(arrival);
+        out.writeLong(createdAt);
+        out.writeLong(calledAt);
+        out.writeLong(completedAt);
+    }
+
+    static QueuedToken readFrom(DataInputStream in) throws IOException {
+        QueuedToken token = new QueuedToken();
+        token.id = in.readUTF();
+        token.tokenNumber = in.readUTF();
+        token.studentId = in.readUTF();
+        token.officeId = in.readUTF();
+        token.purpose = QueueEvent.readNullable(in);
+        token.priority = in.readUTF();
+        token.status = in.readUTF();
+        token.checkedIn = in.readBoolean();
+        token.servedBy = QueueEvent.readNullable(in);
+        token.arrival = in.readLong();
+        token.createdAt = in.readLong();
+        token.calledAt = in.readLong();
+        token.completedAt = in.readLong();
+        return token;
+    }
+
+    // getters/setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getTokenNumber() { return tokenNumber; }
+    public void setTokenNumber(String tokenNumber) { this.tokenNumber = tokenNumber; }
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+    public String getPriority() { return priority; }
+    public void setPriority(String priority) { this.priority = priority; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public boolean isCheckedIn() { return checkedIn; }
+    public void setCheckedIn(boolean checkedIn) { this.checkedIn = checkedIn; }
+    public String getServedBy() { return servedBy; }
+    public void setServedBy(String servedBy) { this.servedBy = servedBy; }
+    public long getArrival() { return arrival; }
+    public void setArrival(long arrival) { this.arrival = arrival; }
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+    public long getCalledAt() { return calledAt; }
+    public void setCalledAt(long calledAt) { this.calledAt = calledAt; }
+    public long getCompletedAt() { return completedAt; }
+    public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
+    int getQueueSlot() { return queueSlot; }
+    void setQueueSlot(int queueSlot) { this.queueSlot = queueSlot; }
+}
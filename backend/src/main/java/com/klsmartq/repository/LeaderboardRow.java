@@ -0,0 +1,11 @@
+package com.klsmartq.repository;
+
+/**
+ * Projection of the columns held by {@code idx_users_student_points}, so the leaderboard is served by an
+ * index-only scan.
+ */
+public interface LeaderboardRow {
+    String getId();
+    String getName();
+    Integer getPoints();
+}
@@ -0,0 +1,30 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.OfficeLiveStats;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface OfficeLiveStatsRepository extends JpaRepository<OfficeLiveStats, String> {
+
+    /**
+     * Writes an office's summary. An unknown now-serving number (nothing called since the queue was reloaded)
+     * keeps the stored one.
+     */
+    // Native writes name their table; without it Hibernate would empty every second-level cache region
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "office_live_stats"))
+    @Query(value = "INSERT INTO office_live_stats (office_id, waiting, in_progress, now_serving, issued_today, updated_at) "
+        + "VALUES (:officeId, :waiting, :inProgress, :nowServing, :issuedToday, now()) "
+        + "ON CONFLICT (office_id) DO UPDATE SET waiting = EXCLUDED.waiting, in_progress = EXCLUDED.in_progress, "
+        + "now_serving = COALESCE(EXCLUDED.now_serving, office_live_stats.now_serving), issued_today = EXCLUDED.issued_today, updated_at = EXCLUDED.updated_at",
+        nativeQuery = true)
+    int upsert(@Param("officeId") String officeId, @Param("waiting") int waiting, @Param("inProgress") int inProgress,
+               @Param("nowServing") String nowServing, @Param("issuedToday") int issuedToday);
+}
@@ -0,0 +1,7 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.Office;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OfficeRepository extends JpaRepository<Office, String> {
+}
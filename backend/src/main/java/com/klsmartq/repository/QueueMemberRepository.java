@@ -0,0 +1,42 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.QueueMember;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/** Cluster membership. Heartbeats and liveness use the database clock, so instance clocks may drift. */
+public interface QueueMemberRepository extends JpaRepository<QueueMember, String> {
+
+    // Native writes name their table; without it Hibernate would empty every second-level cache region
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "queue_members"))
+    @Query(value = "INSERT INTO queue_members (instance_id, base_url, heartbeat_at) VALUES (:id, :url, now()) "
+        + "ON CONFLICT (instance_id) DO UPDATE SET base_url = EXCLUDED.base_url, heartbeat_at = now()", nativeQuery = true)
+    int heartbeat(@Param("id") String instanceId, @Param("url") String baseUrl);
+
+    /**
+     * Members whose last heartbeat is at most {@code timeoutMs} old. Not read-only, so it is answered by the
+     * primary: a lagging replica would show live members as gone.
+     */
+    @Transactional
+    @Query(value = "SELECT * FROM queue_members WHERE heartbeat_at > now() - :timeoutMs * interval '1 millisecond'",
+        nativeQuery = true)
+    List<QueueMember> findLive(@Param("timeoutMs") long timeoutMs);
+
+    /** Removes members that stopped heartbeating long ago; the live check already ignores them. */
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "queue_members"))
+    @Query(value = "DELETE FROM queue_members WHERE heartbeat_at < now() - :ageMs * interval '1 millisecond'",
+        nativeQuery = true)
+    int deleteStale(@Param("ageMs") long ageMs);
+}
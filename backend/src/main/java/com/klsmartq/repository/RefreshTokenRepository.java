@@ -0,0 +1,43 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.RefreshToken;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    // Plain INSERT: save() on an assigned id would SELECT first. Only refresh_tokens is touched, so only its
+    // cached state is invalidated
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "refresh_tokens"))
+    @Query(value = "INSERT INTO refresh_tokens (token_hash, user_id, family_id, expires_at, created_at) "
+        + "VALUES (:hash, :userId, :familyId, :expiresAt, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insert(@Param("hash") String hash, @Param("userId") String userId,
+               @Param("familyId") String familyId, @Param("expiresAt") Instant expiresAt);
+
+    /** Marks an unused, unexpired token used. Returns 0 when another request got there first. */
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken r set r.usedAt = :now "
+        + "where r.tokenHash = :hash and r.usedAt is null and r.expiresAt > :now")
+    int markUsed(@Param("hash") String hash, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.familyId = :familyId")
+    int deleteFamily(@Param("familyId") String familyId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
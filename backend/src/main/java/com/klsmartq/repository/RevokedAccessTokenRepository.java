@@ -0,0 +1,34 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.RevokedAccessToken;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedAccessTokenRepository extends JpaRepository<RevokedAccessToken, String> {
+
+    // The native-spaces hint keeps this insert from invalidating unrelated second-level cache regions
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revoked_access_tokens"))
+    @Query(value = "INSERT INTO revoked_access_tokens (jti, expires_at) VALUES (:jti, :expiresAt) "
+        + "ON CONFLICT (jti) DO NOTHING", nativeQuery = true)
+    int insert(@Param("jti") String jti, @Param("expiresAt") Instant expiresAt);
+
+    /** Ids of revocations still in force. */
+    @Query("select r.jti from RevokedAccessToken r where r.expiresAt > :now")
+    List<String> findActive(@Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedAccessToken r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,16 @@
+package com.klsmartq.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of the columns held by {@code idx_tokens_student_history}, so history pages are served by an
+ * index-only scan.
+ */
+public interface TokenHistoryRow {
+    String getId();
+    String getTokenNumber();
+    String getOfficeId();
+    String getPurpose();
+    String getStatus();
+    Instant getCreatedAt();
+}
@@ -0,0 +1,90 @@
+package com.klsmartq.repository;
+
+import com.klsmartq.entity.Token;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface TokenRepository extends JpaRepository<Token, String> {
+    // Queue state is loaded from these five. They are not read-only so that they are answered by the primary:
+    // with a read replica, an office taken over from another instance could otherwise miss its latest tokens.
+    @Transactional
+    List<Token> findByStatusInOrderByCreatedAtAsc(Collection<String> statuses);
+
+    @Transactional
+    List<Token> findByOfficeIdAndStatusInOrderByCreatedAtAsc(String officeId, Collection<String> statuses);
+
+    /** Ids among the given ones that have a row, whatever its status. */
+    @Transactional
+    @Query("select t.id from Token t where t.id in :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    /** Per office: tokens created since the instant, and how many of those were cancelled. */
+    @Transactional
+    @Query("select t.officeId, count(t), sum(case when t.status = 'CANCELLED' then 1 else 0 end) "
+        + "from Token t where t.createdAt >= :since group by t.officeId")
+    List<Object[]> countIssuedSince(@Param("since") Instant since);
+
+    /** The same for one office: a single row of created and cancelled counts. */
+    @Transactional
+    @Query("select count(t), sum(case when t.status = 'CANCELLED' then 1 else 0 end) "
+        + "from Token t where t.officeId = :officeId and t.createdAt >= :since")
+    List<Object[]> countIssuedSince(@Param("officeId") String officeId, @Param("since") Instant since);
+
+    /**
+     * Keyset page of a student's tokens, newest first. The row comparison on (created_at, id) lets Postgres
+     * resume the range scan on idx_tokens_student_history instead of skipping an offset.
+     */
+    @Query(value = "SELECT t.id AS id, t.token_number AS tokenNumber, t.office_id AS officeId, t.purpose AS purpose, "
+        + "t.status AS status, t.created_at AS createdAt "
+        + "FROM tokens t "
+        + "WHERE t.student_id = :studentId "
+        + "AND (t.created_at, t.id) < (:cursorAt, :cursorId) "
+        + "AND (CAST(:officeId AS VARCHAR) IS NULL OR t.office_id = :officeId) "
+        + "AND (CAST(:status AS VARCHAR) IS NULL OR t.status = :status) "
+        + "ORDER BY t.created_at DESC, t.id DESC "
+        + "LIMIT :limit", nativeQuery = true)
+    List<TokenHistoryRow> findHistoryPage(@Param("studentId") String studentId,
+                                          @Param("cursorAt") Instant cursorAt,
+                                          @Param("cursorId") String cursorId,
+                                          @Param("officeId") String officeId,
+                                          @Param("status") String status,
+                                          @Param("limit") int limit);
+
+    /**
+     * Writes a token's latest state from the queue write-behind in one statement, without loading it first. With
+     * {@code forwardOnly} a stored status that is further along (WAITING, then IN_PROGRESS, then closed) is kept:
+     * in cluster mode a late write from an instance that has since lost the office must not undo what the new
+     * owner did. Returns 0 when the row was kept.
+     */
+    // Native writes name their table; without it Hibernate would empty every second-level cache region
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tokens"))
+    @Query(value = "INSERT INTO tokens (id, token_number, student_id, office_id, purpose, priority, status, is_checked_in, "
+        + "served_by, created_at, called_at, completed_at) "
+        + "VALUES (:id, :tokenNumber, :studentId, :officeId, :purpose, :priority, :status, :checkedIn, "
+        + ":servedBy, :createdAt, :calledAt, :completedAt) "
+        + "ON CONFLICT (id) DO UPDATE SET token_number = EXCLUDED.token_number, student_id = EXCLUDED.student_id, "
+        + "office_id = EXCLUDED.office_id, purpose = EXCLUDED.purpose, priority = EXCLUDED.priority, "
+        + "status = EXCLUDED.status, is_checked_in = EXCLUDED.is_checked_in, served_by = EXCLUDED.served_by, "
+        + "created_at = EXCLUDED.created_at, called_at = EXCLUDED.called_at, completed_at = EXCLUDED.completed_at "
+        + "WHERE NOT :forwardOnly "
+        + "OR (CASE EXCLUDED.status WHEN 'WAITING' THEN 0 WHEN 'IN_PROGRESS' THEN 1 ELSE 2 END) "
+        + ">= (CASE tokens.status WHEN 'WAITING' THEN 0 WHEN 'IN_PROGRESS' THEN 1 ELSE 2 END)",
+        nativeQuery = true)
+    int upsert(@Param("id") String id, @Param("tokenNumber") String tokenNumber, @Param("studentId") String studentId,
+               @Param("officeId") String officeId, @Param("purpose") String purpose, @Param("priority") String priority,
+               @Param("status") String status, @Param("checkedIn") boolean checkedIn, @Param("servedBy") String servedBy,
+               @Param("createdAt") Instant createdAt, @Param("calledAt") Instant calledAt,
+               @Param("completedAt") Instant completedAt, @Param("forwardOnly") boolean forwardOnly);
+}
@@ -1,9 +1,23 @@
 package com.klsmartq.repository;
 
 import com.klsmartq.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, String> {
+    /** Result is cached; any Hibernate write to users invalidates it. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmailIgnoreCase(String email);
+
+    /** Students with the most points; ties go to the smaller id so pages are stable. */
+    @Query(value = "SELECT u.id AS id, u.name AS name, u.points AS points FROM users u "
+        + "WHERE u.role = 'STUDENT' ORDER BY u.points DESC NULLS LAST, u.id LIMIT :limit", nativeQuery = true)
+    List<LeaderboardRow> findLeaderboard(@Param("limit") int limit);
 }
@@ -0,0 +1,143 @@
+package com.klsmartq.service;
+
+import com.klsmartq.repository.RevokedAccessTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Access tokens revoked before their expiry, keyed by JWT id. Revocations are written to Postgres and held in
+ * memory as a Bloom filter over an exact set: almost every check is a few hashed bit probes that answer "not
+ * revoked", and only a filter hit (a revoked token or a rare false positive) looks at the set. Both are
+ * rebuilt from the table at startup and on every refresh, which also drops expired entries (a Bloom filter
+ * cannot delete) and picks up revocations made by other instances.
+ */
+@Service
+public class AccessTokenRevocations {
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenRevocations.class);
+
+    /** Fixed-size Bloom filter with double hashing over a 64-bit FNV-1a hash; bits are set without locking. */
+    static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+            this.bits = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round(Math.log(2) * bits / expectedEntries));
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    private record Snapshot(BloomFilter filter, Set<String> exact) {}
+
+    private final RevokedAccessTokenRepository repository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private volatile Snapshot snapshot;
+
+    public AccessTokenRevocations(RevokedAccessTokenRepository repository,
+                                  @Value("${jwt.revocation.expected-entries:10000}") int expectedEntries,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshot = new Snapshot(new BloomFilter(expectedEntries, falsePositiveRate), ConcurrentHashMap.newKeySet());
+    }
+
+    /** True when the token with this id has been revoked. Tokens without an id cannot be revoked. */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        Snapshot current = snapshot;
+        return current.filter.mightContain(jti) && current.exact.contains(jti);
+    }
+
+    /** Revokes the token until {@code expiresAt}, after which it is rejected by its own expiry anyway. */
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        repository.insert(jti, expiresAt);
+        // Under the lock so a concurrent reload cannot swap in a snapshot read before the insert
+        synchronized (this) {
+            add(snapshot, jti);
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        reload();
+    }
+
+    /** Rebuilds the filter from the table: drops expired revocations and adds those of other instances. */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-ms:30000}", initialDelayString = "${jwt.revocation.refresh-ms:30000}")
+    public synchronized void reload() {
+        Instant now = Instant.now();
+        try {
+            repository.deleteExpired(now);
+            List<String> ids = repository.findActive(now);
+            Snapshot next = new Snapshot(new BloomFilter(Math.max(expectedEntries, ids.size() * 2), falsePositiveRate),
+                ConcurrentHashMap.newKeySet(ids.size() * 2));
+            for (String jti : ids) {
+                add(next, jti);
+            }
+            snapshot = next;
+        } catch (RuntimeException ex) {
+            // Keep serving the current set; the next refresh tries again
+            log.warn("Could not reload revoked access tokens: {}", ex.getMessage());
+        }
+    }
+
+    private static void add(Snapshot target, String jti) {
+        target.exact.add(jti);
+        target.filter.add(jti);
+    }
+}
@@ -8,8 +8,12 @@ import com.klsmartq.repository.UserRepository;
 import com.klsmartq.util.JsonUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Collections;
 import java.util.Set;
@@ -23,12 +27,15 @@ public class AdminUserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuditLog auditLog;
 
-    public AdminUserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AdminUserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuditLog auditLog) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.auditLog = auditLog;
     }
 
+    @Transactional(readOnly = true)
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll()
             .stream()
@@ -36,7 +43,8 @@ public class AdminUserService {
             .collect(Collectors.toList());
     }
 
-    public UserDTO createUser(AdminCreateUserRequest request) {
+    @Transactional
+    public UserDTO createUser(User actor, AdminCreateUserRequest request) {
         validateCreateRequest(request);
 
         String normalizedEmail = request.getEmail().trim().toLowerCase();
@@ -56,10 +64,12 @@ public class AdminUserService {
         user.setAssignedOfficeIds(JsonUtils.writeStringList(assignedOffices));
 
         User saved = userRepository.save(user);
+        recordAfterCommit(actor.getId(), "user.create", saved.getId(), "role=" + role);
         return toDto(saved);
     }
 
-    public UserDTO updateUser(String userId, AdminUpdateUserRequest request) {
+    @Transactional
+    public UserDTO updateUser(User actor, String userId, AdminUpdateUserRequest request) {
         if (userId == null || userId.isBlank()) {
             throw new IllegalArgumentException("User id is required");
         }
@@ -70,12 +80,14 @@ public class AdminUserService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
+        List<String> changed = new ArrayList<>();
         if (request.getName() != null) {
             String trimmedName = request.getName().trim();
             if (trimmedName.length() < 2) {
                 throw new IllegalArgumentException("Name must be at least 2 characters long");
             }
             user.setName(trimmedName);
+            changed.add("name");
         }
 
         if (request.getEmail() != null && !request.getEmail().equalsIgnoreCase(user.getEmail())) {
@@ -87,28 +99,51 @@ public class AdminUserService {
                 .filter(existing -> !existing.getId().equals(userId))
                 .ifPresent(existing -> { throw new IllegalStateException("Email already registered"); });
             user.setEmail(normalizedEmail);
+            changed.add("email");
         }
 
         String roleToApply = user.getRole();
         if (request.getRole() != null) {
             roleToApply = normalizeRole(request.getRole());
             user.setRole(roleToApply);
+            changed.add("role=" + roleToApply);
         }
 
         if (request.getAssignedOfficeIds() != null || !"STAFF".equalsIgnoreCase(roleToApply)) {
             List<String> assigned = sanitizeAssignedOfficeIds(request.getAssignedOfficeIds(), roleToApply);
             user.setAssignedOfficeIds(JsonUtils.writeStringList(assigned));
+            changed.add("assignedOfficeIds");
         }
 
         User saved = userRepository.save(user);
+        recordAfterCommit(actor.getId(), "user.update", userId, String.join(",", changed));
         return toDto(saved);
     }
 
-    public void deleteUser(String userId) {
+    @Transactional
+    public void deleteUser(User actor, String userId) {
         if (userId == null || userId.isBlank()) {
             throw new IllegalArgumentException("User id is required");
         }
-        userRepository.deleteById(userId);
+        // Cached lookup; deleting an unknown id stays a no-op and is not audited
+        userRepository.findById(userId).ifPresent(user -> {
+            userRepository.delete(user);
+            recordAfterCommit(actor.getId(), "user.delete", userId, null);
+        });
+    }
+
+    /** Audits a change once its transaction has committed, so a rolled-back change leaves no entry. */
+    private void recordAfterCommit(String actorId, String action, String userId, String details) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            auditLog.record(actorId, action, "user", userId, details);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                auditLog.record(actorId, action, "user", userId, details);
+            }
+        });
     }
 
     private void validateCreateRequest(AdminCreateUserRequest request) {
@@ -0,0 +1,176 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.Office;
+import com.klsmartq.repository.OfficeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Enforces each office's daily {@code token_limit} without a database round trip or the queue lock.
+ * <p>
+ * Every office has one counter per day that holds two numbers: {@code used}, which counts admitted tokens
+ * plus reservations in flight, and {@code pending}, which counts the reservations alone. A booking reserves
+ * capacity with a CAS on that counter before it does anything else. It then commits once its event is applied,
+ * or rolls back if the booking fails. Cancellations and remote bookings adjust the counter as they happen.
+ * {@link QueueService} periodically resets {@code used} to the queue state's admitted count plus
+ * {@code pending}, so a drifted counter is corrected without losing reservations still in flight.
+ */
+@Service
+public class AdmissionController {
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    /** Day-scoped counter packing {@code used} (high 32 bits) and {@code pending} (low 32 bits). */
+    private static final class DayCounter {
+        final long epochDay;
+        final AtomicLong value = new AtomicLong();
+
+        DayCounter(long epochDay) {
+            this.epochDay = epochDay;
+        }
+    }
+
+    private final OfficeRepository officeRepository;
+    private final Map<String, Integer> limits = new ConcurrentHashMap<>();
+    private final Map<String, DayCounter> counters = new ConcurrentHashMap<>();
+
+    public AdmissionController(OfficeRepository officeRepository) {
+        this.officeRepository = officeRepository;
+    }
+
+    /**
+     * Reserves one token of the office's capacity for the day. Returns false when the office is full, and
+     * throws {@link IllegalArgumentException} for an office that does not exist, keeping nothing for its id.
+     * Every successful reservation must be followed by exactly one {@link #commit} or {@link #rollback}.
+     */
+    public boolean tryReserve(String officeId, long epochDay) {
+        Integer limit = limitFor(officeId);
+        if (limit == null) {
+            throw new IllegalArgumentException("Office not found");
+        }
+        AtomicLong value = counter(officeId, epochDay).value;
+        while (true) {
+            long current = value.get();
+            if (limit > 0 && used(current) >= limit) {
+                return false;
+            }
+            if (value.compareAndSet(current, pack(used(current) + 1, pending(current) + 1))) {
+                return true;
+            }
+        }
+    }
+
+    /** The reserved booking has been applied to the queue state; it now counts as admitted. */
+    public void commit(String officeId, long epochDay) {
+        update(officeId, epochDay, 0, -1);
+    }
+
+    /** The reserved booking failed; its capacity is returned. */
+    public void rollback(String officeId, long epochDay) {
+        update(officeId, epochDay, -1, -1);
+    }
+
+    /** A booking made by another instance was applied locally. */
+    public void admitted(String officeId, long epochDay) {
+        counter(officeId, epochDay);
+        update(officeId, epochDay, 1, 0);
+    }
+
+    /** A token issued on the given day was cancelled. */
+    public void released(String officeId, long epochDay) {
+        update(officeId, epochDay, -1, 0);
+    }
+
+    /**
+     * Aligns the day's counters with the admitted counts of the queue state. Call while holding the queue lock
+     * so no commit, cancel or remote booking interleaves with the correction.
+     */
+    public void reconcile(long epochDay, Map<String, Integer> admittedByOffice) {
+        counters.entrySet().removeIf(entry -> entry.getValue().epochDay < epochDay);
+        admittedByOffice.forEach((officeId, admitted) -> {
+            AtomicLong value = counter(officeId, epochDay).value;
+            while (true) {
+                long current = value.get();
+                long next = pack(admitted + pending(current), pending(current));
+                if (current == next || value.compareAndSet(current, next)) {
+                    break;
+                }
+            }
+        });
+    }
+
+    /** Reloads limits so edits to {@code offices.token_limit} take effect without a restart. */
+    @Scheduled(fixedDelayString = "${admission.limits-refresh-ms:60000}")
+    public void refreshLimits() {
+        try {
+            List<Office> offices = officeRepository.findAll();
+            for (Office office : offices) {
+                limits.put(office.getId(), office.getTokenLimit());
+            }
+            limits.keySet().retainAll(offices.stream().map(Office::getId).collect(Collectors.toSet()));
+        } catch (Exception ex) {
+            log.warn("Could not refresh office token limits: {}", ex.getMessage());
+        }
+    }
+
+    /** Admitted tokens plus in-flight reservations, for monitoring. */
+    public int used(String officeId, long epochDay) {
+        DayCounter counter = counters.get(officeId);
+        return counter != null && counter.epochDay == epochDay ? used(counter.value.get()) : 0;
+    }
+
+    /** The office's limit (0 for none), or null when it does not exist. Misses are not cached. */
+    private Integer limitFor(String officeId) {
+        Integer limit = limits.get(officeId);
+        if (limit == null) {
+            // Office created since the last refresh
+            limit = officeRepository.findById(officeId).map(Office::getTokenLimit).orElse(null);
+            if (limit != null) {
+                limits.put(officeId, limit);
+            }
+        }
+        return limit;
+    }
+
+    private DayCounter counter(String officeId, long epochDay) {
+        DayCounter counter = counters.get(officeId);
+        if (counter != null && counter.epochDay >= epochDay) {
+            return counter;
+        }
+        return counters.compute(officeId, (id, existing) ->
+            existing != null && existing.epochDay >= epochDay ? existing : new DayCounter(epochDay));
+    }
+
+    private void update(String officeId, long epochDay, int usedDelta, int pendingDelta) {
+        DayCounter counter = counters.get(officeId);
+        if (counter == null || counter.epochDay != epochDay) {
+            return;
+        }
+        while (true) {
+            long current = counter.value.get();
+            long next = pack(Math.max(0, used(current) + usedDelta), Math.max(0, pending(current) + pendingDelta));
+            if (counter.value.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static long pack(int used, int pending) {
+        return ((long) used << 32) | (pending & 0xFFFFFFFFL);
+    }
+
+    private static int used(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int pending(long value) {
+        return (int) value;
+    }
+}
@@ -0,0 +1,267 @@
+package com.klsmartq.service;
+
+import com.klsmartq.audit.AuditEvent;
+import com.klsmartq.audit.AuditRingBuffer;
+import com.klsmartq.dto.AuditEntry;
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.queue.QueueEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of admin and queue actions in the monthly-partitioned {@code audit_log} table. Recording an action
+ * only puts it in an {@link AuditRingBuffer}; one background thread drains the buffer and writes multi-row
+ * {@code INSERT}s of up to {@code audit.batch-size} rows.
+ * <p>
+ * When the buffer is full, {@code audit.overflow=drop} (the default) discards the action and counts it in a
+ * periodic warning, while {@code block} makes the caller wait for the writer. Queue actions are recorded under
+ * the queue lock and are always dropped instead, so a slow database cannot stall the queue. A failed batch is
+ * kept and retried with backoff; on shutdown the writer stops taking new work and writes what is left. Actions
+ * still in the buffer are not yet visible to {@link #find}.
+ */
+@Service
+public class AuditLog {
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final int MAX_RESULTS = 1000;
+    private static final long DROP_WARN_INTERVAL_MS = 10_000;
+    private static final String INSERT_SQL =
+        "INSERT INTO audit_log (occurred_at, actor_id, action, target_type, target_id, details) VALUES ";
+
+    private final DataSource dataSource;
+    private final AuditRingBuffer buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final boolean enabled;
+    private final boolean blockWhenFull;
+
+    @Value("${audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLog(DataSource dataSource,
+                    @Value("${audit.enabled:true}") boolean enabled,
+                    @Value("${audit.buffer-size:65536}") int bufferSize,
+                    @Value("${audit.overflow:drop}") String overflow) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.buffer = new AuditRingBuffer(bufferSize);
+        this.blockWhenFull = switch (overflow.trim().toLowerCase(Locale.ROOT)) {
+            case "drop" -> false;
+            case "block" -> true;
+            default -> throw new IllegalArgumentException("Invalid audit.overflow: " + overflow);
+        };
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (batchSize < 1 || batchSize > 5000) {
+            throw new IllegalArgumentException("Invalid audit.batch-size: " + batchSize);
+        }
+        ensurePartitions();
+        running = true;
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Stops accepting actions and writes everything still buffered. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(10_000);
+        }
+    }
+
+    public void record(String actorId, String action, String targetType, String targetId, String details) {
+        record(new AuditEvent(Instant.now(), actorId, action, targetType, targetId, details));
+    }
+
+    public void record(AuditEvent event) {
+        record(event, blockWhenFull);
+    }
+
+    private void record(AuditEvent event, boolean block) {
+        if (!enabled) {
+            return;
+        }
+        while (!buffer.offer(event)) {
+            if (!block || !running) {
+                dropped.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Local queue actions; remote ones are recorded by the instance where they happened. Never waits for the
+     * writer, whatever {@code audit.overflow} says: this runs under the queue lock.
+     */
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent changed) {
+        if (changed.isRemote()) {
+            return;
+        }
+        QueueEvent event = changed.getEvent();
+        record(new AuditEvent(Instant.ofEpochMilli(event.getTimestamp()), event.getActorId(),
+            "queue." + event.getType().name().toLowerCase(Locale.ROOT), "token", event.getTokenId(),
+            "office=" + event.getOfficeId()), false);
+    }
+
+    /** Newest first, within {@code [from, to)}, optionally for one actor. */
+    public List<AuditEntry> find(String actorId, Instant from, Instant to, Integer limit) {
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(Duration.ofDays(7)) : from;
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        String actor = actorId == null || actorId.isBlank() ? null : actorId;
+        int size = limit == null ? 100 : Math.max(1, Math.min(limit, MAX_RESULTS));
+        String sql = "SELECT occurred_at, actor_id, action, target_type, target_id, details FROM audit_log"
+            + " WHERE occurred_at >= ? AND occurred_at < ?" + (actor == null ? "" : " AND actor_id = ?")
+            + " ORDER BY occurred_at DESC LIMIT ?";
+        List<AuditEntry> entries = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement query = connection.prepareStatement(sql)) {
+            int param = 1;
+            query.setTimestamp(param++, Timestamp.from(start));
+            query.setTimestamp(param++, Timestamp.from(end));
+            if (actor != null) {
+                query.setString(param++, actor);
+            }
+            query.setInt(param, size);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    entries.add(new AuditEntry(rows.getTimestamp(1).toInstant(), rows.getString(2), rows.getString(3),
+                        rows.getString(4), rows.getString(5), rows.getString(6)));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read the audit log", ex);
+        }
+        return entries;
+    }
+
+    /**
+     * Creates this month's and next month's partitions. Rows outside every partition land in
+     * {@code audit_log_default}; old months are removed by dropping their partition.
+     */
+    @Scheduled(fixedDelayString = "${audit.partition-check-ms:21600000}", initialDelayString = "${audit.partition-check-ms:21600000}")
+    public void ensurePartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (YearMonth month : List.of(current, current.plusMonths(1))) {
+                statement.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS audit_log_p%d%02d PARTITION OF audit_log FOR VALUES FROM ('%s') TO ('%s')",
+                    month.getYear(), month.getMonthValue(), month.atDay(1) + " 00:00:00+00",
+                    month.plusMonths(1).atDay(1) + " 00:00:00+00"));
+            }
+        } catch (SQLException ex) {
+            // Rows still go to the default partition
+            log.warn("Could not create audit log partitions: {}", ex.getMessage());
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long backoffMs = 500;
+        long lastDropWarn = 0;
+        while (running) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty()) {
+                if (write(batch)) {
+                    batch.clear();
+                    backoffMs = 500;
+                } else {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                    backoffMs = Math.min(backoffMs * 2, 30_000);
+                    continue;
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (dropped.get() > 0 && now - lastDropWarn >= DROP_WARN_INTERVAL_MS) {
+                log.warn("Audit buffer full, dropped {} actions", dropped.getAndSet(0));
+                lastDropWarn = now;
+            }
+            if (buffer.size() < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+        }
+        // Shutting down: write what is left, giving up on the first failure
+        while (true) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty() || !write(batch)) {
+                break;
+            }
+            batch.clear();
+        }
+        if (!batch.isEmpty() || buffer.size() > 0) {
+            log.error("Lost {} audit log entries on shutdown", batch.size() + buffer.size());
+        }
+        if (dropped.get() > 0) {
+            log.warn("Audit buffer full, dropped {} actions", dropped.getAndSet(0));
+        }
+    }
+
+    private boolean write(List<AuditEvent> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL.length() + batch.size() * 20).append(INSERT_SQL);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement(sql.toString())) {
+            int param = 1;
+            for (AuditEvent event : batch) {
+                insert.setTimestamp(param++, Timestamp.from(event.occurredAt()));
+                insert.setString(param++, event.actorId());
+                insert.setString(param++, event.action());
+                insert.setString(param++, event.targetType());
+                insert.setString(param++, event.targetId());
+                insert.setString(param++, event.details());
+            }
+            insert.executeUpdate();
+            return true;
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Could not write {} audit log entries, will retry: {}", batch.size(), ex.getMessage());
+            return false;
+        }
+    }
+}
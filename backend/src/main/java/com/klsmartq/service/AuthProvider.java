@@ -0,0 +1,21 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.User;
+
+/**
+ * Where student credentials are checked, selected with {@code auth.provider}: {@code supabase} (Supabase Auth,
+ * the default) or {@code local} (BCrypt hashes in the users table, no network). A provider only checks
+ * credentials and keeps the profile row in step; the session is issued the same way for every provider by
+ * {@link RefreshTokenService#startSession}.
+ */
+public interface AuthProvider {
+
+    /** Creates a student account. Throws IllegalArgumentException for invalid input or a taken email. */
+    void registerStudent(String name, String email, String password);
+
+    /** Confirms a registration with the emailed code, where the provider asks for one. */
+    void confirmRegistration(String email, String code);
+
+    /** Returns the verified profile for the credentials. Throws IllegalArgumentException when they are wrong. */
+    User authenticate(String email, String password);
+}
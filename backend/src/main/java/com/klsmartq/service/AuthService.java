@@ -1,44 +1,43 @@
 package com.klsmartq.service;
 
-import com.klsmartq.dto.AuthResponse;
-import com.klsmartq.dto.UserDTO;
-import com.klsmartq.entity.TempRegistration;
 import com.klsmartq.entity.User;
-import com.klsmartq.repository.TempRegistrationRepository;
 import com.klsmartq.repository.UserRepository;
-import com.klsmartq.util.JsonUtils;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Local {@link AuthProvider}: BCrypt hashes in the users table, no remote calls. Students are created verified
+ * unless {@code auth.local.verify-email} is set, in which case registration goes through an emailed code first;
+ * the pending sign-up is held in {@link PendingRegistrationStore} until the account is created.
+ * Accounts managed by Supabase (empty password hash) cannot log in here.
+ */
 @Service
-public class AuthService {
+@ConditionalOnProperty(name = "auth.provider", havingValue = "local")
+public class AuthService implements AuthProvider {
 
     private final UserRepository userRepository;
-    private final TempRegistrationRepository tempRepo;
+    private final PendingRegistrationStore pendingRegistrations;
     private final EmailService emailService;
+    private final ProfileProvisioner profileProvisioner;
 
-    @Value("${jwt.secret:dev-secret-kl-smartq}")
-    private String jwtSecret;
-
-    @Value("${jwt.expiration:3600}")
-    private long jwtExpiration;
+    @Value("${auth.local.verify-email:false}")
+    private boolean verifyEmail;
 
     private final PasswordEncoder passwordEncoder;
-    private final JwtUtil jwtUtil;
 
-    public AuthService(UserRepository userRepository, TempRegistrationRepository tempRepo, EmailService emailService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserRepository userRepository, PendingRegistrationStore pendingRegistrations, EmailService emailService, PasswordEncoder passwordEncoder, ProfileProvisioner profileProvisioner) {
         this.userRepository = userRepository;
-        this.tempRepo = tempRepo;
+        this.pendingRegistrations = pendingRegistrations;
         this.emailService = emailService;
         this.passwordEncoder = passwordEncoder;
-        this.jwtUtil = jwtUtil;
+        this.profileProvisioner = profileProvisioner;
     }
 
     private boolean validEmail(String email) {
@@ -49,70 +48,56 @@ public class AuthService {
         return pw != null && pw.matches("(?=.{8,})(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)(?=.*\\W).*");
     }
 
+    @Override
+    public void registerStudent(String name, String email, String password) {
+        if (!verifyEmail) {
+            if (!validEmail(email)) throw new IllegalArgumentException("Invalid email");
+            if (!validPassword(password)) throw new IllegalArgumentException("Password complexity");
+            profileProvisioner.register(UUID.randomUUID().toString(), name, email, passwordEncoder.encode(password));
+            return;
+        }
+        startRegistration(name, email, password);
+    }
+
+    @Override
+    public void confirmRegistration(String email, String code) {
+        if (!verifyEmail) {
+            return;
+        }
+        verifyCode(email, code);
+        completeRegistration(email);
+    }
+
+    @Override
+    public User authenticate(String email, String password) {
+        User user = userRepository.findByEmailIgnoreCase(email).orElseThrow(() -> new IllegalArgumentException("Invalid email or password"));
+        String hash = user.getPasswordHash();
+        if (hash == null || hash.isEmpty() || !passwordEncoder.matches(password, hash)) throw new IllegalArgumentException("Invalid email or password");
+        if (!user.isEmailVerified()) throw new IllegalStateException("Email not verified. Please verify your email first.");
+        return user;
+    }
+
     public void startRegistration(String name, String email, String password) {
         if (!validEmail(email)) throw new IllegalArgumentException("Invalid email");
         if (!validPassword(password)) throw new IllegalArgumentException("Password complexity") ;
-        Optional<User> existing = userRepository.findByEmailIgnoreCase(email);
-        if (existing.isPresent()) throw new IllegalStateException("Email already registered");
+        // Cached query; a taken address gets no code
+        if (userRepository.findByEmailIgnoreCase(email).isPresent()) throw new IllegalArgumentException("Email already registered");
 
         String hashed = passwordEncoder.encode(password);
         String code = RandomStringUtils.randomNumeric(6);
         Instant expires = Instant.now().plus(10, ChronoUnit.MINUTES);
-
-        TempRegistration temp = new TempRegistration();
-        temp.setEmail(email.toLowerCase()); temp.setName(name); temp.setPasswordHash(hashed);
-        temp.setCode(code); temp.setExpiresAt(expires); temp.setVerified(false);
-        tempRepo.save(temp);
+        pendingRegistrations.put(name, email, hashed, code, expires);
 
         // Send email using SendGrid HTTP API (works on Render)
         emailService.sendVerificationCode(email, code);
-    }    public void verifyCode(String email, String code) {
-        TempRegistration temp = tempRepo.findById(email.toLowerCase()).orElseThrow(() -> new IllegalStateException("No pending registration"));
-        if (temp.isVerified()) return;
-        if (!temp.getCode().equals(code)) throw new IllegalArgumentException("Invalid code");
-        if (temp.getExpiresAt().isBefore(Instant.now())) throw new IllegalArgumentException("Code expired");
-        temp.setVerified(true); tempRepo.save(temp);
     }
 
-    public AuthResponse completeRegistration(String email) {
-        TempRegistration temp = tempRepo.findById(email.toLowerCase()).orElseThrow(() -> new IllegalStateException("No pending registration"));
-        if (!temp.isVerified()) throw new IllegalStateException("Email not verified");
-        User user = new User();
-        user.setId(UUID.randomUUID().toString());
-        user.setName(temp.getName()); user.setEmail(temp.getEmail()); user.setPasswordHash(temp.getPasswordHash());
-        user.setEmailVerified(true);
-        user.setRole("STUDENT"); // Auto-assign STUDENT role for self-registration
-        userRepository.save(user);
-
-        tempRepo.deleteById(email.toLowerCase());
-
-    String token = jwtUtil.generateToken(user.getId(), user.getEmail(), jwtExpiration);
-        UserDTO dto = new UserDTO(
-            user.getId(),
-            user.getName(),
-            user.getEmail(),
-            user.isEmailVerified(),
-            user.getRole(),
-            user.getPoints(),
-            JsonUtils.readStringList(user.getAssignedOfficeIds())
-        );
-        return new AuthResponse(token, dto, jwtExpiration);
+    public void verifyCode(String email, String code) {
+        pendingRegistrations.verify(email, code);
     }
 
-    public AuthResponse login(String email, String password) {
-        User user = userRepository.findByEmailIgnoreCase(email).orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
-    if (!passwordEncoder.matches(password, user.getPasswordHash())) throw new IllegalArgumentException("Invalid credentials");
-        if (!user.isEmailVerified()) throw new IllegalStateException("Email not verified");
-    String token = jwtUtil.generateToken(user.getId(), user.getEmail(), jwtExpiration);
-        UserDTO dto = new UserDTO(
-            user.getId(),
-            user.getName(),
-            user.getEmail(),
-            user.isEmailVerified(),
-            user.getRole(),
-            user.getPoints(),
-            JsonUtils.readStringList(user.getAssignedOfficeIds())
-        );
-        return new AuthResponse(token, dto, jwtExpiration);
+    public User completeRegistration(String email) {
+        PendingRegistrationStore.Confirmed confirmed = pendingRegistrations.take(email);
+        return profileProvisioner.register(UUID.randomUUID().toString(), confirmed.name(), confirmed.email(), confirmed.passwordHash());
     }
 }
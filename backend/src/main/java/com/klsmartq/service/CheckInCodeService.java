@@ -0,0 +1,74 @@
+package com.klsmartq.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Short-lived check-in codes for the counter kiosk. A code is {@code <tokenId>.<expiry>.<signature>}: the expiry
+ * in epoch seconds (base 36) and a 128-bit HMAC under a key derived from the JWT key for check-in codes only,
+ * about 65 URL-safe characters for a QR code.
+ * Verification is a single HMAC with no lookup; the student app fetches a fresh code with the token.
+ */
+@Service
+public class CheckInCodeService {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ThreadLocal<Mac> macs;
+    private final long ttlSeconds;
+
+    public CheckInCodeService(JwtUtil jwtUtil, @Value("${check-in.code-ttl-seconds:600}") long ttlSeconds) {
+        SecretKeySpec key = new SecretKeySpec(jwtUtil.deriveKey("check-in"), HMAC);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+            }
+        });
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public String issue(String tokenId) {
+        String payload = tokenId + "." + Long.toString(System.currentTimeMillis() / 1000 + ttlSeconds, 36);
+        return payload + "." + ENCODER.encodeToString(signature(payload));
+    }
+
+    /** Returns the token id of a valid, unexpired code. */
+    public String verify(String code) {
+        int sigDot = code == null ? -1 : code.lastIndexOf('.');
+        int expDot = sigDot <= 0 ? -1 : code.lastIndexOf('.', sigDot - 1);
+        if (expDot <= 0) {
+            throw new IllegalArgumentException("Invalid check-in code");
+        }
+        String payload = code.substring(0, sigDot);
+        try {
+            if (!MessageDigest.isEqual(signature(payload), DECODER.decode(code.substring(sigDot + 1)))) {
+                throw new IllegalArgumentException("Invalid check-in code");
+            }
+            if (Long.parseLong(code.substring(expDot + 1, sigDot), 36) < System.currentTimeMillis() / 1000) {
+                throw new IllegalStateException("Check-in code has expired; refresh it in the app");
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid check-in code");
+        }
+        return code.substring(0, expDot);
+    }
+
+    private byte[] signature(String payload) {
+        return Arrays.copyOf(macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8)), SIGNATURE_BYTES);
+    }
+}
@@ -0,0 +1,36 @@
+package com.klsmartq.service;
+
+import com.klsmartq.config.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Connection pool occupancy of this instance: the primary and replica pools when reads are routed, else the one pool. */
+@Service
+public class DataSourceStatistics {
+
+    private final DataSource dataSource;
+
+    public DataSourceStatistics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public Map<String, Object> statistics() {
+        try {
+            if (dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+                return dataSource.unwrap(ReadWriteRoutingDataSource.class).statistics();
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                result.put("primary", ReadWriteRoutingDataSource.pool(dataSource.unwrap(HikariDataSource.class), null));
+            }
+            return result;
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read connection pool statistics", ex);
+        }
+    }
+}
@@ -21,6 +21,16 @@ public class EmailService {
     @Value("${sendgrid.from-name:KL SmartQ}")
     private String fromName;
 
+    // Overrides for pointing the client at a local stand-in (load tests); empty means api.sendgrid.com over HTTPS
+    @Value("${sendgrid.host:}")
+    private String sendgridHost;
+
+    @Value("${sendgrid.plain-http:false}")
+    private boolean sendgridPlainHttp;
+
+    // Built on the first send and reused; keeps SendGrid's HTTP client out of startup
+    private volatile SendGrid sendGrid;
+
     public void sendVerificationCode(String toEmail, String code) {
         // If SendGrid API key is not set, fall back to console logging (for local development)
         if (sendgridApiKey == null || sendgridApiKey.trim().isEmpty()) {
@@ -46,7 +56,7 @@ public class EmailService {
 
         Mail mail = new Mail(from, subject, to, content);
 
-        SendGrid sg = new SendGrid(sendgridApiKey);
+        SendGrid sg = sendGrid();
         Request request = new Request();
 
         try {
@@ -68,4 +78,21 @@ public class EmailService {
             throw new IllegalStateException("Failed to send verification email: " + ex.getMessage());
         }
     }
+
+    private SendGrid sendGrid() {
+        SendGrid sg = sendGrid;
+        if (sg == null) {
+            synchronized (this) {
+                sg = sendGrid;
+                if (sg == null) {
+                    sg = new SendGrid(sendgridApiKey, sendgridPlainHttp);
+                    if (sendgridHost != null && !sendgridHost.isBlank()) {
+                        sg.setHost(sendgridHost);
+                    }
+                    sendGrid = sg;
+                }
+            }
+        }
+        return sg;
+    }
 }
@@ -0,0 +1,99 @@
+package com.klsmartq.service;
+
+import com.klsmartq.config.HibernateCacheConfig;
+import com.klsmartq.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Upkeep of the Hibernate second-level cache for writes Hibernate cannot see, and its statistics. Native
+ * statements that change {@code users} rows (profile upserts, point batches) leave the cached entity and cached
+ * email lookups as they were, so their callers evict them. Inside a transaction the eviction happens right away,
+ * so a statement returning the row does not get the cached copy back, and again when the transaction ends, so a
+ * concurrent reader cannot have cached the old row in between.
+ */
+@Service
+public class EntityCache {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public EntityCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    public void evictUsers(Collection<String> userIds) {
+        evictNowAndOnCompletion(() -> userIds.forEach(id -> sessionFactory.getCache().evictEntityData(User.class, id)));
+    }
+
+    /** Drops cached email lookups, which may say "no such user" for a row that was just inserted. */
+    public void evictUserEmailLookups() {
+        evictNowAndOnCompletion(() -> sessionFactory.getCache().evictDefaultQueryRegion());
+    }
+
+    /** Hits, misses and puts per region since startup, plus the statements sent to the database. */
+    public Map<String, Object> statistics() {
+        Statistics stats = sessionFactory.getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", stats.isStatisticsEnabled());
+        if (!stats.isStatisticsEnabled()) {
+            return result;
+        }
+        Map<String, Object> regions = new LinkedHashMap<>();
+        if (sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            for (String region : HibernateCacheConfig.DATA_REGIONS) {
+                regions.put(region, region(stats.getDomainDataRegionStatistics(region)));
+            }
+            for (String region : HibernateCacheConfig.QUERY_REGIONS) {
+                CacheRegionStatistics regionStats = stats.getQueryRegionStatistics(region);
+                if (regionStats != null) {
+                    regions.put(region, region(regionStats));
+                }
+            }
+        }
+        result.put("regions", regions);
+        result.put("secondLevelCache", counts(stats.getSecondLevelCacheHitCount(), stats.getSecondLevelCacheMissCount(),
+            stats.getSecondLevelCachePutCount()));
+        result.put("queryCache", counts(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount(),
+            stats.getQueryCachePutCount()));
+        result.put("entityLoads", stats.getEntityLoadCount());
+        result.put("statementsPrepared", stats.getPrepareStatementCount());
+        result.put("since", stats.getStart());
+        return result;
+    }
+
+    private static Map<String, Object> region(CacheRegionStatistics stats) {
+        return counts(stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+    }
+
+    private static Map<String, Object> counts(long hits, long misses, long puts) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("hits", hits);
+        counts.put("misses", misses);
+        counts.put("puts", puts);
+        counts.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return counts;
+    }
+
+    private static void evictNowAndOnCompletion(Runnable eviction) {
+        eviction.run();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // Also on rollback: the statement may have loaded its uncommitted result into the cache
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                eviction.run();
+            }
+        });
+    }
+}
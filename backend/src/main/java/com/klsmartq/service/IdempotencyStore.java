@@ -0,0 +1,155 @@
+package com.klsmartq.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounded, expiring store of responses keyed by {@code Idempotency-Key}. The first request for a key becomes its
+ * owner and runs; concurrent duplicates block on the owner's result instead of executing again. Each key
+ * remembers the fingerprint of the request that claimed it, and a different request under the same key is refused.
+ */
+@Component
+public class IdempotencyStore {
+
+    /** A captured response that can be replayed verbatim. */
+    public static final class StoredResponse {
+        private final int status;
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        public StoredResponse(int status, String contentType, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatus() { return status; }
+        public String getContentType() { return contentType; }
+        public Map<String, List<String>> getHeaders() { return headers; }
+        public byte[] getBody() { return body; }
+    }
+
+    /** Either a response to replay, or ownership of the key (the caller must then call {@link #complete}). */
+    public static final class Claim {
+        private final StoredResponse replay;
+
+        private Claim(StoredResponse replay) {
+            this.replay = replay;
+        }
+
+        public boolean isOwner() { return replay == null; }
+        public StoredResponse getReplay() { return replay; }
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final StoredResponse response;
+        final long expiresAt;
+
+        Entry(String fingerprint, StoredResponse response, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<StoredResponse> result) {}
+
+    private final Map<String, InFlight> inFlight = new HashMap<>();
+    private final LinkedHashMap<String, Entry> completed;
+
+    @Value("${idempotency.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    public IdempotencyStore(@Value("${idempotency.max-entries:10000}") int maxEntries) {
+        this.completed = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Claims {@code key} for the request with this fingerprint, or returns the response to replay. Throws
+     * {@link IllegalArgumentException} when the key belongs to a different request.
+     */
+    public Claim claim(String key, String fingerprint) {
+        while (true) {
+            InFlight pending;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                evictExpired(now);
+                Entry entry = completed.get(key);
+                if (entry != null) {
+                    requireSameRequest(entry.fingerprint, fingerprint);
+                    return new Claim(entry.response);
+                }
+                pending = inFlight.get(key);
+                if (pending == null) {
+                    inFlight.put(key, new InFlight(fingerprint, new CompletableFuture<>()));
+                    return new Claim(null);
+                }
+                requireSameRequest(pending.fingerprint(), fingerprint);
+            }
+            try {
+                StoredResponse response = pending.result().get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+                if (response != null) {
+                    return new Claim(response);
+                }
+                // The owner failed without a replayable response; race to become the next owner
+            } catch (TimeoutException ex) {
+                throw new IllegalStateException("A request with this Idempotency-Key is still being processed");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request");
+            } catch (ExecutionException ex) {
+                // Treated like a failed owner
+            }
+        }
+    }
+
+    /** Records the owner's response. A null response releases the key so the client may retry. */
+    public void complete(String key, StoredResponse response) {
+        InFlight pending;
+        synchronized (this) {
+            pending = inFlight.remove(key);
+            if (response != null && pending != null) {
+                completed.put(key, new Entry(pending.fingerprint(), response,
+                    System.currentTimeMillis() + ttlSeconds * 1000));
+            }
+        }
+        if (pending != null) {
+            pending.result().complete(response);
+        }
+    }
+
+    private static void requireSameRequest(String claimed, String fingerprint) {
+        if (!claimed.equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private void evictExpired(long now) {
+        // Insertion order equals expiry order, so stop at the first live entry
+        Iterator<Entry> it = completed.values().iterator();
+        while (it.hasNext() && it.next().expiresAt <= now) {
+            it.remove();
+        }
+    }
+}
@@ -8,8 +8,12 @@ import java.time.Instant;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -17,6 +21,17 @@ public class JwtUtil {
     @Value("${jwt.secret:dev-secret-kl-smartq}")
     private String jwtSecret;
 
+    // Created per thread on first use, after the secret has been injected
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(adjustKey(jwtSecret.getBytes(StandardCharsets.UTF_8)), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+        }
+    });
+
     public boolean validateToken(String token) {
         try {
             Claims claims = Jwts.parserBuilder()
@@ -31,6 +46,15 @@ public class JwtUtil {
         }
     }
 
+    /** Claims of a validly signed, unexpired token; throws otherwise. Parses the token once. */
+    public Claims parseClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(adjustKey(jwtSecret.getBytes(StandardCharsets.UTF_8))))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
     public String getUserIdFromToken(String token) {
         Claims claims = Jwts.parserBuilder()
                 .setSigningKey(Keys.hmacShaKeyFor(adjustKey(jwtSecret.getBytes(StandardCharsets.UTF_8))))
@@ -43,6 +67,7 @@ public class JwtUtil {
     public String generateToken(String subject, String email, long expirationSeconds) {
         java.util.Date exp = java.util.Date.from(Instant.now().plusSeconds(expirationSeconds));
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .claim("email", email)
                 .setExpiration(exp)
@@ -50,6 +75,15 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Key for another kind of signed value, derived from the JWT signing key as HMAC-SHA256 of {@code purpose}.
+     * Values signed under it are never valid for another purpose, nor as a JWT signature; the JWT key itself
+     * signs nothing else.
+     */
+    public byte[] deriveKey(String purpose) {
+        return macs.get().doFinal(("kl-smartq key: " + purpose).getBytes(StandardCharsets.UTF_8));
+    }
+
     private static byte[] adjustKey(byte[] input) {
         if (input.length >= 32) return input;
         byte[] out = new byte[32];
@@ -0,0 +1,158 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.OfficeLiveStatsDTO;
+import com.klsmartq.entity.OfficeLiveStats;
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.repository.OfficeLiveStatsRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code office_live_stats} read model behind the public office summaries. The queue state keeps each
+ * office's counters (waiting, in progress, now serving, issued today) up to date as tokens move; a queue change
+ * only marks its office, and the marked offices are upserted in one transaction every
+ * {@code live-stats.flush-interval-ms}. Summaries are answered from the table, one primary-key read per office,
+ * on any instance.
+ * <p>
+ * Reconciliation recounts the counters from the open tokens and rewrites the rows that differ from them, which
+ * also catches a failed write or the daily count rolling over at midnight. Like the token write-behind, remote
+ * queue events are written by the instance that originated them, and in cluster mode each instance writes the
+ * offices it owns.
+ */
+@Service
+public class OfficeLiveStatsService {
+    private static final Logger log = LoggerFactory.getLogger(OfficeLiveStatsService.class);
+
+    private static final int MAX_OFFICES = 100;
+
+    private final QueueService queueService;
+    private final OfficeLiveStatsRepository repository;
+    private final TransactionTemplate transactions;
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    public OfficeLiveStatsService(QueueService queueService, OfficeLiveStatsRepository repository,
+                                  TransactionTemplate transactions) {
+        this.queueService = queueService;
+        this.repository = repository;
+        this.transactions = transactions;
+    }
+
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent event) {
+        if (!event.isRemote()) {
+            changed.add(event.getToken().getOfficeId());
+        }
+    }
+
+    /** Writes the summaries of offices changed since the last run. A failed write is retried on the next run. */
+    @Scheduled(fixedDelayString = "${live-stats.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        // Taken out before the counters are read, so a change in between is either included or marked again
+        List<String> officeIds = new ArrayList<>(changed);
+        changed.removeAll(officeIds);
+        try {
+            write(queueService.liveStats(officeIds));
+        } catch (Exception ex) {
+            log.warn("Office summary write failed for {} offices, will retry: {}", officeIds.size(), ex.getMessage());
+            changed.addAll(officeIds);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /** Corrects counters and rows that drifted from the open tokens. */
+    @Scheduled(fixedDelayString = "${live-stats.reconcile-interval-ms:60000}",
+        initialDelayString = "${live-stats.reconcile-interval-ms:60000}")
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconcile() {
+        try {
+            List<OfficeLiveStats> expected = queueService.recountLiveStats();
+            Map<String, OfficeLiveStats> stored = byOffice(repository.findAllById(
+                expected.stream().map(OfficeLiveStats::getOfficeId).toList()));
+            for (OfficeLiveStats stats : expected) {
+                // Nothing called since the queue was reloaded: the stored number is still the latest
+                if (stats.getNowServing() == null && stored.containsKey(stats.getOfficeId())) {
+                    stats.setNowServing(stored.get(stats.getOfficeId()).getNowServing());
+                }
+            }
+            List<OfficeLiveStats> drifted = expected.stream()
+                .filter(stats -> !stored.containsKey(stats.getOfficeId())
+                    || !stored.get(stats.getOfficeId()).sameCounts(stats))
+                .collect(Collectors.toList());
+            write(drifted);
+            if (!drifted.isEmpty()) {
+                log.info("Reconciled {} of {} office summaries", drifted.size(), expected.size());
+            }
+        } catch (Exception ex) {
+            log.warn("Office summary reconciliation failed: {}", ex.getMessage());
+        }
+    }
+
+    /** Summaries of the given offices in that order, or of every office that has one. Offices without a row are idle. */
+    @Transactional(readOnly = true)
+    public List<OfficeLiveStatsDTO> get(Collection<String> officeIds) {
+        if (officeIds == null || officeIds.isEmpty()) {
+            return repository.findAll(Sort.by("officeId")).stream()
+                .map(OfficeLiveStatsService::toDto)
+                .collect(Collectors.toList());
+        }
+        Set<String> requested = new LinkedHashSet<>(officeIds);
+        if (requested.size() > MAX_OFFICES) {
+            throw new IllegalArgumentException("At most " + MAX_OFFICES + " offices per request");
+        }
+        Map<String, OfficeLiveStats> stored = byOffice(repository.findAllById(requested));
+        return requested.stream()
+            .map(officeId -> stored.containsKey(officeId) ? toDto(stored.get(officeId)) : idle(officeId))
+            .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public OfficeLiveStatsDTO get(String officeId) {
+        return repository.findById(officeId).map(OfficeLiveStatsService::toDto).orElseGet(() -> idle(officeId));
+    }
+
+    private void write(List<OfficeLiveStats> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        transactions.executeWithoutResult(status -> stats.forEach(row -> repository.upsert(row.getOfficeId(),
+            row.getWaiting(), row.getInProgress(), row.getNowServing(), row.getIssuedToday())));
+    }
+
+    private static Map<String, OfficeLiveStats> byOffice(List<OfficeLiveStats> rows) {
+        return rows.stream().collect(Collectors.toMap(OfficeLiveStats::getOfficeId, Function.identity()));
+    }
+
+    private static OfficeLiveStatsDTO toDto(OfficeLiveStats stats) {
+        return new OfficeLiveStatsDTO(stats.getOfficeId(), stats.getWaiting(), stats.getInProgress(),
+            stats.getNowServing(), stats.getIssuedToday(), stats.getUpdatedAt());
+    }
+
+    private static OfficeLiveStatsDTO idle(String officeId) {
+        return new OfficeLiveStatsDTO(officeId, 0, 0, null, 0, null);
+    }
+}
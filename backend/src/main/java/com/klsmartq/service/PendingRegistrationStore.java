@@ -0,0 +1,194 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.TempRegistration;
+import com.klsmartq.repository.TempRegistrationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, expiring in-process store of sign-ups waiting for their emailed code, keyed by lower-cased email.
+ * Checking a code touches no database; each pending sign-up allows a limited number of wrong codes, and the count
+ * survives registering again with the same email. A sign-up that used them all stays behind as a tombstone until
+ * it expires, refusing new registrations for the email.
+ * <p>
+ * With {@code auth.local.pending.write-behind} the entries are also copied to {@code temp_registrations} in the
+ * background, and a miss is read through from the table, so a code can be confirmed on another instance. Attempt
+ * counts stay per instance.
+ */
+@Component
+public class PendingRegistrationStore {
+    private static final Logger log = LoggerFactory.getLogger(PendingRegistrationStore.class);
+
+    private static final class Pending {
+        final String name;
+        final String email;
+        final String passwordHash;
+        final String code;
+        final Instant expiresAt;
+        volatile boolean verified;
+        int attempts;
+
+        Pending(String name, String email, String passwordHash, String code, Instant expiresAt, boolean verified, int attempts) {
+            this.name = name;
+            this.email = email;
+            this.passwordHash = passwordHash;
+            this.code = code;
+            this.expiresAt = expiresAt;
+            this.verified = verified;
+            this.attempts = attempts;
+        }
+    }
+
+    /** A confirmed sign-up, ready to become an account. */
+    public record Confirmed(String name, String email, String passwordHash) {}
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    // Emails whose entry changed or went away since the last flush (write-behind only)
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final TempRegistrationRepository tempRepo;
+
+    @Value("${auth.local.pending.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${auth.local.pending.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${auth.local.pending.write-behind:false}")
+    private boolean writeBehind;
+
+    public PendingRegistrationStore(TempRegistrationRepository tempRepo) {
+        this.tempRepo = tempRepo;
+    }
+
+    /**
+     * Stores a sign-up until {@code expiresAt}, replacing an earlier one for the email but keeping its attempt count.
+     * Refused while an earlier one with no attempts left has not expired.
+     */
+    public void put(String name, String email, String passwordHash, String code, Instant expiresAt) {
+        String key = email.toLowerCase();
+        if (pending.size() >= maxEntries && !pending.containsKey(key)) {
+            sweep();
+            if (pending.size() >= maxEntries) {
+                throw new IllegalStateException("Too many pending registrations, please try again later");
+            }
+        }
+        pending.compute(key, (k, existing) -> {
+            int attempts = existing != null && existing.expiresAt.isAfter(Instant.now()) ? existing.attempts : 0;
+            if (attempts >= maxAttempts) {
+                throw new IllegalStateException("Too many invalid codes, please try again later");
+            }
+            return new Pending(name, key, passwordHash, code, expiresAt, false, attempts);
+        });
+        markDirty(key);
+    }
+
+    /** Checks the code. After too many wrong codes the sign-up is kept, with every code refused, until it expires. */
+    public void verify(String email, String code) {
+        String key = email.toLowerCase();
+        Pending entry = find(key);
+        if (entry.verified) return;
+        synchronized (entry) {
+            if (entry.attempts >= maxAttempts) {
+                throw new IllegalArgumentException("Too many invalid codes, please try again later");
+            }
+            if (code == null || !MessageDigest.isEqual(entry.code.getBytes(StandardCharsets.UTF_8), code.getBytes(StandardCharsets.UTF_8))) {
+                entry.attempts++;
+                throw new IllegalArgumentException("Invalid code");
+            }
+        }
+        entry.verified = true;
+        markDirty(key);
+    }
+
+    /** Removes and returns a verified sign-up. */
+    public Confirmed take(String email) {
+        String key = email.toLowerCase();
+        Pending entry = find(key);
+        if (!entry.verified) throw new IllegalStateException("Email not verified");
+        remove(key, entry);
+        return new Confirmed(entry.name, entry.email, entry.passwordHash);
+    }
+
+    private Pending find(String key) {
+        Pending entry = pending.get(key);
+        if (entry == null && writeBehind) {
+            entry = tempRepo.findById(key)
+                .map(t -> new Pending(t.getName(), t.getEmail(), t.getPasswordHash(), t.getCode(), t.getExpiresAt(), t.isVerified(), 0))
+                .map(loaded -> pending.merge(key, loaded, (current, ignored) -> current))
+                .orElse(null);
+        }
+        if (entry == null) throw new IllegalStateException("No pending registration");
+        if (entry.expiresAt.isBefore(Instant.now())) {
+            remove(key, entry);
+            throw new IllegalArgumentException("Code expired");
+        }
+        return entry;
+    }
+
+    private void remove(String key, Pending entry) {
+        if (pending.remove(key, entry)) {
+            markDirty(key);
+        }
+    }
+
+    private void markDirty(String key) {
+        if (writeBehind) {
+            dirty.add(key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.local.pending.sweep-interval-ms:60000}")
+    public void sweep() {
+        Instant now = Instant.now();
+        pending.entrySet().removeIf(e -> {
+            if (e.getValue().expiresAt.isBefore(now)) {
+                markDirty(e.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /** Copies changed entries to temp_registrations and deletes those that are gone. */
+    @Scheduled(fixedDelayString = "${auth.local.pending.flush-interval-ms:1000}")
+    public void flush() {
+        if (!writeBehind || dirty.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(dirty);
+        dirty.removeAll(keys);
+        List<TempRegistration> upserts = new ArrayList<>();
+        List<String> deletes = new ArrayList<>();
+        for (String key : keys) {
+            Pending entry = pending.get(key);
+            if (entry == null) {
+                deletes.add(key);
+                continue;
+            }
+            TempRegistration temp = new TempRegistration();
+            temp.setEmail(entry.email); temp.setName(entry.name); temp.setPasswordHash(entry.passwordHash);
+            temp.setCode(entry.code); temp.setExpiresAt(entry.expiresAt); temp.setVerified(entry.verified);
+            upserts.add(temp);
+        }
+        try {
+            if (!upserts.isEmpty()) tempRepo.saveAll(upserts);
+            if (!deletes.isEmpty()) tempRepo.deleteAllByIdInBatch(deletes);
+        } catch (RuntimeException ex) {
+            // Retry with the next flush
+            dirty.addAll(keys);
+            log.warn("Could not write pending registrations: {}", ex.getMessage());
+        }
+    }
+}
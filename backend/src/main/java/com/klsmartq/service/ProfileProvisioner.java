@@ -0,0 +1,107 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Creates or updates the local profile row of a user in one statement. Replaces the
+ * exists/find/save sequences of the auth paths, where {@code save} on an assigned id also costs a SELECT.
+ * The statements bypass Hibernate's cache invalidation, so the cached row and email lookups are evicted.
+ */
+@Service
+public class ProfileProvisioner {
+
+    // Insert or overwrite name/email/role; points, badges and office assignments of an existing row are kept
+    private static final String PROVISION_SQL = """
+        INSERT INTO users (id, name, email, password_hash, is_email_verified, role, points, created_at)
+        VALUES (:id, :name, :email, '', TRUE, :role, 0, CURRENT_TIMESTAMP)
+        ON CONFLICT (id) DO UPDATE
+           SET name = EXCLUDED.name, email = EXCLUDED.email, role = EXCLUDED.role, is_email_verified = TRUE
+        RETURNING *
+        """;
+
+    // Insert a verified student or mark an existing row verified. The already-verified case (every regular
+    // login) writes nothing: the CTE returns no row and the existing one is selected instead.
+    private static final String ENSURE_VERIFIED_SQL = """
+        WITH upserted AS (
+            INSERT INTO users (id, name, email, password_hash, is_email_verified, role, points, created_at)
+            VALUES (:id, :name, :email, '', TRUE, 'STUDENT', 0, CURRENT_TIMESTAMP)
+            ON CONFLICT (id) DO UPDATE SET is_email_verified = TRUE
+             WHERE users.is_email_verified IS NOT TRUE
+            RETURNING *
+        )
+        SELECT * FROM upserted
+        UNION ALL
+        SELECT * FROM users WHERE id = :id AND NOT EXISTS (SELECT 1 FROM upserted)
+        """;
+
+    // New local account with its own password hash; an existing email in any case inserts nothing and returns
+    // no row (the conflict target is the unique index idx_users_email_upper)
+    private static final String REGISTER_SQL = """
+        INSERT INTO users (id, name, email, password_hash, is_email_verified, role, points, created_at)
+        VALUES (:id, :name, :email, :passwordHash, TRUE, 'STUDENT', 0, CURRENT_TIMESTAMP)
+        ON CONFLICT (upper(email)) DO NOTHING
+        RETURNING *
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final EntityCache entityCache;
+
+    public ProfileProvisioner(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /** Creates the profile, or overwrites name, email and role of an existing one, and marks it verified. */
+    @Transactional
+    public User provision(String id, String name, String email, String role) {
+        evict(id);
+        return (User) entityManager.createNativeQuery(PROVISION_SQL, User.class)
+            .setParameter("id", id)
+            .setParameter("name", name)
+            .setParameter("email", email.toLowerCase())
+            .setParameter("role", role)
+            .getSingleResult();
+    }
+
+    /**
+     * Returns the profile after making sure it exists and is marked verified. A missing profile is created as
+     * a student with {@code name}; an existing one keeps its name, email and role.
+     */
+    @Transactional
+    public User ensureVerified(String id, String name, String email) {
+        evict(id);
+        return (User) entityManager.createNativeQuery(ENSURE_VERIFIED_SQL, User.class)
+            .setParameter("id", id)
+            .setParameter("name", name)
+            .setParameter("email", email.toLowerCase())
+            .getSingleResult();
+    }
+
+    /** Creates a verified local student with a password hash. Throws IllegalArgumentException when the email is taken. */
+    @Transactional
+    public User register(String id, String name, String email, String passwordHash) {
+        evict(id);
+        List<?> rows = entityManager.createNativeQuery(REGISTER_SQL, User.class)
+            .setParameter("id", id)
+            .setParameter("name", name)
+            .setParameter("email", email.toLowerCase())
+            .setParameter("passwordHash", passwordHash)
+            .getResultList();
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Email already registered");
+        }
+        return (User) rows.get(0);
+    }
+
+    private void evict(String id) {
+        entityCache.evictUsers(List.of(id));
+        entityCache.evictUserEmailLookups();
+    }
+}
@@ -0,0 +1,69 @@
+package com.klsmartq.service;
+
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.queue.QueuedToken;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fans queue changes out to server-sent-event subscribers of an office, for local and remote events alike.
+ * Sends happen on a separate thread so a slow client never holds the queue lock.
+ */
+@Component
+public class QueueBroadcaster {
+
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "queue-broadcaster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseEmitter subscribe(String officeId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Set<SseEmitter> emitters = subscribers.computeIfAbsent(officeId, id -> ConcurrentHashMap.newKeySet());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(ex -> emitters.remove(emitter));
+        return emitter;
+    }
+
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent changed) {
+        QueuedToken token = changed.getToken();
+        Set<SseEmitter> emitters = subscribers.get(token.getOfficeId());
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        Map<String, Object> payload = Map.of(
+            "type", changed.getEvent().getType().name(),
+            "tokenId", token.getId(),
+            "tokenNumber", token.getTokenNumber(),
+            "status", token.getStatus()
+        );
+        sender.execute(() -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().name("queue").data(payload));
+                } catch (IOException | IllegalStateException ex) {
+                    emitters.remove(emitter);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+}
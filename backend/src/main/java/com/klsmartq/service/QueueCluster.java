@@ -0,0 +1,346 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.Office;
+import com.klsmartq.entity.QueueMember;
+import com.klsmartq.queue.HashRing;
+import com.klsmartq.repository.OfficeRepository;
+import com.klsmartq.repository.QueueMemberRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster mode ({@code queue.cluster.enabled}): every office queue lives on exactly one instance. Instances
+ * heartbeat a row in {@code queue_members}; the live rows form a {@link HashRing} that assigns the offices, and
+ * {@code ClusterRoutingFilter} forwards requests for another instance's office to its owner.
+ * <p>
+ * Ownership moves through Postgres. When the ring changes, an instance that lost an office drops it, writes its
+ * pending changes back and tells the new owner, which then loads the office from the database. Until then the
+ * new owner answers requests for that office with 503. If the previous owner is gone, or has not reported within
+ * {@code queue.cluster.handoff-timeout-ms}, the office is loaded straight away. An instance that cannot
+ * heartbeat for longer than the member timeout stops serving offices and joins again once it can.
+ */
+@Component
+@ConditionalOnProperty(name = "queue.cluster.enabled", havingValue = "true")
+public class QueueCluster {
+    private static final Logger log = LoggerFactory.getLogger(QueueCluster.class);
+
+    public static final String KEY_HEADER = "Cluster-Key";
+    public static final String FORWARDED_HEADER = "Cluster-Forwarded";
+
+    public record Member(String id, String url) {}
+
+    private record View(HashRing ring, Map<String, Member> members) {}
+
+    private final QueueService queueService;
+    private final QueueMemberRepository memberRepository;
+    private final OfficeRepository officeRepository;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final Member self;
+    private final byte[] key;
+    // Offices this instance owns but has not loaded yet, with the time to stop waiting for the handoff
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private volatile View view = new View(HashRing.of(List.of(), 1), Map.of());
+    private volatile boolean joined;
+    private volatile boolean started;
+    private long lastHeartbeat;
+
+    @Value("${queue.cluster.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${queue.cluster.member-timeout-ms:5000}")
+    private long memberTimeoutMs;
+
+    @Value("${queue.cluster.handoff-timeout-ms:5000}")
+    private long handoffTimeoutMs;
+
+    public QueueCluster(QueueService queueService, QueueMemberRepository memberRepository, OfficeRepository officeRepository,
+                        @Value("${queue.cluster.instance-id:}") String instanceId,
+                        @Value("${queue.cluster.advertise-url:}") String advertiseUrl,
+                        @Value("${queue.cluster.key:}") String key,
+                        @Value("${server.port:8080}") int port,
+                        @Value("${queue.notify.enabled:false}") boolean notifyEnabled) {
+        if (notifyEnabled) {
+            throw new IllegalArgumentException("queue.cluster.enabled and queue.notify.enabled cannot both be set");
+        }
+        if (key.isBlank()) {
+            throw new IllegalArgumentException("queue.cluster.key is required in cluster mode");
+        }
+        this.queueService = queueService;
+        this.memberRepository = memberRepository;
+        this.officeRepository = officeRepository;
+        this.self = new Member(instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId,
+            advertiseUrl.isBlank() ? "http://127.0.0.1:" + port : advertiseUrl.replaceAll("/+$", ""));
+        this.key = key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Joins once the web server is up, so that handoff notices from the current owners can reach this instance. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        started = true;
+        heartbeat();
+    }
+
+    public Member self() {
+        return self;
+    }
+
+    public boolean isSelf(Member member) {
+        return self.id().equals(member.id());
+    }
+
+    /** Owner of the office, or null while this instance is not part of the cluster. */
+    public Member ownerOf(String officeId) {
+        return member(view.ring.owner(officeId));
+    }
+
+    /** Owner of a ring position taken from a token id, or null while this instance is not part of the cluster. */
+    public Member ownerOfHash(int hash) {
+        return member(view.ring.ownerOfHash(hash));
+    }
+
+    private Member member(String id) {
+        View current = view;
+        return joined && id != null ? current.members.get(id) : null;
+    }
+
+    /** False while the office is being handed over to this instance. */
+    public boolean isReady(String officeId) {
+        return !pending.containsKey(officeId);
+    }
+
+    public boolean isReadyHash(int hash) {
+        return pending.isEmpty() || pending.keySet().stream().noneMatch(officeId -> HashRing.hash(officeId) == hash);
+    }
+
+    public boolean isClusterKey(String presented) {
+        return presented != null && MessageDigest.isEqual(key, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Members and the owner of every known office, for operators. */
+    public Map<String, Object> describe() {
+        View current = view;
+        Map<String, String> members = new TreeMap<>();
+        current.members.values().forEach(member -> members.put(member.id(), member.url()));
+        Map<String, String> owners = new TreeMap<>();
+        for (String officeId : knownOffices()) {
+            String owner = current.ring.owner(officeId);
+            if (owner != null) {
+                owners.put(officeId, owner);
+            }
+        }
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("instanceId", self.id());
+        description.put("joined", joined);
+        description.put("members", members);
+        description.put("owners", owners);
+        description.put("loading", new TreeSet<>(pending.keySet()));
+        return description;
+    }
+
+    /** Refreshes this instance's heartbeat and reacts to members joining or leaving. */
+    @Scheduled(fixedDelayString = "${queue.cluster.heartbeat-ms:1000}", initialDelayString = "${queue.cluster.heartbeat-ms:1000}")
+    public synchronized void heartbeat() {
+        if (!started) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Member> members = new HashMap<>();
+        try {
+            memberRepository.heartbeat(self.id(), self.url());
+            for (QueueMember row : memberRepository.findLive(memberTimeoutMs)) {
+                members.put(row.getInstanceId(), new Member(row.getInstanceId(), row.getBaseUrl()));
+            }
+        } catch (RuntimeException ex) {
+            if (joined && now - lastHeartbeat > memberTimeoutMs) {
+                log.warn("No cluster heartbeat for {} ms, releasing all offices until the database is back: {}",
+                    now - lastHeartbeat, ex.getMessage());
+                isolate();
+            } else {
+                log.warn("Cluster heartbeat failed: {}", ex.getMessage());
+            }
+            return;
+        }
+        lastHeartbeat = now;
+        members.put(self.id(), self);
+        if (!joined) {
+            Map<String, Member> others = new HashMap<>(members);
+            others.remove(self.id());
+            rebalance(HashRing.of(others.keySet(), virtualNodes), members);
+            joined = true;
+            log.info("Joined the queue cluster as {} ({}) with {} members", self.id(), self.url(), members.size());
+        } else if (!members.keySet().equals(view.members.keySet())) {
+            log.info("Queue cluster membership changed: {} -> {}", view.members.keySet(), members.keySet());
+            rebalance(view.ring, members);
+        } else if (!members.equals(view.members)) {
+            view = new View(view.ring, Map.copyOf(members));
+        }
+        adoptDue(now);
+    }
+
+    /** Called by the previous owner once it has written the office back. */
+    public synchronized void handoffReceived(String officeId) {
+        if (!pending.containsKey(officeId)) {
+            log.debug("Ignoring handoff of office {}, which is not waiting for one", officeId);
+            return;
+        }
+        adopt(officeId);
+    }
+
+    /** Hands every office to its next owner before the instance stops; the web server no longer takes requests. */
+    @PreDestroy
+    public synchronized void leave() {
+        if (!joined) {
+            return;
+        }
+        joined = false;
+        Map<String, Member> others = new HashMap<>(view.members);
+        others.remove(self.id());
+        HashRing next = HashRing.of(others.keySet(), virtualNodes);
+        Map<String, Member> handedOver = new HashMap<>();
+        for (String officeId : queueService.localOffices()) {
+            String owner = next.owner(officeId);
+            if (owner != null) {
+                handedOver.put(officeId, others.get(owner));
+            }
+        }
+        List<CompletableFuture<?>> notices = release(handedOver);
+        try {
+            memberRepository.deleteById(self.id());
+        } catch (RuntimeException ex) {
+            log.warn("Could not remove cluster membership, it expires after {} ms: {}", memberTimeoutMs, ex.getMessage());
+        }
+        try {
+            CompletableFuture.allOf(notices.toArray(CompletableFuture[]::new)).get(2, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            // New owners load the office after their handoff timeout instead
+        }
+        log.info("Left the queue cluster, handed over {} offices", handedOver.size());
+    }
+
+    /**
+     * Moves from the ring {@code before} to the ring of {@code members}: releases offices this instance lost and
+     * marks those it gained as pending, to be adopted on the previous owner's handoff or right away if it is gone.
+     */
+    private void rebalance(HashRing before, Map<String, Member> members) {
+        HashRing after = HashRing.of(members.keySet(), virtualNodes);
+        long deadline = System.currentTimeMillis() + handoffTimeoutMs;
+        Map<String, Member> released = new HashMap<>();
+        for (String officeId : knownOffices()) {
+            boolean owned = self.id().equals(before.owner(officeId)) && !pending.containsKey(officeId);
+            boolean owns = self.id().equals(after.owner(officeId));
+            if (owned && !owns) {
+                released.put(officeId, members.get(after.owner(officeId)));
+            } else if (owns && !pending.containsKey(officeId) && !self.id().equals(before.owner(officeId))) {
+                String previous = before.owner(officeId);
+                pending.put(officeId, previous != null && members.containsKey(previous) ? deadline : 0L);
+            } else if (!owns) {
+                pending.remove(officeId);
+            }
+        }
+        view = new View(after, Map.copyOf(members));
+        if (!released.isEmpty()) {
+            release(released);
+        }
+        try {
+            memberRepository.deleteStale(memberTimeoutMs * 10);
+        } catch (RuntimeException ex) {
+            log.debug("Could not delete stale cluster members: {}", ex.getMessage());
+        }
+    }
+
+    /** Drops the offices, writes them back and notifies each new owner; no notices go out if the write failed. */
+    private List<CompletableFuture<?>> release(Map<String, Member> newOwners) {
+        List<CompletableFuture<?>> notices = new ArrayList<>();
+        if (!queueService.releaseOffices(newOwners.keySet())) {
+            log.warn("Offices {} could not be written back; their new owners load them after the handoff timeout",
+                newOwners.keySet());
+            return notices;
+        }
+        newOwners.forEach((officeId, owner) -> notices.add(notify(officeId, owner)));
+        return notices;
+    }
+
+    private CompletableFuture<?> notify(String officeId, Member owner) {
+        String officePath = URLEncoder.encode(officeId, StandardCharsets.UTF_8).replace("+", "%20");
+        HttpRequest notice = HttpRequest.newBuilder(URI.create(owner.url() + "/api/cluster/offices/" + officePath + "/handoff"))
+            .header(KEY_HEADER, new String(key, StandardCharsets.UTF_8))
+            .timeout(Duration.ofSeconds(5))
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return http.sendAsync(notice, HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, ex) -> {
+                if (ex != null || response.statusCode() >= 300) {
+                    log.warn("Handoff of office {} to {} was not acknowledged: {}", officeId, owner.id(),
+                        ex != null ? ex.getMessage() : "HTTP " + response.statusCode());
+                }
+            });
+    }
+
+    private void adoptDue(long now) {
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            if (entry.getValue() <= now) {
+                if (entry.getValue() != 0) {
+                    log.warn("No handoff for office {} within {} ms, loading it from the database", entry.getKey(), handoffTimeoutMs);
+                }
+                adopt(entry.getKey());
+            }
+        }
+    }
+
+    private void adopt(String officeId) {
+        try {
+            queueService.adoptOffice(officeId);
+            pending.remove(officeId);
+        } catch (RuntimeException ex) {
+            // Retried on the next heartbeat
+            pending.put(officeId, 0L);
+            log.warn("Could not load office {}: {}", officeId, ex.getMessage());
+        }
+    }
+
+    private void isolate() {
+        joined = false;
+        pending.clear();
+        view = new View(HashRing.of(List.of(), 1), Map.of());
+        // The write-back fails while the database is away; the changes stay queued
+        queueService.releaseOffices(queueService.localOffices());
+    }
+
+    private Set<String> knownOffices() {
+        Set<String> offices = new HashSet<>(queueService.localOffices());
+        offices.addAll(pending.keySet());
+        for (Office office : officeRepository.findAll()) {
+            offices.add(office.getId());
+        }
+        return offices;
+    }
+}
@@ -0,0 +1,200 @@
+package com.klsmartq.service;
+
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.queue.QueueEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Propagates queue events between backend instances over Postgres {@code LISTEN/NOTIFY}.
+ * <p>
+ * Uses one dedicated JDBC connection opened with {@link DriverManager}, outside the Hikari pool, so a
+ * long-lived listener never holds a pooled connection. A single thread owns that connection: it sends the
+ * local outbox with {@code pg_notify} and polls for notifications from other instances.
+ * <p>
+ * Payload format: {@code instanceId:seq:base64(event)}. Each instance numbers its own events; a receiver that
+ * sees a jump in an origin's sequence, or that has just (re)connected, has missed events and triggers
+ * {@link QueueService#resync()}. The missed events reach Postgres only with their origin's next write-behind, so
+ * the resync waits {@code queue.notify.resync-delay-ms} after the last detected gap; events that keep arriving
+ * meanwhile are applied as usual, and gaps within that window share one resync.
+ */
+@Component
+@ConditionalOnProperty(name = "queue.notify.enabled", havingValue = "true")
+public class QueueNotifier {
+    private static final Logger log = LoggerFactory.getLogger(QueueNotifier.class);
+
+    private final QueueService queueService;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final BlockingQueue<String> outbox = new LinkedBlockingQueue<>(10_000);
+    private final Map<String, Long> lastSeqByOrigin = new ConcurrentHashMap<>();
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${queue.notify.channel:queue_events}")
+    private String channel;
+
+    @Value("${queue.notify.poll-interval-ms:25}")
+    private int pollIntervalMs;
+
+    @Value("${queue.notify.resync-delay-ms:5000}")
+    private long resyncDelayMs;
+
+    private long publishedSeq;
+    // Worker thread only: when the pending resync runs (0 when none) and when the latest gap's events are written
+    private long resyncAt;
+    private long lastResyncDue;
+    private volatile boolean running;
+    private Thread worker;
+
+    public QueueNotifier(QueueService queueService) {
+        this.queueService = queueService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid queue.notify.channel: " + channel);
+        }
+        running = true;
+        worker = new Thread(this::run, "queue-notifier");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(2000);
+        }
+    }
+
+    /** Called under the queue lock, so outbox order matches journal order. */
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent changed) {
+        if (changed.isRemote()) {
+            return;
+        }
+        String payload = instanceId + ":" + (++publishedSeq) + ":"
+            + Base64.getEncoder().encodeToString(changed.getEvent().encode());
+        if (!outbox.offer(payload)) {
+            // Peers will see the sequence gap and resync
+            log.warn("Queue notify outbox full, dropping event for token {}", changed.getEvent().getTokenId());
+        }
+    }
+
+    private void run() {
+        long backoffMs = 500;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                connection.setAutoCommit(true);
+                try (Statement listen = connection.createStatement()) {
+                    listen.execute("LISTEN " + channel);
+                }
+                log.info("Queue notifier listening on channel '{}' as instance {}", channel, instanceId);
+                // Whatever peers published before this LISTEN, at startup or while disconnected, was missed
+                requestResync();
+                backoffMs = 500;
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                    while (running) {
+                        String payload;
+                        while ((payload = outbox.poll()) != null) {
+                            notify.setString(1, channel);
+                            notify.setString(2, payload);
+                            notify.execute();
+                        }
+                        PGNotification[] notifications = pg.getNotifications(pollIntervalMs);
+                        if (notifications != null) {
+                            for (PGNotification notification : notifications) {
+                                receive(notification.getParameter());
+                            }
+                        }
+                        resyncIfDue();
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Queue notifier connection lost, retrying in {} ms: {}", backoffMs, ex.getMessage());
+                sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            } catch (RuntimeException ex) {
+                log.error("Queue notifier failed", ex);
+                sleep(backoffMs);
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        long seq = Long.parseLong(parts[1]);
+        Long last = lastSeqByOrigin.put(parts[0], seq);
+        if (last != null && seq <= last) {
+            lastSeqByOrigin.put(parts[0], last);
+            return;
+        }
+        if (last != null && seq != last + 1) {
+            log.warn("Missed {} queue events from instance {}, resyncing in {} ms", seq - last - 1, parts[0],
+                resyncDelayMs);
+            requestResync();
+        }
+        queueService.applyRemote(QueueEvent.decode(Base64.getDecoder().decode(parts[2])));
+    }
+
+    private void requestResync() {
+        lastResyncDue = System.currentTimeMillis() + resyncDelayMs;
+        if (resyncAt == 0) {
+            resyncAt = lastResyncDue;
+        }
+    }
+
+    private void resyncIfDue() {
+        long now = System.currentTimeMillis();
+        if (resyncAt == 0 || now < resyncAt) {
+            return;
+        }
+        // A gap found after this resync was scheduled may not be in Postgres yet and gets one of its own
+        resyncAt = lastResyncDue > now ? lastResyncDue : 0;
+        queueService.resync();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,752 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.BookTokenRequest;
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.entity.Office;
+import com.klsmartq.entity.OfficeLiveStats;
+import com.klsmartq.entity.Token;
+import com.klsmartq.entity.User;
+import com.klsmartq.queue.HashRing;
+import com.klsmartq.queue.OfficeQueue;
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.queue.QueueEvent;
+import com.klsmartq.queue.QueueJournal;
+import com.klsmartq.queue.QueueSnapshotStore;
+import com.klsmartq.queue.QueueState;
+import com.klsmartq.queue.QueuedToken;
+import com.klsmartq.repository.OfficeRepository;
+import com.klsmartq.repository.TokenRepository;
+import com.klsmartq.util.JsonUtils;
+import com.klsmartq.util.OfficeSettings;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the live token queues. State changes are appended to the {@link QueueJournal}, applied to the in-memory
+ * {@link QueueState} and written back to Postgres asynchronously by {@link #reconcile()}. Postgres stays the
+ * system of record; the journal and snapshots only exist so a restart does not have to rebuild every queue
+ * from the database.
+ */
+@Service
+public class QueueService {
+    private static final Logger log = LoggerFactory.getLogger(QueueService.class);
+
+    private static final int MAX_RECENT_REMOTE = 50_000;
+    private static final Set<String> PRIORITIES = Set.of("NORMAL", "URGENT", "MEDICAL");
+    /** Actor recorded on tokens cancelled by the end-of-day expiry. */
+    public static final String EXPIRY_ACTOR = "system";
+
+    private final QueueJournal journal;
+    private final QueueSnapshotStore snapshotStore;
+    private final TokenRepository tokenRepository;
+    private final OfficeRepository officeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AdmissionController admissionController;
+    private final TransactionTemplate transactions;
+    private final Object lock = new Object();
+    // Remote events received within queue.notify.replay-window-ms, oldest first; guarded by lock
+    private final Deque<ReceivedEvent> recentRemote = new ArrayDeque<>();
+
+    @Value("${queue.zone:Asia/Kolkata}")
+    private String zoneId;
+
+    @Value("${queue.call-next.office-weights:}")
+    private String officeWeightsSpec;
+
+    @Value("${queue.cluster.enabled:false}")
+    private boolean clustered;
+
+    @Value("${queue.expiry.enabled:true}")
+    private boolean expiryEnabled;
+
+    @Value("${queue.notify.enabled:false}")
+    private boolean notifyEnabled;
+
+    @Value("${queue.notify.replay-window-ms:10000}")
+    private long remoteReplayWindowMs;
+
+    private ZoneId zone;
+    private Map<String, Double> officeWeights;
+    private QueueState state;
+    private long snapshotSeq;
+
+    public QueueService(QueueJournal journal, QueueSnapshotStore snapshotStore,
+                        TokenRepository tokenRepository, OfficeRepository officeRepository,
+                        ApplicationEventPublisher eventPublisher, AdmissionController admissionController,
+                        TransactionTemplate transactions) {
+        this.journal = journal;
+        this.snapshotStore = snapshotStore;
+        this.tokenRepository = tokenRepository;
+        this.officeRepository = officeRepository;
+        this.eventPublisher = eventPublisher;
+        this.admissionController = admissionController;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Restores queue state from the latest snapshot plus the journal tail. Only when neither exists (first boot
+     * or a wiped disk) are open tokens loaded from Postgres, or in notify mode, where peers kept serving the same
+     * offices while this instance was down.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        zone = ZoneId.of(zoneId);
+        officeWeights = OfficeSettings.parsePositive(officeWeightsSpec, "queue.call-next.office-weights");
+        synchronized (lock) {
+            Optional<QueueState> snapshot = snapshotStore.readLatest(zone);
+            state = snapshot.orElseGet(() -> new QueueState(zone));
+            snapshotSeq = state.getLastSeq();
+            journal.recover(snapshotSeq, (event, seq) -> state.apply(seq, event));
+        }
+        if (clustered) {
+            // Offices are adopted from Postgres when QueueCluster joins: another instance may have served them
+            // meanwhile. Only changes that never reached the database are kept, and written back first.
+            synchronized (lock) {
+                List<QueuedToken> unsaved = state.drainDirty();
+                state = new QueueState(zone);
+                state.rebase(journal.getLastSeq());
+                state.requeueDirty(unsaved);
+            }
+            reconcile();
+            log.info("Queue state recovered in {} ms for cluster mode, journal at seq {}",
+                (System.nanoTime() - started) / 1_000_000, journal.getLastSeq());
+            return;
+        }
+        if (state.isEmpty()) {
+            try {
+                QueueState seeded = loadFromDatabase(zone);
+                synchronized (lock) {
+                    state = seeded;
+                }
+                log.info("Seeded queue state from database with {} open tokens", seeded.openTokens().size());
+            } catch (Exception ex) {
+                log.warn("Could not seed queue state from database: {}", ex.getMessage());
+            }
+            snapshot();
+        } else if (notifyEnabled) {
+            // What peers changed meanwhile is only in Postgres; local changes are written back before the reload
+            try {
+                resync();
+            } catch (Exception ex) {
+                log.warn("Could not reload queue state from database, the notifier retries once listening: {}",
+                    ex.getMessage());
+            }
+        }
+        reconcileAdmission();
+        log.info("Queue state restored in {} ms: {} open tokens, journal at seq {}",
+            (System.nanoTime() - started) / 1_000_000, state.openTokens().size(), journal.getLastSeq());
+    }
+
+    private QueueState loadFromDatabase(ZoneId zone) {
+        List<Token> open = tokenRepository.findByStatusInOrderByCreatedAtAsc(List.of(QueuedToken.WAITING, QueuedToken.IN_PROGRESS));
+        LocalDate today = LocalDate.now(zone);
+        List<Object[]> issued = tokenRepository.countIssuedSince(today.atStartOfDay(zone).toInstant());
+        QueueState loaded = new QueueState(zone);
+        long arrival = -open.size();
+        for (Token token : open) {
+            QueuedToken queued = fromEntity(token);
+            queued.setArrival(arrival++);
+            loaded.seed(queued);
+        }
+        for (Object[] row : issued) {
+            loaded.seedIssued((String) row[0], today.toEpochDay(), ((Number) row[1]).intValue(), ((Number) row[2]).intValue());
+        }
+        return loaded;
+    }
+
+    /**
+     * Rebuilds the queues from Postgres after this instance missed remote events. Local changes are written
+     * back first and any that fail stay queued on top of the reloaded state. Remote events received within the
+     * last {@code queue.notify.replay-window-ms} are applied again on top as well: their origin may not have
+     * written them back yet. Bookings that Postgres already holds are skipped, so a token it shows as closed
+     * is not reopened.
+     */
+    public void resync() {
+        reconcile();
+        synchronized (lock) {
+            QueueState reloaded = loadFromDatabase(state.getZone());
+            reloaded.requeueDirty(state.drainDirty());
+            reloaded.rebase(journal.getLastSeq());
+            state = reloaded;
+            replayRecentRemote();
+        }
+        snapshot();
+        reconcileAdmission();
+        log.info("Queue state resynchronized from database: {} open tokens", state.openTokens().size());
+    }
+
+    private void replayRecentRemote() {
+        trimRecentRemote(System.currentTimeMillis());
+        if (recentRemote.isEmpty()) {
+            return;
+        }
+        Set<String> booked = recentRemote.stream()
+            .filter(received -> received.event().getType() == QueueEvent.Type.BOOK)
+            .map(received -> received.event().getTokenId())
+            .collect(Collectors.toSet());
+        Set<String> stored = booked.isEmpty() ? Set.of() : new HashSet<>(tokenRepository.findExistingIds(booked));
+        int replayed = 0;
+        try {
+            for (ReceivedEvent received : recentRemote) {
+                QueueEvent event = received.event();
+                if (event.getType() == QueueEvent.Type.BOOK && stored.contains(event.getTokenId())) {
+                    continue;
+                }
+                if (state.apply(journal.append(event), event) != null) {
+                    replayed++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Queue journal write failed", ex);
+        }
+        log.info("Replayed {} of {} recent remote queue events over the reloaded state", replayed, recentRemote.size());
+    }
+
+    private void trimRecentRemote(long now) {
+        long cutoff = now - remoteReplayWindowMs;
+        while (recentRemote.size() > MAX_RECENT_REMOTE
+                || (!recentRemote.isEmpty() && recentRemote.peekFirst().receivedAt() < cutoff)) {
+            recentRemote.removeFirst();
+        }
+    }
+
+    public TokenDTO book(User student, BookTokenRequest request) {
+        if (request == null || request.getOfficeId() == null || request.getOfficeId().isBlank()) {
+            throw new IllegalArgumentException("Office is required");
+        }
+        String priority = normalizePriority(request.getPriority());
+        // Capacity is taken before any lookup so a full office is turned away without touching Postgres
+        long now = System.currentTimeMillis();
+        long day = LocalDate.ofInstant(Instant.ofEpochMilli(now), zone).toEpochDay();
+        if (!admissionController.tryReserve(request.getOfficeId(), day)) {
+            throw new IllegalStateException("Office has reached its daily token limit");
+        }
+        boolean admitted = false;
+        try {
+            Office office = officeRepository.findById(request.getOfficeId())
+                .orElseThrow(() -> new IllegalArgumentException("Office not found"));
+            if (!office.isActive()) {
+                throw new IllegalStateException("Office is not accepting tokens");
+            }
+            String purpose = request.getPurpose() == null ? null : request.getPurpose().trim();
+
+            synchronized (lock) {
+                if (state.hasOpenToken(student.getId(), office.getId())) {
+                    throw new IllegalStateException("You already have an open token for this office");
+                }
+                int number = state.office(office.getId()).issuedOn(day) + 1;
+                String tokenNumber = office.getPrefix() + "-" + String.format("%03d", number);
+                // The id carries the office's ring position so cluster routing needs no lookup
+                QueueEvent event = QueueEvent.book(HashRing.tokenId(office.getId()), office.getId(), student.getId(),
+                    tokenNumber, purpose, priority, now);
+                QueuedToken token = append(event);
+                admitted = true;
+                return toDto(token);
+            }
+        } finally {
+            if (!admitted) {
+                admissionController.rollback(request.getOfficeId(), day);
+            }
+        }
+    }
+
+    /** Moves the best waiting token of the office to IN_PROGRESS, or returns null when the queue is empty. */
+    public TokenDTO callNext(User staff, String officeId) {
+        synchronized (lock) {
+            QueuedToken next = state.office(officeId).peek();
+            if (next == null) {
+                return null;
+            }
+            return toDto(append(QueueEvent.transition(QueueEvent.Type.CALL, next.getId(), officeId, staff.getId(), System.currentTimeMillis())));
+        }
+    }
+
+    /**
+     * Calls the best waiting token across several offices, for staff covering more than one. The head of each
+     * office's queue is a candidate; the winner is the most urgent priority class, then the longest wait scaled
+     * by the office's weight ({@code queue.call-next.office-weights}, default 1). Picking and calling happen
+     * under the queue lock, so concurrent callers never get the same token. Returns null when all are empty.
+     */
+    public TokenDTO callNextAcross(User staff, Collection<String> officeIds) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            QueuedToken best = null;
+            for (String officeId : officeIds) {
+                QueuedToken head = state.office(officeId).peek();
+                if (head != null && (best == null || compareAcrossOffices(head, best, now) < 0)) {
+                    best = head;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            return toDto(append(QueueEvent.transition(QueueEvent.Type.CALL, best.getId(), best.getOfficeId(), staff.getId(), now)));
+        }
+    }
+
+    private int compareAcrossOffices(QueuedToken a, QueuedToken b, long now) {
+        int byRank = Integer.compare(QueuedToken.priorityRank(a.getPriority()), QueuedToken.priorityRank(b.getPriority()));
+        if (byRank != 0) {
+            return byRank;
+        }
+        double aWait = Math.max(0, now - a.getCreatedAt()) * officeWeights.getOrDefault(a.getOfficeId(), 1.0);
+        double bWait = Math.max(0, now - b.getCreatedAt()) * officeWeights.getOrDefault(b.getOfficeId(), 1.0);
+        int byWait = Double.compare(bWait, aWait);
+        return byWait != 0 ? byWait : Long.compare(a.getArrival(), b.getArrival());
+    }
+
+    /** Check-in by staff assigned to the token's office, or an admin. */
+    public TokenDTO checkIn(User staff, String tokenId) {
+        synchronized (lock) {
+            ensureOfficeStaff(staff, requireOpen(tokenId));
+            return checkIn(staff.getId(), tokenId, null);
+        }
+    }
+
+    /** Check-in recorded for {@code actorId}; when {@code officeId} is given it must be the token's office. */
+    public TokenDTO checkIn(String actorId, String tokenId, String officeId) {
+        synchronized (lock) {
+            QueuedToken token = requireOpen(tokenId);
+            if (officeId != null && !officeId.equals(token.getOfficeId())) {
+                throw new IllegalArgumentException("Token belongs to another office");
+            }
+            if (token.isCheckedIn()) {
+                return toDto(token);
+            }
+            return toDto(append(QueueEvent.transition(QueueEvent.Type.CHECK_IN, tokenId, token.getOfficeId(), actorId, System.currentTimeMillis())));
+        }
+    }
+
+    public TokenDTO complete(User staff, String tokenId) {
+        synchronized (lock) {
+            QueuedToken token = requireOpen(tokenId);
+            ensureOfficeStaff(staff, token);
+            if (!QueuedToken.IN_PROGRESS.equals(token.getStatus())) {
+                throw new IllegalStateException("Only tokens in progress can be completed");
+            }
+            return toDto(append(QueueEvent.transition(QueueEvent.Type.COMPLETE, tokenId, token.getOfficeId(), staff.getId(), System.currentTimeMillis())));
+        }
+    }
+
+    public TokenDTO cancel(User actor, String tokenId) {
+        synchronized (lock) {
+            QueuedToken token = requireOpen(tokenId);
+            boolean isStudent = "STUDENT".equalsIgnoreCase(actor.getRole());
+            if (isStudent && !token.getStudentId().equals(actor.getId())) {
+                throw new IllegalArgumentException("Token not found");
+            }
+            if (isStudent && !QueuedToken.WAITING.equals(token.getStatus())) {
+                throw new IllegalStateException("Token has already been called");
+            }
+            if (!isStudent) {
+                ensureOfficeStaff(actor, token);
+            }
+            return toDto(append(QueueEvent.transition(QueueEvent.Type.CANCEL, tokenId, token.getOfficeId(), actor.getId(), System.currentTimeMillis())));
+        }
+    }
+
+    public TokenDTO getToken(String tokenId) {
+        synchronized (lock) {
+            QueuedToken token = state.get(tokenId);
+            if (token != null) {
+                return toDto(token);
+            }
+        }
+        return tokenRepository.findById(tokenId)
+            .map(this::toDto)
+            .orElseThrow(() -> new IllegalArgumentException("Token not found"));
+    }
+
+    public List<TokenDTO> getWaitingTokens(String officeId) {
+        synchronized (lock) {
+            OfficeQueue queue = state.office(officeId);
+            return queue.waitingInOrder().stream().map(this::toDto).collect(Collectors.toList());
+        }
+    }
+
+    /** Admins act on any office; staff only on the offices assigned to them. */
+    private static void ensureOfficeStaff(User actor, QueuedToken token) {
+        if ("ADMIN".equalsIgnoreCase(actor.getRole())) {
+            return;
+        }
+        if (!"STAFF".equalsIgnoreCase(actor.getRole())
+                || !JsonUtils.readStringList(actor.getAssignedOfficeIds()).contains(token.getOfficeId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not assigned to this office");
+        }
+    }
+
+    private QueuedToken requireOpen(String tokenId) {
+        QueuedToken token = state.get(tokenId);
+        if (token == null) {
+            throw new IllegalArgumentException("Token not found or already closed");
+        }
+        return token;
+    }
+
+    /** Office of a token, from the live queues or else Postgres; null when the token does not exist. */
+    public String officeOf(String tokenId) {
+        synchronized (lock) {
+            QueuedToken token = state.get(tokenId);
+            if (token != null) {
+                return token.getOfficeId();
+            }
+        }
+        return tokenRepository.findById(tokenId).map(Token::getOfficeId).orElse(null);
+    }
+
+    /** Offices with queue state on this instance. */
+    public Set<String> localOffices() {
+        synchronized (lock) {
+            return state.offices().stream().map(OfficeQueue::getOfficeId).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Drops offices another instance has taken over and writes their pending changes to Postgres, where the new
+     * owner loads them from. Returns false when the write failed; the changes then stay queued for a retry.
+     */
+    public boolean releaseOffices(Collection<String> officeIds) {
+        int dropped = 0;
+        synchronized (lock) {
+            for (String officeId : officeIds) {
+                dropped += state.removeOffice(officeId);
+            }
+        }
+        boolean written = writeBack();
+        log.info("Released offices {} with {} open tokens", officeIds, dropped);
+        return written;
+    }
+
+    /** Loads an office this instance has taken over from Postgres, replacing whatever was held for it. */
+    public void adoptOffice(String officeId) {
+        List<Token> open = tokenRepository.findByOfficeIdAndStatusInOrderByCreatedAtAsc(officeId,
+            List.of(QueuedToken.WAITING, QueuedToken.IN_PROGRESS));
+        LocalDate today = LocalDate.now(zone);
+        List<Object[]> issued = tokenRepository.countIssuedSince(officeId, today.atStartOfDay(zone).toInstant());
+        synchronized (lock) {
+            state.removeOffice(officeId);
+            long arrival = -open.size();
+            for (Token token : open) {
+                QueuedToken queued = fromEntity(token);
+                queued.setArrival(arrival++);
+                state.seed(queued);
+            }
+            for (Object[] row : issued) {
+                // sum() is null when the office has no tokens today
+                state.seedIssued(officeId, today.toEpochDay(), ((Number) row[0]).intValue(),
+                    row[1] == null ? 0 : ((Number) row[1]).intValue());
+            }
+        }
+        reconcileAdmission();
+        expireWaiting();
+        log.info("Adopted office {} with {} open tokens", officeId, open.size());
+    }
+
+    /**
+     * End-of-day expiry: cancels every token still waiting from a previous day (in {@code queue.zone}) as
+     * {@link #EXPIRY_ACTOR}. Each office's line is scanned once and the cancels only leave tombstones, which
+     * the office then drops in a single rebuild. The cancels are ordinary queue events, so they are journaled,
+     * written back and replicated like any other; with notify enabled every instance runs the expiry, and
+     * whichever cancels a token first wins. Also runs once the application is ready, after listeners are
+     * registered, to catch up on an expiry missed while the instance was down.
+     */
+    @Scheduled(cron = "${queue.expiry.cron:0 0 0 * * *}", zone = "${queue.zone:Asia/Kolkata}")
+    @EventListener(ApplicationReadyEvent.class)
+    public void expireWaiting() {
+        if (!expiryEnabled) {
+            return;
+        }
+        int expired = 0;
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            long startOfToday = LocalDate.now(zone).atStartOfDay(zone).toInstant().toEpochMilli();
+            for (OfficeQueue office : List.copyOf(state.offices())) {
+                for (QueuedToken token : office.waitingBefore(startOfToday)) {
+                    append(QueueEvent.transition(QueueEvent.Type.CANCEL, token.getId(), office.getOfficeId(), EXPIRY_ACTOR, now));
+                    expired++;
+                }
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} tokens left waiting from previous days", expired);
+        }
+    }
+
+    /** Current summary of the given offices, for those whose queue is held here. */
+    public List<OfficeLiveStats> liveStats(Collection<String> officeIds) {
+        synchronized (lock) {
+            long today = state.epochDay(System.currentTimeMillis());
+            List<OfficeLiveStats> stats = new ArrayList<>(officeIds.size());
+            for (String officeId : officeIds) {
+                OfficeQueue office = state.findOffice(officeId);
+                if (office != null) {
+                    stats.add(liveStats(office, today));
+                }
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Summary of every office held here, after recounting the incrementally kept counters from the open tokens.
+     * Offices whose counters had drifted are logged and corrected.
+     */
+    public List<OfficeLiveStats> recountLiveStats() {
+        synchronized (lock) {
+            List<String> drifted = state.recountInProgress();
+            if (!drifted.isEmpty()) {
+                log.warn("Corrected drifted in-progress counts of offices {}", drifted);
+            }
+            long today = state.epochDay(System.currentTimeMillis());
+            return state.offices().stream().map(office -> liveStats(office, today)).collect(Collectors.toList());
+        }
+    }
+
+    private static OfficeLiveStats liveStats(OfficeQueue office, long today) {
+        return new OfficeLiveStats(office.getOfficeId(), office.waitingCount(), office.inProgressCount(),
+            office.getNowServing(), office.issuedOn(today));
+    }
+
+    /** Applies an event published by another instance to the local queues. */
+    public void applyRemote(QueueEvent event) {
+        QueueEvent remote = event.asRemote();
+        synchronized (lock) {
+            append(remote);
+            long now = System.currentTimeMillis();
+            recentRemote.addLast(new ReceivedEvent(now, remote));
+            trimRecentRemote(now);
+        }
+    }
+
+    private record ReceivedEvent(long receivedAt, QueueEvent event) {}
+
+    private QueuedToken append(QueueEvent event) {
+        QueuedToken token;
+        try {
+            long seq = journal.append(event);
+            token = state.apply(seq, event);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Queue journal write failed", ex);
+        }
+        if (token != null) {
+            trackAdmission(event, token);
+            // Published under the queue lock so listeners observe events in journal order
+            eventPublisher.publishEvent(new QueueChangedEvent(event, token.copy()));
+        }
+        return token;
+    }
+
+    private void trackAdmission(QueueEvent event, QueuedToken token) {
+        switch (event.getType()) {
+            case BOOK -> {
+                long day = state.epochDay(event.getTimestamp());
+                if (event.isRemote()) {
+                    admissionController.admitted(token.getOfficeId(), day);
+                } else {
+                    admissionController.commit(token.getOfficeId(), day);
+                }
+            }
+            case CANCEL -> admissionController.released(token.getOfficeId(), state.epochDay(token.getCreatedAt()));
+            default -> {
+            }
+        }
+    }
+
+    /** Corrects drift of the admission counters against today's admitted counts in the queue state. */
+    @Scheduled(fixedDelayString = "${admission.reconcile-interval-ms:5000}")
+    public void reconcileAdmission() {
+        synchronized (lock) {
+            if (state == null) {
+                return;
+            }
+            long today = state.epochDay(System.currentTimeMillis());
+            Map<String, Integer> admitted = new HashMap<>();
+            for (OfficeQueue office : state.offices()) {
+                admitted.put(office.getOfficeId(), office.admittedOn(today));
+            }
+            admissionController.reconcile(today, admitted);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${queue.journal.flush-interval-ms:200}")
+    public void flush() {
+        journal.flush();
+    }
+
+    /** Writes a compacted snapshot and drops the journal segments that every kept snapshot covers. */
+    @Scheduled(fixedDelayString = "${queue.snapshot-interval-ms:60000}", initialDelayString = "${queue.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        try {
+            byte[] encoded;
+            long seq;
+            synchronized (lock) {
+                seq = state.getLastSeq();
+                if (seq == snapshotSeq && seq != 0) {
+                    return;
+                }
+                encoded = snapshotStore.encode(state);
+            }
+            journal.flush();
+            journal.compact(snapshotStore.write(seq, encoded));
+            snapshotSeq = seq;
+        } catch (IOException ex) {
+            log.warn("Queue snapshot failed: {}", ex.getMessage());
+        }
+    }
+
+    /** Write-behind of changed tokens to Postgres. Failed batches are retried on the next run. */
+    @Scheduled(fixedDelayString = "${queue.reconcile-interval-ms:2000}")
+    public void reconcile() {
+        writeBack();
+    }
+
+    private boolean writeBack() {
+        List<QueuedToken> batch;
+        synchronized (lock) {
+            if (state == null || state.dirtyCount() == 0) {
+                return true;
+            }
+            batch = state.drainDirty();
+        }
+        try {
+            // One upsert per token and no reads; in cluster mode a stored status never moves backwards
+            transactions.executeWithoutResult(status -> batch.stream().map(this::toEntity).forEach(token ->
+                tokenRepository.upsert(token.getId(), token.getTokenNumber(), token.getStudentId(), token.getOfficeId(),
+                    token.getPurpose(), token.getPriority(), token.getStatus(), token.isCheckedIn(), token.getServedBy(),
+                    token.getCreatedAt(), token.getCalledAt(), token.getCompletedAt(), clustered)));
+            return true;
+        } catch (Exception ex) {
+            log.warn("Token reconciliation failed for {} tokens, will retry: {}", batch.size(), ex.getMessage());
+            synchronized (lock) {
+                state.requeueDirty(batch);
+            }
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcile();
+        snapshot();
+        journal.close();
+    }
+
+    public static String normalizePriority(String priority) {
+        if (priority == null || priority.isBlank()) {
+            return "NORMAL";
+        }
+        String normalized = priority.trim().toUpperCase();
+        if (!PRIORITIES.contains(normalized)) {
+            throw new IllegalArgumentException("Unsupported priority");
+        }
+        return normalized;
+    }
+
+    /** Call under the queue lock; waiting tokens get their live position from the office's arrival index. */
+    private TokenDTO toDto(QueuedToken token) {
+        TokenDTO dto = new TokenDTO(
+            token.getId(),
+            token.getTokenNumber(),
+            token.getStudentId(),
+            token.getOfficeId(),
+            token.getPurpose(),
+            token.getPriority(),
+            token.getStatus(),
+            toInstant(token.getCreatedAt()),
+            toInstant(token.getCalledAt()),
+            toInstant(token.getCompletedAt()),
+            token.isCheckedIn()
+        );
+        if (QueuedToken.WAITING.equals(token.getStatus())) {
+            int ahead = state.office(token.getOfficeId()).aheadOf(token);
+            if (ahead >= 0) {
+                dto.setAheadCount(ahead);
+                dto.setPosition(ahead + 1);
+            }
+        }
+        return dto;
+    }
+
+    private TokenDTO toDto(Token token) {
+        return new TokenDTO(
+            token.getId(),
+            token.getTokenNumber(),
+            token.getStudentId(),
+            token.getOfficeId(),
+            token.getPurpose(),
+            token.getPriority(),
+            token.getStatus(),
+            token.getCreatedAt(),
+            token.getCalledAt(),
+            token.getCompletedAt(),
+            token.isCheckedIn()
+        );
+    }
+
+    private Token toEntity(QueuedToken queued) {
+        Token token = new Token();
+        token.setId(queued.getId());
+        token.setTokenNumber(queued.getTokenNumber());
+        token.setStudentId(queued.getStudentId());
+        token.setOfficeId(queued.getOfficeId());
+        token.setPurpose(queued.getPurpose());
+        token.setPriority(queued.getPriority());
+        token.setStatus(queued.getStatus());
+        token.setCheckedIn(queued.isCheckedIn());
+        token.setServedBy(queued.getServedBy());
+        token.setCreatedAt(toInstant(queued.getCreatedAt()));
+        token.setCalledAt(toInstant(queued.getCalledAt()));
+        token.setCompletedAt(toInstant(queued.getCompletedAt()));
+        return token;
+    }
+
+    private QueuedToken fromEntity(Token token) {
+        QueuedToken queued = new QueuedToken();
+        queued.setId(token.getId());
+        queued.setTokenNumber(token.getTokenNumber());
+        queued.setStudentId(token.getStudentId());
+        queued.setOfficeId(token.getOfficeId());
+        queued.setPurpose(token.getPurpose());
+        queued.setPriority(token.getPriority());
+        queued.setStatus(token.getStatus());
+        queued.setCheckedIn(token.isCheckedIn());
+        queued.setServedBy(token.getServedBy());
+        queued.setCreatedAt(token.getCreatedAt() == null ? 0 : token.getCreatedAt().toEpochMilli());
+        queued.setCalledAt(token.getCalledAt() == null ? 0 : token.getCalledAt().toEpochMilli());
+        queued.setCompletedAt(token.getCompletedAt() == null ? 0 : token.getCompletedAt().toEpochMilli());
+        return queued;
+    }
+
+    private static Instant toInstant(long epochMillis) {
+        return epochMillis == 0 ? null : Instant.ofEpochMilli(epochMillis);
+    }
+}
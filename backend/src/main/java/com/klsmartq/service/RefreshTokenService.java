@@ -0,0 +1,152 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.AuthResponse;
+import com.klsmartq.dto.UserDTO;
+import com.klsmartq.entity.RefreshToken;
+import com.klsmartq.entity.User;
+import com.klsmartq.repository.RefreshTokenRepository;
+import com.klsmartq.repository.UserRepository;
+import com.klsmartq.util.JsonUtils;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Sessions: the access token and long-lived refresh token returned by every login, whatever the
+ * {@link AuthProvider}, so clients renew their access token without checking credentials again. Only the SHA-256
+ * of a refresh token is stored. Every refresh uses up the presented token and issues the next one in the same
+ * family; presenting a used token again means it leaked, and the whole family is revoked.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final AccessTokenRevocations revocations;
+    private final JwtUtil jwtUtil;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${jwt.expiration:3600}")
+    private long jwtExpiration;
+
+    @Value("${jwt.refresh-expiration:2592000}")
+    private long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               AccessTokenRevocations revocations, JwtUtil jwtUtil) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.revocations = revocations;
+        this.jwtUtil = jwtUtil;
+    }
+
+    /** Session for a fresh login: an access token and the first refresh token of a new family. */
+    public AuthResponse startSession(User user) {
+        return toResponse(user, issue(user.getId(), UUID.randomUUID().toString(),
+            Instant.now().plusSeconds(refreshExpiration)));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token, which keeps the family's
+     * expiry: a session ends {@code jwt.refresh-expiration} after its login however often it is refreshed. Runs in
+     * one transaction; a rejected token leaves its family revoked rather than rolling that back.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public AuthResponse refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new IllegalArgumentException("Refresh token required");
+        }
+        Instant now = Instant.now();
+        String hash = hash(refreshToken);
+        RefreshToken stored = refreshTokenRepository.findById(hash)
+            .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+        if (!stored.getExpiresAt().isAfter(now)) {
+            throw new IllegalArgumentException("Refresh token has expired, please sign in again");
+        }
+        if (stored.getUsedAt() != null || refreshTokenRepository.markUsed(hash, now) == 0) {
+            refreshTokenRepository.deleteFamily(stored.getFamilyId());
+            log.warn("Refresh token reused for user {}; revoked its session", stored.getUserId());
+            throw new IllegalArgumentException("Refresh token was already used, please sign in again");
+        }
+        User user = userRepository.findById(stored.getUserId())
+            .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+        return toResponse(user, issue(user.getId(), stored.getFamilyId(), stored.getExpiresAt()));
+    }
+
+    /**
+     * Signs out: revokes the access token (when valid) and the refresh token's family (when given). The lookup
+     * shares the delete's transaction so that a refresh token issued a moment ago is found on the primary.
+     */
+    @Transactional
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            try {
+                Claims claims = jwtUtil.parseClaims(accessToken);
+                if (claims.getExpiration() != null) {
+                    revocations.revoke(claims.getId(), claims.getExpiration().toInstant());
+                }
+            } catch (Exception ex) {
+                // Invalid or expired: nothing to revoke
+            }
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenRepository.findById(hash(refreshToken))
+                .ifPresent(stored -> refreshTokenRepository.deleteFamily(stored.getFamilyId()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(Instant.now());
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private AuthResponse toResponse(User user, String refreshToken) {
+        String token = jwtUtil.generateToken(user.getId(), user.getEmail(), jwtExpiration);
+        UserDTO dto = new UserDTO(
+            user.getId(),
+            user.getName(),
+            user.getEmail(),
+            user.isEmailVerified(),
+            user.getRole(),
+            user.getPoints(),
+            JsonUtils.readStringList(user.getAssignedOfficeIds())
+        );
+        return new AuthResponse(token, dto, jwtExpiration, refreshToken);
+    }
+
+    private String issue(String userId, String familyId, Instant expiresAt) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+        refreshTokenRepository.insert(hash(token), userId, familyId, expiresAt);
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.LeaderboardEntry;
+import com.klsmartq.queue.QueueChangedEvent;
+import com.klsmartq.queue.QueueEvent;
+import com.klsmartq.repository.LeaderboardRow;
+import com.klsmartq.repository.UserRepository;
+import com.klsmartq.util.OfficeSettings;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Student points and badges. Awards never load the user: deltas are added up per user in memory and flushed in
+ * batches as one {@code UPDATE ... SET points = points + delta} per batch, so concurrent completions cannot
+ * overwrite each other and a burst for one student costs one row update. Badges for crossed point thresholds
+ * ({@code rewards.badges}, as {@code BADGE:points,...}) are appended to the JSON column in the same transaction.
+ * Updated users are then evicted from the second-level cache.
+ * <p>
+ * Completed visits are rewarded by the instance that completed them; remote queue events are ignored.
+ */
+@Service
+public class RewardsService {
+    private static final Logger log = LoggerFactory.getLogger(RewardsService.class);
+
+    private static final int MAX_LEADERBOARD = 100;
+
+    // Appends the badge unless the array already holds it; the column is json, so compare as jsonb
+    private static final String APPEND_BADGE_SQL = """
+        UPDATE users
+           SET badges = CAST(COALESCE(CAST(badges AS jsonb), '[]') || jsonb_build_array(CAST(:badge AS text)) AS json)
+         WHERE id = :id
+           AND NOT COALESCE(CAST(badges AS jsonb), '[]') @> jsonb_build_array(CAST(:badge AS text))
+        """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactions;
+    private final EntityCache entityCache;
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+    private final Map<String, Double> badgeThresholds;
+
+    @Value("${rewards.points-per-visit:10}")
+    private int pointsPerVisit;
+
+    @Value("${rewards.batch-size:500}")
+    private int batchSize;
+
+    public RewardsService(UserRepository userRepository, TransactionTemplate transactions, EntityCache entityCache,
+                          @Value("${rewards.badges:}") String badges) {
+        this.userRepository = userRepository;
+        this.transactions = transactions;
+        this.entityCache = entityCache;
+        this.badgeThresholds = OfficeSettings.parsePositive(badges, "rewards.badges");
+    }
+
+    /** Queues a point change for the user; it reaches the database with the next flush. */
+    public void award(String userId, int delta) {
+        if (delta != 0) {
+            pending.merge(userId, delta, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onQueueChanged(QueueChangedEvent changed) {
+        if (!changed.isRemote() && changed.getEvent().getType() == QueueEvent.Type.COMPLETE && pointsPerVisit != 0) {
+            award(changed.getToken().getStudentId(), pointsPerVisit);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<LeaderboardEntry> leaderboard(Integer limit) {
+        int size = limit == null ? 10 : Math.max(1, Math.min(limit, MAX_LEADERBOARD));
+        List<LeaderboardRow> rows = userRepository.findLeaderboard(size);
+        List<LeaderboardEntry> entries = new ArrayList<>(rows.size());
+        for (LeaderboardRow row : rows) {
+            entries.add(new LeaderboardEntry(entries.size() + 1, row.getId(), row.getName(),
+                row.getPoints() == null ? 0 : row.getPoints()));
+        }
+        return entries;
+    }
+
+    /** Writes the coalesced deltas. A failed batch is merged back and retried on the next run. */
+    @Scheduled(fixedDelayString = "${rewards.flush-interval-ms:1000}")
+    public void flush() {
+        while (!pending.isEmpty()) {
+            Map<String, Integer> batch = new LinkedHashMap<>();
+            for (String userId : pending.keySet()) {
+                Integer delta = pending.remove(userId);
+                if (delta != null && delta != 0) {
+                    batch.put(userId, delta);
+                }
+                if (batch.size() >= batchSize) {
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactions.executeWithoutResult(status -> write(batch));
+                entityCache.evictUsers(batch.keySet());
+            } catch (RuntimeException ex) {
+                batch.forEach(this::award);
+                log.warn("Could not write points for {} users, will retry: {}", batch.size(), ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void write(Map<String, Integer> batch) {
+        StringBuilder sql = new StringBuilder("UPDATE users u SET points = COALESCE(u.points, 0) + d.delta FROM (VALUES ");
+        int param = 1;
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(CAST(?").append(param++).append(" AS varchar), CAST(?")
+                .append(param++).append(" AS integer))");
+        }
+        sql.append(") AS d(id, delta) WHERE u.id = d.id RETURNING u.id, u.points");
+        Query update = entityManager.createNativeQuery(sql.toString());
+        param = 1;
+        for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+            update.setParameter(param++, entry.getKey());
+            update.setParameter(param++, entry.getValue());
+        }
+        List<?> updated = update.getResultList();
+        if (badgeThresholds.isEmpty()) {
+            return;
+        }
+        for (Object result : updated) {
+            Object[] row = (Object[]) result;
+            String userId = (String) row[0];
+            int after = ((Number) row[1]).intValue();
+            int before = after - batch.get(userId);
+            badgeThresholds.forEach((badge, threshold) -> {
+                if (before < threshold && after >= threshold) {
+                    entityManager.createNativeQuery(APPEND_BADGE_SQL)
+                        .setHint(HibernateHints.HINT_NATIVE_SPACES, "users")
+                        .setParameter("badge", badge)
+                        .setParameter("id", userId)
+                        .executeUpdate();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
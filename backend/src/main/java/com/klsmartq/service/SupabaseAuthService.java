@@ -1,45 +1,54 @@
 package com.klsmartq.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.klsmartq.config.SupabaseConfig;
-import com.klsmartq.dto.AuthResponse;
-import com.klsmartq.dto.UserDTO;
+import com.klsmartq.dto.SupabaseSession;
+import com.klsmartq.dto.SupabaseUser;
 import com.klsmartq.entity.User;
-import com.klsmartq.repository.UserRepository;
-import com.klsmartq.util.JsonUtils;
 import okhttp3.*;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * {@link AuthProvider} backed by Supabase Auth. Email confirmation is disabled in the Supabase project, so
+ * registration needs no confirmation step here.
+ */
 @Service
-public class SupabaseAuthService {
+@ConditionalOnProperty(name = "auth.provider", havingValue = "supabase", matchIfMissing = true)
+public class SupabaseAuthService implements AuthProvider {
+
+    private static final MediaType JSON = MediaType.get("application/json");
 
     private final SupabaseConfig supabaseConfig;
-    private final OkHttpClient httpClient;
-    private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
+    // Resolved on first Supabase call so the client (and its connection pool) is not built during startup
+    private final ObjectProvider<OkHttpClient> httpClientProvider;
+    private final ProfileProvisioner profileProvisioner;
     private final ObjectMapper objectMapper;
+    // Responses are bound straight from the OkHttp body stream into these types
+    private final ObjectReader sessionReader;
+    private final ObjectReader userReader;
 
-    @Value("${jwt.expiration:3600}")
-    private long jwtExpiration;
-
-    public SupabaseAuthService(SupabaseConfig supabaseConfig, OkHttpClient httpClient, 
-                              UserRepository userRepository, JwtUtil jwtUtil) {
+    public SupabaseAuthService(SupabaseConfig supabaseConfig, ObjectProvider<OkHttpClient> httpClientProvider, 
+                              ProfileProvisioner profileProvisioner, ObjectMapper objectMapper) {
         this.supabaseConfig = supabaseConfig;
-        this.httpClient = httpClient;
-        this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
-        this.objectMapper = new ObjectMapper();
+        this.httpClientProvider = httpClientProvider;
+        this.profileProvisioner = profileProvisioner;
+        this.objectMapper = objectMapper;
+        this.sessionReader = objectMapper.readerFor(SupabaseSession.class);
+        this.userReader = objectMapper.readerFor(SupabaseUser.class);
     }
 
     /**
      * Student self-registration: creates Supabase auth user
      * Uses regular signup - email confirmation will be disabled in Supabase settings
      */
+    @Override
     public void registerStudent(String name, String email, String password) {
         try {
             // Simple signup request
@@ -52,12 +61,7 @@ public class SupabaseAuthService {
             metadata.put("name", name);
             signupData.put("user_metadata", metadata);
 
-            String json = objectMapper.writeValueAsString(signupData);
-            
-            RequestBody body = RequestBody.create(
-                json, 
-                MediaType.parse("application/json")
-            );
+            RequestBody body = RequestBody.create(objectMapper.writeValueAsBytes(signupData), JSON);
 
             // Use regular signup endpoint
             Request request = new Request.Builder()
@@ -67,11 +71,11 @@ public class SupabaseAuthService {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                System.out.println("Supabase signup response: " + responseBody);
-                
+            try (Response response = httpClient().newCall(request).execute()) {
+                System.out.println("Supabase signup status: " + response.code());
+
                 if (!response.isSuccessful()) {
+                    String responseBody = errorBody(response);
                     System.err.println("Signup failed: " + responseBody);
                     
                     if (responseBody.contains("already registered") || responseBody.contains("already exists")) {
@@ -80,27 +84,13 @@ public class SupabaseAuthService {
                     throw new IllegalStateException("Registration failed: " + responseBody);
                 }
 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseData = objectMapper.readValue(responseBody, Map.class);
+                SupabaseUser userData = readSession(response).user();
                 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> userData = (Map<String, Object>) responseData.get("user");
-                
-                if (userData != null && userData.get("id") != null) {
-                    String userId = (String) userData.get("id");
-                    
-                    // Create user profile in database
-                    User user = new User();
-                    user.setId(userId);
-                    user.setName(name);
-                    user.setEmail(email.toLowerCase());
-                    user.setRole("STUDENT");
-                    user.setEmailVerified(true); // Mark as verified since confirmation is disabled
-                    user.setPasswordHash("");
-                    user.setAssignedOfficeIds(null);
-                    user.setBadges(null);
+                if (userData != null && userData.id() != null) {
+                    String userId = userData.id();
                     
-                    userRepository.save(user);
+                    // Create user profile in database, verified since confirmation is disabled
+                    profileProvisioner.provision(userId, name, email, "STUDENT");
                     System.out.println("✓ User registered: " + email + " (ID: " + userId + ")");
                 }
             }
@@ -111,6 +101,11 @@ public class SupabaseAuthService {
         }
     }
 
+    @Override
+    public void confirmRegistration(String email, String code) {
+        // Accounts are confirmed at signup; see verifyOtp for projects with confirmation enabled
+    }
+
     /**
      * Verify OTP code sent to email
      */
@@ -122,12 +117,7 @@ public class SupabaseAuthService {
             verifyData.put("token", token);
             verifyData.put("type", "email"); // Changed from "signup" to "email" for OTP verification
 
-            String json = objectMapper.writeValueAsString(verifyData);
-            
-            RequestBody body = RequestBody.create(
-                json, 
-                MediaType.parse("application/json")
-            );
+            RequestBody body = RequestBody.create(objectMapper.writeValueAsBytes(verifyData), JSON);
 
             Request request = new Request.Builder()
                     .url(supabaseConfig.getSupabaseUrl() + "/auth/v1/verify")
@@ -136,53 +126,21 @@ public class SupabaseAuthService {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                
+            try (Response response = httpClient().newCall(request).execute()) {
                 System.out.println("OTP verification status: " + response.code());
-                System.out.println("OTP verification response: " + responseBody);
                 
                 if (!response.isSuccessful()) {
-                    System.err.println("OTP verification failed with status " + response.code() + ": " + responseBody);
+                    System.err.println("OTP verification failed with status " + response.code() + ": " + errorBody(response));
                     throw new IllegalArgumentException("Invalid or expired OTP code");
                 }
                 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseData = objectMapper.readValue(responseBody, Map.class);
+                SupabaseUser userData = readSession(response).user();
                 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> userData = (Map<String, Object>) responseData.get("user");
-                
-                if (userData != null && userData.get("id") != null) {
-                    String userId = (String) userData.get("id");
+                if (userData != null && userData.id() != null) {
+                    String userId = userData.id();
                     
-                    // Check if user profile already exists
-                    if (!userRepository.existsById(userId)) {
-                        // Get name from user metadata
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> userMetadata = (Map<String, Object>) userData.get("user_metadata");
-                        String name = userMetadata != null ? (String) userMetadata.get("name") : "Student";
-                        
-                        // Create user profile now that email is verified
-                        User user = new User();
-                        user.setId(userId);
-                        user.setName(name);
-                        user.setEmail(email.toLowerCase());
-                        user.setRole("STUDENT");
-                        user.setEmailVerified(true);
-                        user.setPasswordHash("");
-                        user.setAssignedOfficeIds(null); // JSON field must be null
-                        user.setBadges(null); // JSON field must be null
-                        userRepository.save(user);
-                        
-                        System.out.println("✓ User profile created for: " + email + " (ID: " + userId + ")");
-                    } else {
-                        // Update email verification status
-                        userRepository.findById(userId).ifPresent(user -> {
-                            user.setEmailVerified(true);
-                            userRepository.save(user);
-                        });
-                    }
+                    // Create the profile now that email is verified, or mark the existing one verified
+                    profileProvisioner.ensureVerified(userId, userData.nameOr("Student"), email);
                     
                     System.out.println("✓ OTP verified successfully for: " + email);
                 }
@@ -197,19 +155,15 @@ public class SupabaseAuthService {
     /**
      * Login with Supabase Auth
      */
-    public AuthResponse login(String email, String password) {
+    @Override
+    public User authenticate(String email, String password) {
         try {
             // Prepare login request
             Map<String, Object> loginData = new HashMap<>();
             loginData.put("email", email);
             loginData.put("password", password);
 
-            String json = objectMapper.writeValueAsString(loginData);
-            
-            RequestBody body = RequestBody.create(
-                json, 
-                MediaType.parse("application/json")
-            );
+            RequestBody body = RequestBody.create(objectMapper.writeValueAsBytes(loginData), JSON);
 
             // Call Supabase Auth API
             Request request = new Request.Builder()
@@ -219,77 +173,30 @@ public class SupabaseAuthService {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                
+            try (Response response = httpClient().newCall(request).execute()) {
                 System.out.println("Login status: " + response.code());
-                System.out.println("Login response: " + responseBody);
                 
                 if (!response.isSuccessful()) {
                     throw new IllegalArgumentException("Invalid email or password");
                 }
 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseData = objectMapper.readValue(responseBody, Map.class);
+                SupabaseUser userData = readSession(response).user();
                 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> userData = (Map<String, Object>) responseData.get("user");
-                
-                if (userData == null || userData.get("id") == null) {
+                if (userData == null || userData.id() == null) {
                     throw new IllegalArgumentException("Invalid credentials");
                 }
                 
-                String supabaseUserId = (String) userData.get("id");
-                String emailConfirmedAt = (String) userData.get("email_confirmed_at");
-                boolean emailVerified = emailConfirmedAt != null;
+                String supabaseUserId = userData.id();
 
-                if (!emailVerified) {
+                if (!userData.isEmailConfirmed()) {
                     throw new IllegalStateException("Email not verified. Please verify your email first.");
                 }
 
-                // Get or create user profile from database
-                User user = userRepository.findById(supabaseUserId).orElseGet(() -> {
-                    // User verified in Supabase but profile not in our DB - create it now
-                    System.out.println("⚠️ User verified in Supabase but missing in DB - creating profile for: " + email);
-                    
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> userMetadata = (Map<String, Object>) userData.get("user_metadata");
-                    String name = userMetadata != null ? (String) userMetadata.get("name") : "Student";
-                    
-                    User newUser = new User();
-                    newUser.setId(supabaseUserId);
-                    newUser.setName(name);
-                    newUser.setEmail(email.toLowerCase());
-                    newUser.setRole("STUDENT");
-                    newUser.setEmailVerified(true);
-                    newUser.setPasswordHash("");
-                    newUser.setAssignedOfficeIds(null); // JSON field must be null
-                    newUser.setBadges(null); // JSON field must be null
-                    
-                    return userRepository.save(newUser);
-                });
-
-                // Update email verification status if needed
-                if (!user.isEmailVerified()) {
-                    user.setEmailVerified(true);
-                    userRepository.save(user);
-                }
-
-                // Generate our JWT token
-                String token = jwtUtil.generateToken(user.getId(), user.getEmail(), jwtExpiration);
-
-                UserDTO dto = new UserDTO(
-                    user.getId(),
-                    user.getName(),
-                    user.getEmail(),
-                    user.isEmailVerified(),
-                    user.getRole(),
-                    user.getPoints(),
-                    JsonUtils.readStringList(user.getAssignedOfficeIds())
-                );
+                // Get the profile, creating it if the user is verified in Supabase but missing in our DB
+                User user = profileProvisioner.ensureVerified(supabaseUserId, userData.nameOr("Student"), email);
 
                 System.out.println("✓ Login successful: " + email);
-                return new AuthResponse(token, dto, jwtExpiration);
+                return user;
             }
 
         } catch (IOException e) {
@@ -315,12 +222,7 @@ public class SupabaseAuthService {
             userMetadata.put("role", role);
             createData.put("user_metadata", userMetadata);
 
-            String json = objectMapper.writeValueAsString(createData);
-            
-            RequestBody body = RequestBody.create(
-                json, 
-                MediaType.parse("application/json")
-            );
+            RequestBody body = RequestBody.create(objectMapper.writeValueAsBytes(createData), JSON);
 
             // Call Supabase Admin API (requires service role key)
             Request request = new Request.Builder()
@@ -331,31 +233,16 @@ public class SupabaseAuthService {
                     .post(body)
                     .build();
 
-            try (Response response = httpClient.newCall(request).execute()) {
+            try (Response response = httpClient().newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     String errorBody = response.body() != null ? response.body().string() : "No error details";
                     throw new IllegalStateException("Failed to create staff user in Supabase: " + errorBody);
                 }
 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseData = objectMapper.readValue(
-                    response.body().string(), 
-                    Map.class
-                );
-                
-                String supabaseUserId = (String) responseData.get("id");
-
-                // Create profile in our database
-                User user = new User();
-                user.setId(supabaseUserId);
-                user.setName(name);
-                user.setEmail(email.toLowerCase());
-                user.setRole(role); // STAFF or ADMIN
-                user.setEmailVerified(true);
-                user.setPasswordHash(""); // Managed by Supabase
-                user.setAssignedOfficeIds(null); // JSON field must be null
-                user.setBadges(null); // JSON field must be null
-                userRepository.save(user);
+                String supabaseUserId = userReader.<SupabaseUser>readValue(response.body().byteStream()).id();
+
+                // Create profile in our database (password managed by Supabase)
+                profileProvisioner.provision(supabaseUserId, name, email, role); // STAFF or ADMIN
 
                 System.out.println("✓ Staff/Admin user created: " + email + " (Role: " + role + ")");
             }
@@ -365,4 +252,19 @@ public class SupabaseAuthService {
             throw new IllegalStateException("Failed to create staff user: " + e.getMessage());
         }
     }
+
+    private SupabaseSession readSession(Response response) throws IOException {
+        if (response.body() == null) {
+            return new SupabaseSession(null);
+        }
+        return sessionReader.readValue(response.body().byteStream());
+    }
+
+    private static String errorBody(Response response) throws IOException {
+        return response.body() != null ? response.body().string() : "";
+    }
+
+    private OkHttpClient httpClient() {
+        return httpClientProvider.getObject();
+    }
 }
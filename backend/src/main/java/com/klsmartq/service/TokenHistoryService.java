@@ -0,0 +1,91 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.TokenHistoryItem;
+import com.klsmartq.dto.TokenHistoryPage;
+import com.klsmartq.queue.QueuedToken;
+import com.klsmartq.repository.TokenHistoryRow;
+import com.klsmartq.repository.TokenRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class TokenHistoryService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> STATUSES = Set.of(
+        QueuedToken.WAITING, QueuedToken.IN_PROGRESS, QueuedToken.COMPLETED, QueuedToken.CANCELLED);
+    // Sorts after every real row, so the first page needs no special-cased query
+    private static final Instant FIRST_PAGE_AT = Instant.parse("9999-12-31T00:00:00Z");
+
+    private final TokenRepository tokenRepository;
+
+    public TokenHistoryService(TokenRepository tokenRepository) {
+        this.tokenRepository = tokenRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public TokenHistoryPage getHistory(String studentId, String cursor, Integer limit, String officeId, String status) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String normalizedStatus = null;
+        if (status != null && !status.isBlank()) {
+            normalizedStatus = status.trim().toUpperCase();
+            if (!STATUSES.contains(normalizedStatus)) {
+                throw new IllegalArgumentException("Unsupported status");
+            }
+        }
+        String normalizedOffice = officeId == null || officeId.isBlank() ? null : officeId.trim();
+
+        Instant cursorAt = FIRST_PAGE_AT;
+        String cursorId = "";
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            cursorAt = Instant.parse(parts[0]);
+            cursorId = parts[1];
+        }
+
+        // Fetch one extra row to learn whether another page exists
+        List<TokenHistoryRow> rows = tokenRepository.findHistoryPage(studentId, cursorAt, cursorId,
+            normalizedOffice, normalizedStatus, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<TokenHistoryItem> items = rows.stream()
+            .limit(pageSize)
+            .map(r -> new TokenHistoryItem(r.getId(), r.getTokenNumber(), r.getOfficeId(), r.getPurpose(), r.getStatus(), r.getCreatedAt()))
+            .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasMore) {
+            TokenHistoryItem last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        return new TokenHistoryPage(items, nextCursor);
+    }
+
+    private static String encodeCursor(Instant createdAt, String id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Instant.parse(parts[0]);
+            return parts;
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
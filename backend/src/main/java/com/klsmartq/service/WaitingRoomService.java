@@ -0,0 +1,219 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.WaitingRoomStatus;
+import com.klsmartq.util.OfficeSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual waiting room in front of {@code POST /api/tokens}. Each office lets bookings through at a configured
+ * rate with a small burst; callers beyond that get a signed ticket naming the time from which they may book,
+ * and are told to come back then.
+ * <p>
+ * Slots are handed out with a per-office GCRA schedule (one CAS per booking, no lock and no database). The
+ * ticket carries its own admission time and is HMAC-signed, so status polls are answered from the ticket alone.
+ * Tickets are bound to office and student, expire after the redeem window and let one booking through; a used
+ * or expired ticket is treated like none. Rates apply per instance.
+ */
+@Service
+public class WaitingRoomService {
+
+    public static final String TICKET_HEADER = "Waiting-Room-Ticket";
+    private static final String HMAC = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private record Ticket(String id, String officeId, String studentId, long admitAt, long expiresAt) {}
+
+    private final boolean enabled;
+    private final double defaultRate;
+    private final Map<String, Double> officeRates;
+    private final int burst;
+    private final long redeemWindowMs;
+    private final long maxWaitMs;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    // Theoretical arrival time (epoch micros) of the next booking per office
+    private final Map<String, AtomicLong> schedules = new ConcurrentHashMap<>();
+    // Outstanding ticket per office and student, so asking again does not take a second slot
+    private final Map<String, Ticket> waiting = new ConcurrentHashMap<>();
+    // Ticket id -> expiry of tickets already used to book
+    private final Map<String, Long> redeemed = new ConcurrentHashMap<>();
+
+    public WaitingRoomService(@Value("${waiting-room.enabled:true}") boolean enabled,
+                              @Value("${waiting-room.rate-per-second:20}") double defaultRate,
+                              @Value("${waiting-room.office-rates:}") String officeRates,
+                              @Value("${waiting-room.burst:20}") int burst,
+                              @Value("${waiting-room.redeem-window-seconds:120}") long redeemWindowSeconds,
+                              @Value("${waiting-room.max-wait-seconds:1800}") long maxWaitSeconds,
+                              @Value("${waiting-room.secret:}") String secret,
+                              JwtUtil jwtUtil) {
+        if (defaultRate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("waiting-room.rate-per-second and waiting-room.burst must be positive");
+        }
+        this.enabled = enabled;
+        this.defaultRate = defaultRate;
+        this.officeRates = OfficeSettings.parsePositive(officeRates, "waiting-room.office-rates");
+        this.burst = burst;
+        this.redeemWindowMs = redeemWindowSeconds * 1000;
+        this.maxWaitMs = maxWaitSeconds * 1000;
+        // Without a secret of its own, a key derived from the JWT key: a ticket can never pass for anything else
+        this.key = new SecretKeySpec(secret.isBlank() ? jwtUtil.deriveKey("waiting-room")
+            : secret.getBytes(StandardCharsets.UTF_8), HMAC);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", ex);
+            }
+        });
+    }
+
+    /**
+     * Decides whether a booking may go ahead now. Returns null when it may; otherwise the caller's waiting
+     * status, to be sent back with 429. {@code ticket} is the {@value #TICKET_HEADER} header and may be null.
+     */
+    public WaitingRoomStatus admit(String officeId, String studentId, String ticket) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (ticket != null && !ticket.isBlank()) {
+            Ticket presented = decode(ticket);
+            if (!presented.officeId().equals(officeId) || !presented.studentId().equals(studentId)) {
+                throw new IllegalArgumentException("Waiting-room ticket was issued for another office or student");
+            }
+            if (now < presented.admitAt()) {
+                return toStatus(ticket, presented, now);
+            }
+            if (now <= presented.expiresAt() && redeemed.putIfAbsent(presented.id(), presented.expiresAt()) == null) {
+                waiting.remove(key(officeId, studentId), presented);
+                return null;
+            }
+            // Expired or already used: queue again like a caller without a ticket
+        }
+        Ticket issued = take(officeId, studentId, now);
+        if (issued.admitAt() <= now) {
+            // An outstanding ticket may have been handed out by join(); it is used up now as well
+            redeemed.put(issued.id(), issued.expiresAt());
+            waiting.remove(key(officeId, studentId), issued);
+            return null;
+        }
+        return toStatus(encode(issued), issued, now);
+    }
+
+    /** Issues a ticket for the office, or returns the caller's outstanding one. */
+    public WaitingRoomStatus join(String officeId, String studentId) {
+        long now = System.currentTimeMillis();
+        if (!enabled) {
+            Ticket open = new Ticket(UUID.randomUUID().toString(), officeId, studentId, now, now + redeemWindowMs);
+            return toStatus(encode(open), open, now);
+        }
+        Ticket issued = take(officeId, studentId, now);
+        return toStatus(encode(issued), issued, now);
+    }
+
+    /** Status of a ticket, computed from the ticket itself. */
+    public WaitingRoomStatus status(String ticket) {
+        return toStatus(ticket, decode(ticket), System.currentTimeMillis());
+    }
+
+    /** Drops expired tickets, redeemed ids and schedules of offices that have gone quiet. */
+    @Scheduled(fixedDelayString = "${waiting-room.sweep-interval-ms:10000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        waiting.values().removeIf(t -> t.expiresAt() < now);
+        redeemed.values().removeIf(expiresAt -> expiresAt < now);
+        // A schedule in the past behaves exactly like a fresh one
+        schedules.values().removeIf(tat -> tat.get() < now * 1000);
+    }
+
+    private Ticket take(String officeId, String studentId, long now) {
+        return waiting.compute(key(officeId, studentId), (k, existing) -> {
+            if (existing != null && now <= existing.expiresAt()) {
+                return existing;
+            }
+            long admitAt = reserve(officeId, now);
+            return new Ticket(UUID.randomUUID().toString(), officeId, studentId, admitAt, admitAt + redeemWindowMs);
+        });
+    }
+
+    /** Takes the office's next slot and returns the epoch millis at which it may be used. */
+    private long reserve(String officeId, long nowMs) {
+        long interval = intervalMicros(officeId);
+        long tolerance = (burst - 1) * interval;
+        long now = nowMs * 1000;
+        AtomicLong tat = schedules.computeIfAbsent(officeId, id -> new AtomicLong());
+        while (true) {
+            long current = tat.get();
+            long slot = Math.max(current, now);
+            long admitAt = Math.max(now, slot - tolerance);
+            if (admitAt - now > maxWaitMs * 1000) {
+                throw new IllegalStateException("The waiting room for this office is full, try again later");
+            }
+            if (tat.compareAndSet(current, slot + interval)) {
+                return (admitAt + 999) / 1000;
+            }
+        }
+    }
+
+    private WaitingRoomStatus toStatus(String encoded, Ticket ticket, long now) {
+        long waitMs = Math.max(0, ticket.admitAt() - now);
+        long position = waitMs == 0 ? 0 : (waitMs * 1000 + intervalMicros(ticket.officeId()) - 1) / intervalMicros(ticket.officeId());
+        return new WaitingRoomStatus(encoded, ticket.officeId(), waitMs == 0, position, (waitMs + 999) / 1000,
+            ticket.admitAt(), ticket.expiresAt());
+    }
+
+    private long intervalMicros(String officeId) {
+        return Math.max(1, (long) (1_000_000 / officeRates.getOrDefault(officeId, defaultRate)));
+    }
+
+    private String encode(Ticket ticket) {
+        byte[] payload = String.join("|", ticket.id(), ticket.officeId(), ticket.studentId(),
+            Long.toString(ticket.admitAt()), Long.toString(ticket.expiresAt())).getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    private Ticket decode(String ticket) {
+        int dot = ticket.indexOf('.');
+        try {
+            if (dot < 0) {
+                throw new IllegalArgumentException();
+            }
+            byte[] payload = DECODER.decode(ticket.substring(0, dot));
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(ticket.substring(dot + 1)))) {
+                throw new IllegalArgumentException();
+            }
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split("\\|");
+            if (fields.length != 5) {
+                throw new IllegalArgumentException();
+            }
+            return new Ticket(fields[0], fields[1], fields[2], Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid waiting-room ticket");
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    private static String key(String officeId, String studentId) {
+        return officeId + "|" + studentId;
+    }
+}
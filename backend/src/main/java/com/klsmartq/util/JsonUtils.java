@@ -3,18 +3,28 @@ package com.klsmartq.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import java.util.Collections;
 import java.util.List;
 
 public final class JsonUtils {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final TypeReference<List<String>> STRING_LIST_TYPE = new TypeReference<>() {};
 
+    // Default mapper until the application context hands over the shared one (see JacksonConfig)
+    private static volatile ObjectReader stringListReader = new ObjectMapper().readerFor(STRING_LIST_TYPE);
+    private static volatile ObjectWriter writer = new ObjectMapper().writer();
+
     private JsonUtils() {
     }
 
+    public static void useMapper(ObjectMapper mapper) {
+        stringListReader = mapper.readerFor(STRING_LIST_TYPE);
+        writer = mapper.writer();
+    }
+
     public static String writeStringList(List<String> values) {
         if (values == null || values.isEmpty()) {
             return null;
@@ -27,7 +37,7 @@ public final class JsonUtils {
             return null;
         }
         try {
-            return MAPPER.writeValueAsString(trimmed);
+            return writer.writeValueAsString(trimmed);
         } catch (JsonProcessingException ex) {
             throw new IllegalArgumentException("Failed to serialize office assignments", ex);
         }
@@ -38,7 +48,7 @@ public final class JsonUtils {
             return Collections.emptyList();
         }
         try {
-            return MAPPER.readValue(json, STRING_LIST_TYPE);
+            return stringListReader.readValue(json);
         } catch (Exception ex) {
             return Collections.emptyList();
         }
@@ -0,0 +1,33 @@
+package com.klsmartq.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class OfficeSettings {
+
+    private OfficeSettings() {
+    }
+
+    /**
+     * Parses a per-office setting written as {@code officeId:value,officeId:value}. Values must be positive;
+     * {@code property} names the setting in the error message.
+     */
+    public static Map<String, Double> parsePositive(String spec, String property) {
+        Map<String, Double> values = new HashMap<>();
+        if (spec == null) {
+            return values;
+        }
+        for (String part : spec.split(",")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int colon = part.lastIndexOf(':');
+            double value = colon > 0 ? Double.parseDouble(part.substring(colon + 1).trim()) : 0;
+            if (value <= 0) {
+                throw new IllegalArgumentException("Invalid " + property + " entry: " + part);
+            }
+            values.put(part.substring(0, colon).trim(), value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,18 @@
+-- Emails are unique regardless of case. Registration inserts with ON CONFLICT (upper(email)), which needs a
+-- unique index on that expression; it replaces the plain lookup index from V5. Accounts whose emails differ only
+-- in case cannot be merged automatically, so the migration stops and names how many there are.
+DO $$
+DECLARE
+  duplicates BIGINT;
+BEGIN
+  SELECT count(*) INTO duplicates
+    FROM (SELECT 1 FROM users WHERE email IS NOT NULL GROUP BY upper(email) HAVING count(*) > 1) d;
+  IF duplicates > 0 THEN
+    RAISE EXCEPTION '% emails are used by more than one account when compared case-insensitively; '
+      'merge or change those accounts (SELECT upper(email) FROM users GROUP BY 1 HAVING count(*) > 1) and restart',
+      duplicates;
+  END IF;
+END $$;
+
+DROP INDEX IF EXISTS idx_users_email_upper;
+CREATE UNIQUE INDEX idx_users_email_upper ON users (upper(email));
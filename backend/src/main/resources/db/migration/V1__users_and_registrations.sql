@@ -0,0 +1,29 @@
+-- Baseline schema. IF NOT EXISTS keeps this a no-op on databases created by the
+-- former ddl-auto: update setup (spring.flyway.baseline-on-migrate handles the history table).
+
+CREATE TABLE IF NOT EXISTS users (
+  id VARCHAR(36) PRIMARY KEY,
+  name VARCHAR(255),
+  email VARCHAR(255) UNIQUE,
+  password_hash VARCHAR(255),
+  is_email_verified BOOLEAN DEFAULT FALSE,
+  role VARCHAR(20) NOT NULL DEFAULT 'STUDENT',
+  assigned_office_ids JSON DEFAULT NULL,
+  points INTEGER DEFAULT 0,
+  badges JSON DEFAULT NULL,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_users_role ON users(role);
+
+CREATE TABLE IF NOT EXISTS temp_registrations (
+  email VARCHAR(255) PRIMARY KEY,
+  name VARCHAR(255),
+  password_hash VARCHAR(255),
+  code VARCHAR(16),
+  expires_at TIMESTAMP WITH TIME ZONE,
+  verified BOOLEAN DEFAULT FALSE,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_temp_registrations_expires ON temp_registrations(expires_at);
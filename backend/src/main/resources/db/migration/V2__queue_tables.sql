@@ -0,0 +1,29 @@
+-- Offices and tokens for the server-side queue
+
+CREATE TABLE IF NOT EXISTS offices (
+  id VARCHAR(36) PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  prefix VARCHAR(10) NOT NULL,
+  operating_hours VARCHAR(255),
+  token_limit INTEGER DEFAULT 100,
+  is_active BOOLEAN DEFAULT TRUE
+);
+
+CREATE TABLE IF NOT EXISTS tokens (
+  id VARCHAR(36) PRIMARY KEY,
+  token_number VARCHAR(20) NOT NULL,
+  student_id VARCHAR(36) NOT NULL,
+  office_id VARCHAR(36) NOT NULL,
+  purpose VARCHAR(255),
+  priority VARCHAR(20) NOT NULL DEFAULT 'NORMAL',
+  status VARCHAR(20) NOT NULL DEFAULT 'WAITING',
+  is_checked_in BOOLEAN DEFAULT FALSE,
+  served_by VARCHAR(36),
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+  called_at TIMESTAMP WITH TIME ZONE,
+  completed_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Used to seed the in-memory queues when no local journal exists
+CREATE INDEX IF NOT EXISTS idx_tokens_status_created ON tokens(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_tokens_office_created ON tokens(office_id, created_at);
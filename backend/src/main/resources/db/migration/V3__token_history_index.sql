@@ -0,0 +1,6 @@
+-- Covering index for GET /api/tokens/history: keyset pagination on
+-- (student_id, created_at DESC, id DESC), answered by an index-only scan.
+
+CREATE INDEX IF NOT EXISTS idx_tokens_student_history
+  ON tokens (student_id, created_at DESC, id DESC)
+  INCLUDE (status, office_id, token_number, purpose);
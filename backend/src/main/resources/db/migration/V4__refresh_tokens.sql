@@ -0,0 +1,21 @@
+-- Refresh tokens, stored as SHA-256 hashes and rotated on every use. A token belongs to the family started
+-- at login; presenting a used token again revokes the whole family.
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+  token_hash VARCHAR(64) PRIMARY KEY,
+  user_id VARCHAR(36) NOT NULL,
+  family_id VARCHAR(36) NOT NULL,
+  expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  used_at TIMESTAMP WITH TIME ZONE,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens(family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires ON refresh_tokens(expires_at);
+
+-- Access tokens (by jti) revoked before their expiry; loaded into memory at startup
+CREATE TABLE IF NOT EXISTS revoked_access_tokens (
+  jti VARCHAR(36) PRIMARY KEY,
+  expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_access_tokens_expires ON revoked_access_tokens(expires_at);
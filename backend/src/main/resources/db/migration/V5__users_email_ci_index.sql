@@ -0,0 +1,3 @@
+-- Case-insensitive email lookup for local login (findByEmailIgnoreCase compares upper(email)).
+
+CREATE INDEX IF NOT EXISTS idx_users_email_upper ON users (upper(email));
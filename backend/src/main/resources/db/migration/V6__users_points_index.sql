@@ -0,0 +1,6 @@
+-- Student leaderboard (GET /api/rewards/leaderboard): top-N by points read straight off the index.
+
+CREATE INDEX IF NOT EXISTS idx_users_student_points
+  ON users (points DESC NULLS LAST, id)
+  INCLUDE (name)
+  WHERE role = 'STUDENT';
@@ -0,0 +1,20 @@
+-- Audit trail of admin and queue actions, written in batches by AuditLog. Partitioned by month so old months
+-- are dropped as whole tables; the application creates the current and next month's partitions, and rows
+-- outside them land in the default partition.
+
+CREATE TABLE IF NOT EXISTS audit_log (
+  occurred_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  actor_id VARCHAR(255),
+  action VARCHAR(64) NOT NULL,
+  target_type VARCHAR(32),
+  target_id VARCHAR(255),
+  details TEXT
+) PARTITION BY RANGE (occurred_at);
+
+CREATE TABLE IF NOT EXISTS audit_log_default PARTITION OF audit_log DEFAULT;
+
+-- GET /api/admin/audit?actorId=...: one actor's actions in a time range
+CREATE INDEX IF NOT EXISTS idx_audit_log_actor_time ON audit_log (actor_id, occurred_at);
+
+-- Time range without an actor; rows arrive roughly in time order, so a BRIN index stays tiny
+CREATE INDEX IF NOT EXISTS idx_audit_log_time ON audit_log USING BRIN (occurred_at);
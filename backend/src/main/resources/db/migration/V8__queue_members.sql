@@ -0,0 +1,7 @@
+-- Cluster mode (queue.cluster.enabled): one row per running instance, refreshed by its heartbeat. Offices are
+-- assigned to the live instances by consistent hashing.
+CREATE TABLE IF NOT EXISTS queue_members (
+  instance_id VARCHAR(36) PRIMARY KEY,
+  base_url VARCHAR(255) NOT NULL,
+  heartbeat_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
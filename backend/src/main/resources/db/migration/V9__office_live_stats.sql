@@ -0,0 +1,10 @@
+-- Read model behind the public office summaries: one row per office with its current counters, written behind
+-- the in-memory queue by OfficeLiveStatsService and corrected by its periodic reconciliation.
+CREATE TABLE IF NOT EXISTS office_live_stats (
+  office_id VARCHAR(36) PRIMARY KEY,
+  waiting INTEGER NOT NULL DEFAULT 0,
+  in_progress INTEGER NOT NULL DEFAULT 0,
+  now_serving VARCHAR(20),
+  issued_today INTEGER NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,122 @@
+package com.klsmartq.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditRingBufferTest {
+
+    private static AuditEvent event(int n) {
+        return new AuditEvent(Instant.EPOCH, "actor", "action", "token", String.valueOf(n), null);
+    }
+
+    private static List<String> targetIds(List<AuditEvent> events) {
+        return events.stream().map(AuditEvent::targetId).toList();
+    }
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new AuditRingBuffer(2).capacity()).isEqualTo(2);
+        assertThat(new AuditRingBuffer(5).capacity()).isEqualTo(8);
+        assertThat(new AuditRingBuffer(8).capacity()).isEqualTo(8);
+        assertThatThrownBy(() -> new AuditRingBuffer(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void offerFailsWhenFullAndSucceedsOnceDrained() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(event(i))).isTrue();
+        }
+
+        assertThat(buffer.offer(event(4))).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        List<AuditEvent> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 1)).isEqualTo(1);
+        assertThat(buffer.offer(event(4))).isTrue();
+        assertThat(buffer.offer(event(5))).isFalse();
+    }
+
+    @Test
+    void drainKeepsOrderAcrossManyLaps() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        List<AuditEvent> drained = new ArrayList<>();
+        int next = 0;
+        // Three events in, two out each round: positions wrap the four slots many times
+        for (int round = 0; round < 50; round++) {
+            while (buffer.size() < 3) {
+                assertThat(buffer.offer(event(next++))).isTrue();
+            }
+            buffer.drainTo(drained, 2);
+        }
+        buffer.drainTo(drained, Integer.MAX_VALUE);
+
+        assertThat(buffer.size()).isZero();
+        assertThat(targetIds(drained))
+            .containsExactlyElementsOf(IntStream.range(0, next).mapToObj(String::valueOf).toList());
+    }
+
+    @Test
+    void drainStopsAtMaxAndAtTheEmptyBuffer() {
+        AuditRingBuffer buffer = new AuditRingBuffer(8);
+        IntStream.range(0, 5).forEach(i -> buffer.offer(event(i)));
+        List<AuditEvent> drained = new ArrayList<>();
+
+        assertThat(buffer.drainTo(drained, 3)).isEqualTo(3);
+        assertThat(buffer.drainTo(drained, 10)).isEqualTo(2);
+        assertThat(buffer.drainTo(drained, 10)).isZero();
+        assertThat(targetIds(drained)).containsExactly("0", "1", "2", "3", "4");
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws InterruptedException {
+        AuditRingBuffer buffer = new AuditRingBuffer(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(event(base + i))) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        Set<String> seen = new HashSet<>();
+        List<AuditEvent> batch = new ArrayList<>();
+        while (seen.size() < producers * perProducer) {
+            batch.clear();
+            buffer.drainTo(batch, 256);
+            for (AuditEvent event : batch) {
+                assertThat(seen.add(event.targetId())).isTrue();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -0,0 +1,118 @@
+package com.klsmartq.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArrivalIndexTest {
+
+    private static QueuedToken token(long arrival) {
+        QueuedToken token = new QueuedToken();
+        token.setId("token-" + arrival);
+        token.setArrival(arrival);
+        return token;
+    }
+
+    private static void assertPositions(ArrivalIndex index, List<QueuedToken> live) {
+        assertThat(index.size()).isEqualTo(live.size());
+        for (QueuedToken token : live) {
+            long earlier = live.stream().filter(other -> other.getArrival() < token.getArrival()).count();
+            assertThat(index.countBefore(token)).as("position of arrival %d", token.getArrival()).isEqualTo(earlier);
+        }
+    }
+
+    @Test
+    void countsTokensThatArrivedEarlier() {
+        ArrivalIndex index = new ArrivalIndex();
+        List<QueuedToken> live = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            QueuedToken token = token(i);
+            index.add(token);
+            live.add(token);
+        }
+        assertPositions(index, live);
+
+        assertThat(index.remove(live.remove(0))).isTrue();
+        assertThat(index.remove(live.remove(4))).isTrue();
+        assertPositions(index, live);
+    }
+
+    @Test
+    void tokensNotIndexedHereAreReportedAsSuch() {
+        ArrivalIndex index = new ArrivalIndex();
+        QueuedToken indexed = token(1);
+        index.add(indexed);
+        QueuedToken stranger = token(2);
+
+        assertThat(index.countBefore(stranger)).isEqualTo(-1);
+        assertThat(index.remove(stranger)).isFalse();
+
+        assertThat(index.remove(indexed)).isTrue();
+        assertThat(index.remove(indexed)).isFalse();
+        assertThat(index.countBefore(indexed)).isEqualTo(-1);
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void removedSlotsAreCompactedAwayWhenTheArraysFill() {
+        ArrivalIndex index = new ArrivalIndex();
+        List<QueuedToken> live = new ArrayList<>();
+        long arrival = 0;
+        // Each round fills the remaining slots and then removes all but the newest few, so most slots are
+        // tombstones by the time the next add finds the arrays full
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 16; i++) {
+                QueuedToken token = token(arrival++);
+                index.add(token);
+                live.add(token);
+            }
+            while (live.size() > 3) {
+                assertThat(index.remove(live.remove(0))).isTrue();
+            }
+            assertPositions(index, live);
+        }
+        // Compaction moved the live tokens to the front instead of growing without bound
+        assertThat(live).allMatch(token -> token.getQueueSlot() < 32);
+    }
+
+    @Test
+    void outOfOrderArrivalsAreSortedBeforeTheNextQuery() {
+        ArrivalIndex index = new ArrivalIndex();
+        List<QueuedToken> live = new ArrayList<>();
+        // Booked after a restart, then older tokens restored from Postgres with negative arrivals
+        for (long arrival : new long[] {5, 6, 7, -3, -2, -1, 8}) {
+            QueuedToken token = token(arrival);
+            index.add(token);
+            live.add(token);
+        }
+
+        assertPositions(index, live);
+        assertThat(index.countBefore(live.get(3))).isZero();
+    }
+
+    @Test
+    void matchesABruteForceCountUnderRandomChurn() {
+        Random random = new Random(42);
+        ArrivalIndex index = new ArrivalIndex();
+        List<QueuedToken> live = new ArrayList<>();
+        long arrival = 0;
+        for (int step = 0; step < 5_000; step++) {
+            if (live.isEmpty() || random.nextInt(100) < 55) {
+                // Mostly in order, sometimes an older token restored late
+                QueuedToken token = token(random.nextInt(20) == 0 ? -step - 1 : arrival++);
+                index.add(token);
+                live.add(token);
+            } else {
+                assertThat(index.remove(live.remove(random.nextInt(live.size())))).isTrue();
+            }
+            if (step % 250 == 0) {
+                assertPositions(index, live);
+            }
+        }
+        assertPositions(index, live);
+    }
+}
@@ -0,0 +1,93 @@
+package com.klsmartq.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashRingTest {
+
+    private static final List<String> OFFICES = IntStream.range(0, 10_000).mapToObj(i -> "office-" + i).toList();
+
+    private static Map<String, String> owners(HashRing ring) {
+        Map<String, String> owners = new HashMap<>();
+        OFFICES.forEach(office -> owners.put(office, ring.owner(office)));
+        return owners;
+    }
+
+    @Test
+    void emptyRingOwnsNothing() {
+        HashRing ring = HashRing.of(List.of(), 100);
+
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.owner("office-1")).isNull();
+        assertThatThrownBy(() -> HashRing.of(List.of("a"), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void everyInstanceBuildsTheSameRing() {
+        HashRing ring = HashRing.of(List.of("a", "b", "c"), 100);
+        HashRing shuffled = HashRing.of(List.of("c", "a", "b", "a"), 100);
+
+        assertThat(shuffled.members()).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(owners(shuffled)).isEqualTo(owners(ring));
+    }
+
+    @Test
+    void officesAreSpreadOverTheMembers() {
+        Map<String, Long> counts = new HashMap<>();
+        owners(HashRing.of(List.of("a", "b", "c"), 100)).values().forEach(owner -> counts.merge(owner, 1L, Long::sum));
+
+        assertThat(counts).containsOnlyKeys("a", "b", "c");
+        // A third each, give or take what 100 points per member leave uneven
+        assertThat(counts.values()).allMatch(count -> count > 2_300 && count < 4_400);
+    }
+
+    @Test
+    void joiningMemberOnlyTakesOfficesAndLeavingMemberOnlyGivesItsOwn() {
+        Map<String, String> before = owners(HashRing.of(List.of("a", "b", "c"), 100));
+        Map<String, String> joined = owners(HashRing.of(List.of("a", "b", "c", "d"), 100));
+        Map<String, String> left = owners(HashRing.of(List.of("a", "c"), 100));
+
+        for (String office : OFFICES) {
+            if (!joined.get(office).equals(before.get(office))) {
+                assertThat(joined.get(office)).isEqualTo("d");
+            }
+            if (!before.get(office).equals("b")) {
+                assertThat(left.get(office)).isEqualTo(before.get(office));
+            }
+        }
+        assertThat(joined).containsValue("d");
+    }
+
+    @Test
+    void positionsPastTheLastPointWrapToTheFirst() {
+        HashRing ring = HashRing.of(List.of("a", "b", "c"), 100);
+
+        assertThat(ring.ownerOfHash(-1)).isEqualTo(ring.ownerOfHash(0));
+    }
+
+    @Test
+    void tokenIdCarriesItsOfficePosition() {
+        HashRing ring = HashRing.of(List.of("a", "b", "c"), 100);
+        String tokenId = HashRing.tokenId("office-7");
+
+        assertThat(UUID.fromString(tokenId).version()).isEqualTo(8);
+        assertThat(HashRing.officeHash(tokenId)).isEqualTo(HashRing.hash("office-7"));
+        assertThat(ring.ownerOfHash(HashRing.officeHash(tokenId))).isEqualTo(ring.owner("office-7"));
+    }
+
+    @Test
+    void otherIdsCarryNoPosition() {
+        assertThat(HashRing.officeHash(UUID.randomUUID().toString())).isNull();
+        assertThat(HashRing.officeHash("not-a-token")).isNull();
+        assertThat(HashRing.officeHash("zzzzzzzz-0000-8000-8000-000000000000")).isNull();
+        assertThat(HashRing.officeHash(null)).isNull();
+    }
+}
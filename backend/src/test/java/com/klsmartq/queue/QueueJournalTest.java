@@ -0,0 +1,127 @@
+package com.klsmartq.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueueJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private static QueueEvent booking(int n) {
+        return QueueEvent.book("token-" + n, "office-1", "student-" + n, "A-" + n, "purpose", "NORMAL", 1_000L + n);
+    }
+
+    private List<Long> replay(QueueJournal journal, long afterSeq, List<QueueEvent> events) throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        journal.recover(afterSeq, (event, seq) -> {
+            events.add(event);
+            seqs.add(seq);
+        });
+        return seqs;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    @Test
+    void appendedEventsAreReplayedInOrderAfterReopening() throws IOException {
+        QueueJournal journal = new QueueJournal(directory, SEGMENT_SIZE);
+        journal.recover(0, (event, seq) -> { });
+        journal.append(booking(1));
+        journal.append(QueueEvent.transition(QueueEvent.Type.CALL, "token-1", "office-1", "staff", 2_000L));
+        journal.append(booking(2));
+        journal.close();
+
+        List<QueueEvent> events = new ArrayList<>();
+        QueueJournal reopened = new QueueJournal(directory, SEGMENT_SIZE);
+        List<Long> seqs = replay(reopened, 0, events);
+
+        assertThat(seqs).containsExactly(1L, 2L, 3L);
+        assertThat(events).extracting(QueueEvent::getType)
+            .containsExactly(QueueEvent.Type.BOOK, QueueEvent.Type.CALL, QueueEvent.Type.BOOK);
+        assertThat(events.get(0).getStudentId()).isEqualTo("student-1");
+        assertThat(events.get(1).getActorId()).isEqualTo("staff");
+        assertThat(reopened.append(booking(3))).isEqualTo(4);
+    }
+
+    @Test
+    void replaySkipsEventsCoveredBySnapshot() throws IOException {
+        QueueJournal journal = new QueueJournal(directory, SEGMENT_SIZE);
+        journal.recover(0, (event, seq) -> { });
+        for (int i = 1; i <= 5; i++) {
+            journal.append(booking(i));
+        }
+        journal.close();
+
+        List<QueueEvent> events = new ArrayList<>();
+        List<Long> seqs = replay(new QueueJournal(directory, SEGMENT_SIZE), 3, events);
+
+        assertThat(seqs).containsExactly(4L, 5L);
+        assertThat(events).extracting(QueueEvent::getTokenId).containsExactly("token-4", "token-5");
+    }
+
+    @Test
+    void corruptRecordEndsReplayOfItsSegment() throws IOException {
+        QueueJournal journal = new QueueJournal(directory, SEGMENT_SIZE);
+        journal.recover(0, (event, seq) -> { });
+        journal.append(booking(1));
+        journal.append(booking(2));
+        journal.close();
+
+        // Flip a byte inside the second record's payload, which its CRC no longer matches
+        Path segment = segments().get(0);
+        int secondRecord = 16 + booking(1).encode().length;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, secondRecord + 20);
+            one.put(0, (byte) ~one.get(0)).rewind();
+            channel.write(one, secondRecord + 20);
+        }
+
+        List<QueueEvent> events = new ArrayList<>();
+        List<Long> seqs = replay(new QueueJournal(directory, SEGMENT_SIZE), 0, events);
+
+        assertThat(seqs).containsExactly(1L);
+    }
+
+    @Test
+    void compactDropsOnlySegmentsFullyCovered() throws IOException {
+        QueueJournal journal = new QueueJournal(directory, 256);
+        journal.recover(0, (event, seq) -> { });
+        for (int i = 1; i <= 12; i++) {
+            journal.append(booking(i));
+        }
+        journal.flush();
+        List<Path> before = segments();
+        assertThat(before).hasSizeGreaterThan(2);
+
+        journal.compact(0);
+        assertThat(segments()).isEqualTo(before);
+
+        journal.compact(8);
+        journal.close();
+        assertThat(segments()).hasSizeLessThan(before.size());
+
+        List<QueueEvent> events = new ArrayList<>();
+        List<Long> seqs = replay(new QueueJournal(directory, 256), 8, events);
+        assertThat(seqs).containsExactly(9L, 10L, 11L, 12L);
+    }
+}
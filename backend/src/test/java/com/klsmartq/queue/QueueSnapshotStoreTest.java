@@ -0,0 +1,93 @@
+package com.klsmartq.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueueSnapshotStoreTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+    @TempDir
+    Path directory;
+
+    private static QueueState stateWith(int bookings) {
+        QueueState state = new QueueState(ZONE);
+        for (int i = 1; i <= bookings; i++) {
+            state.apply(i, QueueEvent.book("token-" + i, "office-1", "student-" + i, "A-" + i, null, "NORMAL",
+                1_700_000_000_000L + i));
+        }
+        return state;
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void snapshotRoundTripsTheState() throws IOException {
+        QueueSnapshotStore store = new QueueSnapshotStore(directory);
+        QueueState state = stateWith(3);
+        state.apply(4, QueueEvent.transition(QueueEvent.Type.CALL, "token-1", "office-1", "staff", 1_700_000_001_000L));
+
+        store.write(state.getLastSeq(), store.encode(state));
+        Optional<QueueState> restored = store.readLatest(ZONE);
+
+        assertThat(restored).isPresent();
+        assertThat(restored.get().getLastSeq()).isEqualTo(4);
+        assertThat(restored.get().get("token-1").getStatus()).isEqualTo(QueuedToken.IN_PROGRESS);
+        assertThat(restored.get().office("office-1").waitingInOrder())
+            .extracting(QueuedToken::getId).containsExactly("token-2", "token-3");
+    }
+
+    @Test
+    void keepsThePreviousSnapshotAndReportsWhatTheJournalMayDrop() throws IOException {
+        QueueSnapshotStore store = new QueueSnapshotStore(directory);
+
+        assertThat(store.write(1, store.encode(stateWith(1)))).isZero();
+        assertThat(store.write(2, store.encode(stateWith(2)))).isEqualTo(1);
+        assertThat(store.write(3, store.encode(stateWith(3)))).isEqualTo(2);
+
+        assertThat(files()).extracting(p -> p.getFileName().toString()).containsExactly(
+            "snapshot-00000000000000000002.bin", "snapshot-00000000000000000003.bin");
+    }
+
+    @Test
+    void corruptNewestSnapshotFallsBackToThePreviousOne() throws IOException {
+        QueueSnapshotStore store = new QueueSnapshotStore(directory);
+        store.write(2, store.encode(stateWith(2)));
+        store.write(3, store.encode(stateWith(3)));
+
+        Path newest = files().get(1);
+        byte[] bytes = Files.readAllBytes(newest);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(newest, bytes);
+
+        Optional<QueueState> restored = store.readLatest(ZONE);
+
+        assertThat(restored).isPresent();
+        assertThat(restored.get().getLastSeq()).isEqualTo(2);
+        assertThat(restored.get().get("token-3")).isNull();
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws IOException {
+        QueueSnapshotStore store = new QueueSnapshotStore(directory);
+        store.write(1, store.encode(stateWith(1)));
+        Path only = files().get(0);
+        Files.write(only, new byte[]{1, 2, 3});
+
+        assertThat(store.readLatest(ZONE)).isEmpty();
+    }
+}
@@ -0,0 +1,84 @@
+package com.klsmartq.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueueStateTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static QueueEvent book(String tokenId, String officeId, String studentId) {
+        return QueueEvent.book(tokenId, officeId, studentId, "A-001", null, "NORMAL", T0);
+    }
+
+    private static QueueEvent transition(QueueEvent.Type type, String tokenId, String officeId) {
+        return QueueEvent.transition(type, tokenId, officeId, "staff-1", T0 + 1);
+    }
+
+    @Test
+    void openTokenIsTrackedPerStudentAndOfficeUntilClosed() {
+        QueueState state = new QueueState(ZONE);
+        state.apply(1, book("t-1", "office-1", "student-1"));
+        state.apply(2, book("t-2", "office-2", "student-1"));
+
+        assertThat(state.hasOpenToken("student-1", "office-1")).isTrue();
+        assertThat(state.hasOpenToken("student-1", "office-3")).isFalse();
+        assertThat(state.hasOpenToken("student-2", "office-1")).isFalse();
+
+        state.apply(3, transition(QueueEvent.Type.CALL, "t-1", "office-1"));
+        assertThat(state.hasOpenToken("student-1", "office-1")).isTrue();
+        state.apply(4, transition(QueueEvent.Type.COMPLETE, "t-1", "office-1"));
+        state.apply(5, transition(QueueEvent.Type.CANCEL, "t-2", "office-2"));
+
+        assertThat(state.hasOpenToken("student-1", "office-1")).isFalse();
+        assertThat(state.hasOpenToken("student-1", "office-2")).isFalse();
+    }
+
+    @Test
+    void concurrentBookingsFromTwoInstancesAreCountedSeparately() {
+        QueueState state = new QueueState(ZONE);
+        state.apply(1, book("t-1", "office-1", "student-1"));
+        state.apply(2, book("t-2", "office-1", "student-1").asRemote());
+        // A booking replayed over a state that already holds it changes nothing
+        state.apply(3, book("t-1", "office-1", "student-1"));
+
+        state.apply(4, transition(QueueEvent.Type.CANCEL, "t-1", "office-1"));
+        assertThat(state.hasOpenToken("student-1", "office-1")).isTrue();
+        state.apply(5, transition(QueueEvent.Type.CANCEL, "t-2", "office-1"));
+        assertThat(state.hasOpenToken("student-1", "office-1")).isFalse();
+    }
+
+    @Test
+    void removedOfficeReleasesItsStudents() {
+        QueueState state = new QueueState(ZONE);
+        state.apply(1, book("t-1", "office-1", "student-1"));
+        state.apply(2, book("t-2", "office-2", "student-1"));
+
+        assertThat(state.removeOffice("office-1")).isEqualTo(1);
+
+        assertThat(state.hasOpenToken("student-1", "office-1")).isFalse();
+        assertThat(state.hasOpenToken("student-1", "office-2")).isTrue();
+    }
+
+    @Test
+    void restoredSnapshotKeepsTheIndex() throws IOException {
+        QueueState state = new QueueState(ZONE);
+        state.apply(1, book("t-1", "office-1", "student-1"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeTo(new DataOutputStream(bytes));
+
+        QueueState restored = QueueState.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+            ZONE, 2);
+
+        assertThat(restored.hasOpenToken("student-1", "office-1")).isTrue();
+    }
+}
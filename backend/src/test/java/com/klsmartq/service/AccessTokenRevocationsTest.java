@@ -0,0 +1,94 @@
+package com.klsmartq.service;
+
+import com.klsmartq.repository.RevokedAccessTokenRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccessTokenRevocationsTest {
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        AccessTokenRevocations.BloomFilter filter = new AccessTokenRevocations.BloomFilter(1_000, 0.01);
+        List<String> ids = IntStream.range(0, 1_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        ids.forEach(filter::add);
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void bloomFilterKeepsFalsePositivesNearTheConfiguredRate() {
+        AccessTokenRevocations.BloomFilter filter = new AccessTokenRevocations.BloomFilter(1_000, 0.01);
+        IntStream.range(0, 1_000).forEach(i -> filter.add("revoked-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+            .filter(i -> filter.mightContain("active-" + i))
+            .count();
+
+        // 1% expected; allow for the spread of a single run
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void revokedTokenIsRejectedAndOthersAreNot() {
+        RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        AccessTokenRevocations revocations = new AccessTokenRevocations(repository, 100, 0.01);
+        Instant expiresAt = Instant.now().plusSeconds(600);
+
+        revocations.revoke("jti-1", expiresAt);
+
+        verify(repository).insert("jti-1", expiresAt);
+        assertThat(revocations.isRevoked("jti-1")).isTrue();
+        assertThat(revocations.isRevoked("jti-2")).isFalse();
+        assertThat(revocations.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void expiredRevocationIsNotStored() {
+        RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        AccessTokenRevocations revocations = new AccessTokenRevocations(repository, 100, 0.01);
+
+        revocations.revoke("jti-1", Instant.now().minusSeconds(1));
+
+        verify(repository, never()).insert(any(), any());
+        assertThat(revocations.isRevoked("jti-1")).isFalse();
+    }
+
+    @Test
+    void reloadReplacesTheFilterWithTheActiveRevocations() {
+        RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        AccessTokenRevocations revocations = new AccessTokenRevocations(repository, 100, 0.01);
+        revocations.revoke("expired-by-now", Instant.now().plusSeconds(600));
+        when(repository.findActive(any())).thenReturn(List.of("from-other-instance"));
+
+        revocations.reload();
+
+        verify(repository).deleteExpired(any());
+        assertThat(revocations.isRevoked("from-other-instance")).isTrue();
+        assertThat(revocations.isRevoked("expired-by-now")).isFalse();
+    }
+
+    @Test
+    void failedReloadKeepsTheCurrentRevocations() {
+        RevokedAccessTokenRepository repository = mock(RevokedAccessTokenRepository.class);
+        AccessTokenRevocations revocations = new AccessTokenRevocations(repository, 100, 0.01);
+        revocations.revoke("jti-1", Instant.now().plusSeconds(600));
+        when(repository.findActive(any())).thenThrow(new IllegalStateException("database down"));
+
+        revocations.reload();
+
+        assertThat(revocations.isRevoked("jti-1")).isTrue();
+        verify(repository).insert(eq("jti-1"), any());
+    }
+}
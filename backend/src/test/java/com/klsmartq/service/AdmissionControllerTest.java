@@ -0,0 +1,66 @@
+package com.klsmartq.service;
+
+import com.klsmartq.entity.Office;
+import com.klsmartq.repository.OfficeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdmissionControllerTest {
+
+    private static final long DAY = 20_000;
+
+    private static Office office(String id, int limit) {
+        Office office = new Office();
+        office.setId(id);
+        office.setTokenLimit(limit);
+        return office;
+    }
+
+    @Test
+    void unknownOfficeIsRejectedAndNotRemembered() {
+        OfficeRepository repository = mock(OfficeRepository.class);
+        when(repository.findById("nope")).thenReturn(Optional.empty());
+        AdmissionController admission = new AdmissionController(repository);
+
+        assertThatThrownBy(() -> admission.tryReserve("nope", DAY)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> admission.tryReserve("nope", DAY)).isInstanceOf(IllegalArgumentException.class);
+
+        verify(repository, times(2)).findById("nope");
+        assertThat(admission.used("nope", DAY)).isZero();
+    }
+
+    @Test
+    void reservationsStopAtTheDailyLimitAndRollbackFreesCapacity() {
+        OfficeRepository repository = mock(OfficeRepository.class);
+        when(repository.findById("o1")).thenReturn(Optional.of(office("o1", 2)));
+        AdmissionController admission = new AdmissionController(repository);
+
+        assertThat(admission.tryReserve("o1", DAY)).isTrue();
+        assertThat(admission.tryReserve("o1", DAY)).isTrue();
+        assertThat(admission.tryReserve("o1", DAY)).isFalse();
+
+        admission.rollback("o1", DAY);
+        assertThat(admission.tryReserve("o1", DAY)).isTrue();
+        verify(repository).findById("o1");
+    }
+
+    @Test
+    void zeroLimitMeansUnlimited() {
+        OfficeRepository repository = mock(OfficeRepository.class);
+        when(repository.findById("o1")).thenReturn(Optional.of(office("o1", 0)));
+        AdmissionController admission = new AdmissionController(repository);
+
+        for (int i = 0; i < 500; i++) {
+            assertThat(admission.tryReserve("o1", DAY)).isTrue();
+        }
+        assertThat(admission.used("o1", DAY)).isEqualTo(500);
+    }
+}
@@ -0,0 +1,59 @@
+package com.klsmartq.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CheckInCodeServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private static JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        return jwtUtil;
+    }
+
+    @Test
+    void issuedCodeVerifiesToItsToken() {
+        CheckInCodeService codes = new CheckInCodeService(jwtUtil(), 600);
+
+        assertThat(codes.verify(codes.issue("token-1"))).isEqualTo("token-1");
+    }
+
+    @Test
+    void tamperedOrExpiredCodesAreRejected() {
+        CheckInCodeService codes = new CheckInCodeService(jwtUtil(), 600);
+        String code = codes.issue("token-1");
+
+        assertThatThrownBy(() -> codes.verify("token-2" + code.substring("token-1".length())))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codes.verify("garbage")).isInstanceOf(IllegalArgumentException.class);
+
+        CheckInCodeService expired = new CheckInCodeService(jwtUtil(), -1);
+        assertThatThrownBy(() -> expired.verify(expired.issue("token-1"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void codeIsNotSignedWithTheJwtKeyItself() throws Exception {
+        CheckInCodeService codes = new CheckInCodeService(jwtUtil(), 600);
+        String code = codes.issue("token-1");
+        String payload = code.substring(0, code.lastIndexOf('.'));
+
+        Mac jwtMac = Mac.getInstance("HmacSHA256");
+        jwtMac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String underJwtKey = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Arrays.copyOf(jwtMac.doFinal(payload.getBytes(StandardCharsets.UTF_8)), 16));
+
+        assertThat(code).doesNotEndWith("." + underJwtKey);
+        assertThatThrownBy(() -> codes.verify(payload + "." + underJwtKey)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
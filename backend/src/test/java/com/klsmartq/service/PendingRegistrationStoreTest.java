@@ -0,0 +1,57 @@
+package com.klsmartq.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PendingRegistrationStoreTest {
+
+    private static PendingRegistrationStore store() {
+        PendingRegistrationStore store = new PendingRegistrationStore(null);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "maxAttempts", 2);
+        return store;
+    }
+
+    @Test
+    void rightCodeConfirmsTheSignUp() {
+        PendingRegistrationStore store = store();
+        store.put("Ann", "Ann@Example.com", "hash", "123456", Instant.now().plusSeconds(600));
+
+        store.verify("ann@example.com", "123456");
+
+        assertThat(store.take("ann@example.com"))
+            .isEqualTo(new PendingRegistrationStore.Confirmed("Ann", "ann@example.com", "hash"));
+    }
+
+    @Test
+    void spentAttemptsSurviveRegisteringAgainUntilExpiry() {
+        PendingRegistrationStore store = store();
+        store.put("Ann", "ann@example.com", "hash", "123456", Instant.now().plusSeconds(600));
+        assertThatThrownBy(() -> store.verify("ann@example.com", "000000")).hasMessage("Invalid code");
+        assertThatThrownBy(() -> store.verify("ann@example.com", "000001")).hasMessage("Invalid code");
+
+        assertThatThrownBy(() -> store.verify("ann@example.com", "123456"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.put("Ann", "ann@example.com", "hash", "654321", Instant.now().plusSeconds(600)))
+            .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> store.verify("ann@example.com", "654321"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void expiredTombstoneAllowsRegisteringAgain() throws InterruptedException {
+        PendingRegistrationStore store = store();
+        store.put("Ann", "ann@example.com", "hash", "123456", Instant.now().plusMillis(200));
+        assertThatThrownBy(() -> store.verify("ann@example.com", "000000")).hasMessage("Invalid code");
+        assertThatThrownBy(() -> store.verify("ann@example.com", "000001")).hasMessage("Invalid code");
+
+        Thread.sleep(300);
+        store.put("Ann", "ann@example.com", "hash", "654321", Instant.now().plusSeconds(600));
+        store.verify("ann@example.com", "654321");
+    }
+}
@@ -0,0 +1,128 @@
+package com.klsmartq.service;
+
+import com.klsmartq.dto.TokenDTO;
+import com.klsmartq.queue.QueueEvent;
+import com.klsmartq.queue.QueuedToken;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs against embedded Postgres, or against {@code -Dtest.database-url} (with {@code test.database-username}
+ * and {@code test.database-password}) where embedded Postgres cannot start, e.g. as root. A peer instance is
+ * played by sending its notifications and write-behind rows directly.
+ */
+@SpringBootTest(properties = {
+    "queue.notify.enabled=true",
+    "queue.notify.channel=queue_events_test",
+    "queue.notify.resync-delay-ms=1000",
+    "queue.reconcile-interval-ms=3600000"
+})
+class QueueNotifierTest {
+
+    private static EmbeddedPostgres embedded;
+
+    @TempDir
+    static Path journalDir;
+
+    @Autowired
+    private QueueService queueService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final String peer = UUID.randomUUID().toString();
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        String url = System.getProperty("test.database-url");
+        String username = System.getProperty("test.database-username", "postgres");
+        String password = System.getProperty("test.database-password", "");
+        if (url == null) {
+            embedded = EmbeddedPostgres.builder().start();
+            url = embedded.getJdbcUrl("postgres", "postgres");
+            password = "postgres";
+        }
+        String jdbcUrl = url;
+        String jdbcPassword = password;
+        registry.add("spring.datasource.url", () -> jdbcUrl);
+        registry.add("spring.datasource.username", () -> username);
+        registry.add("spring.datasource.password", () -> jdbcPassword);
+        registry.add("queue.journal.dir", () -> journalDir.toString());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+
+    @Test
+    void missedEventsAreReloadedOnceThePeerHasWrittenThemBack() {
+        String office = UUID.randomUUID().toString();
+        String booked = UUID.randomUUID().toString();
+        String missed = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+
+        publish(1, QueueEvent.book(booked, office, "student-1", "A001", null, "NORMAL", now));
+        await().atMost(Duration.ofSeconds(10)).until(() -> waitingIds(office).contains(booked));
+
+        // Seq 2 (booking the missed token) never arrives; the peer writes it back only after seq 3 went out
+        publish(3, QueueEvent.transition(QueueEvent.Type.CALL, missed, office, "staff-1", now + 2));
+        insertToken(missed, office, QueuedToken.WAITING);
+
+        await().atMost(Duration.ofSeconds(10))
+            .until(() -> QueuedToken.IN_PROGRESS.equals(queueService.getToken(missed).getStatus()));
+        // Received before the reload but not yet in Postgres: still queued
+        assertThat(waitingIds(office)).containsExactly(booked);
+    }
+
+    @Test
+    void replayedBookingIsNotReopenedWhenPostgresHasItClosed() {
+        String office = UUID.randomUUID().toString();
+        String completed = UUID.randomUUID().toString();
+        String later = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+
+        publish(1, QueueEvent.book(completed, office, "student-1", "A001", null, "NORMAL", now));
+        await().atMost(Duration.ofSeconds(10)).until(() -> waitingIds(office).contains(completed));
+
+        // Seq 2 (completing it) is missed and written back
+        insertToken(completed, office, QueuedToken.COMPLETED);
+        publish(3, QueueEvent.book(later, office, "student-2", "A002", null, "NORMAL", now + 2));
+        await().atMost(Duration.ofSeconds(10)).until(() -> !waitingIds(office).contains(completed));
+
+        assertThat(waitingIds(office)).containsExactly(later);
+    }
+
+    private List<String> waitingIds(String officeId) {
+        return queueService.getWaitingTokens(officeId).stream().map(TokenDTO::getId).toList();
+    }
+
+    private void publish(long seq, QueueEvent event) {
+        String payload = peer + ":" + seq + ":" + Base64.getEncoder().encodeToString(event.encode());
+        jdbc.queryForObject("SELECT pg_notify('queue_events_test', ?)", String.class, payload);
+    }
+
+    private void insertToken(String tokenId, String officeId, String status) {
+        jdbc.update("INSERT INTO tokens (id, token_number, student_id, office_id, status, created_at) "
+            + "VALUES (?, 'A000', 'student-1', ?, ?, now())", tokenId, officeId, status);
+    }
+}